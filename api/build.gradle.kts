@@ -0,0 +1,13 @@
+plugins {
+    application
+}
+
+dependencies {
+    implementation(project(":common"))
+    implementation(project(":cache"))
+    implementation(project(":limiter"))
+}
+
+application {
+    mainClass.set("com.limitra.api.LimitraHttpServer")
+}
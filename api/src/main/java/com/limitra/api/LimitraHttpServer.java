@@ -0,0 +1,277 @@
+package com.limitra.api;
+
+import com.limitra.api.metrics.MetricsRegistry;
+import com.limitra.cache.SimpleTTLCache;
+import com.limitra.limiter.KeyedRateLimiter;
+import com.limitra.time.SystemTimeProvider;
+import com.limitra.time.TimeProvider;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A small HTTP front end for running Limitra as a sidecar.
+ *
+ * <p>Endpoints:
+ *
+ * <ul>
+ *   <li>{@code POST /limit/{key}[?permits=N]}: 200 if the permits were granted, 429 otherwise.
+ *   <li>{@code GET /cache/{key}}: 200 with the stored bytes, or 404.
+ *   <li>{@code PUT /cache/{key}[?ttlMillis=N]}: stores the request body; 204.
+ *   <li>{@code DELETE /cache/{key}}: 204 if removed, 404 otherwise.
+ * </ul>
+ *
+ * <p>Every exchange runs on its own virtual thread. Responses always carry a {@code
+ * Content-Length} and request bodies are always drained, so connections stay alive and pipelined
+ * requests on the same connection are served back to back.
+ *
+ * <p>The JDK server flushes headers and body separately, so with Nagle's algorithm enabled the
+ * body of a non-pipelined response waits for the client's delayed ACK (~40 ms). {@link #main}
+ * turns it off; applications that embed the server should start the JVM with {@code
+ * -Dsun.net.httpserver.nodelay=true} or call {@link #useNoDelayByDefault()} first.
+ */
+public class LimitraHttpServer implements AutoCloseable {
+
+    static final int DEFAULT_MAX_VALUE_BYTES = 1 << 20;
+
+    private static final byte[] ALLOWED = "{\"allowed\":true}".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DENIED = "{\"allowed\":false}".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMPTY = new byte[0];
+    private static final String JSON = "application/json";
+    private static final String OCTETS = "application/octet-stream";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final KeyedRateLimiter<String> limiters;
+    private final SimpleTTLCache<String, byte[]> cache;
+    private final int maxValueBytes;
+
+    public LimitraHttpServer(
+            InetSocketAddress address,
+            KeyedRateLimiter<String> limiters,
+            SimpleTTLCache<String, byte[]> cache)
+            throws IOException {
+        this(address, limiters, cache, DEFAULT_MAX_VALUE_BYTES);
+    }
+
+    public LimitraHttpServer(
+            InetSocketAddress address,
+            KeyedRateLimiter<String> limiters,
+            SimpleTTLCache<String, byte[]> cache,
+            int maxValueBytes)
+            throws IOException {
+        Objects.requireNonNull(address, "address must not be null");
+        this.limiters = Objects.requireNonNull(limiters, "limiters must not be null");
+        this.cache = Objects.requireNonNull(cache, "cache must not be null");
+        if (maxValueBytes <= 0) {
+            throw new IllegalArgumentException("maxValueBytes must be greater than 0");
+        }
+        this.maxValueBytes = maxValueBytes;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(address, 1024);
+        this.server.setExecutor(executor);
+        this.server.createContext("/limit/", this::handleLimit);
+        this.server.createContext("/cache/", this::handleCache);
+    }
+
+    public LimitraHttpServer start() {
+        server.start();
+        return this;
+    }
+
+    /** The bound port; useful when the server was created on port 0. */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /** Registers an additional endpoint, e.g. a metrics scrape handler. */
+    public void addContext(String path, HttpHandler handler) {
+        server.createContext(path, handler);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handleLimit(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            drain(exchange);
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                methodNotAllowed(exchange, "POST");
+                return;
+            }
+            String key = key(exchange, "/limit/");
+            long permits = queryLong(exchange, "permits", 1);
+            if (key == null || permits <= 0 || permits > Integer.MAX_VALUE) {
+                send(exchange, 400, EMPTY, JSON);
+                return;
+            }
+            boolean allowed = limiters.tryAcquire(key, (int) permits);
+            send(exchange, allowed ? 200 : 429, allowed ? ALLOWED : DENIED, JSON);
+        }
+    }
+
+    private void handleCache(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String key = key(exchange, "/cache/");
+            switch (exchange.getRequestMethod()) {
+                case "GET" -> {
+                    drain(exchange);
+                    if (key == null) {
+                        send(exchange, 400, EMPTY, OCTETS);
+                        return;
+                    }
+                    Optional<byte[]> value = cache.get(key);
+                    if (value.isPresent()) {
+                        send(exchange, 200, value.get(), OCTETS);
+                    } else {
+                        send(exchange, 404, EMPTY, OCTETS);
+                    }
+                }
+                case "PUT" -> {
+                    byte[] body = readBody(exchange);
+                    long ttlMillis = queryLong(exchange, "ttlMillis", 0);
+                    if (key == null || body == null || ttlMillis < 0) {
+                        send(exchange, body == null ? 413 : 400, EMPTY, OCTETS);
+                        return;
+                    }
+                    if (ttlMillis == 0) {
+                        cache.put(key, body);
+                    } else {
+                        cache.put(key, body, ttlMillis);
+                    }
+                    send(exchange, 204, EMPTY, OCTETS);
+                }
+                case "DELETE" -> {
+                    drain(exchange);
+                    if (key == null) {
+                        send(exchange, 400, EMPTY, OCTETS);
+                        return;
+                    }
+                    send(exchange, cache.remove(key) ? 204 : 404, EMPTY, OCTETS);
+                }
+                default -> {
+                    drain(exchange);
+                    methodNotAllowed(exchange, "GET, PUT, DELETE");
+                }
+            }
+        }
+    }
+
+    private static String key(HttpExchange exchange, String prefix) {
+        String path = exchange.getRequestURI().getPath();
+        if (path.length() <= prefix.length()) {
+            return null;
+        }
+        return path.substring(prefix.length());
+    }
+
+    /** Returns the query parameter as a long, the default if absent, or -1 if malformed. */
+    static long queryLong(HttpExchange exchange, String name, long defaultValue) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return defaultValue;
+        }
+        int from = 0;
+        while (from < query.length()) {
+            int end = query.indexOf('&', from);
+            if (end < 0) {
+                end = query.length();
+            }
+            if (query.startsWith(name, from)
+                    && from + name.length() < end
+                    && query.charAt(from + name.length()) == '=') {
+                try {
+                    return Long.parseLong(query, from + name.length() + 1, end, 10);
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+            from = end + 1;
+        }
+        return defaultValue;
+    }
+
+    /** Reads the body, or returns null if it exceeds {@code maxValueBytes}. */
+    private byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(maxValueBytes + 1);
+            if (body.length > maxValueBytes) {
+                in.transferTo(OutputStream.nullOutputStream());
+                return null;
+            }
+            return body;
+        }
+    }
+
+    // unread bytes would be parsed as the next request on a keep-alive connection
+    private static void drain(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static void methodNotAllowed(HttpExchange exchange, String allow) throws IOException {
+        exchange.getResponseHeaders().set("Allow", allow);
+        send(exchange, 405, EMPTY, JSON);
+    }
+
+    static void send(HttpExchange exchange, int status, byte[] body, String contentType)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        // -1 sends "Content-length: 0"; 0 would switch to chunked encoding
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Sets {@code sun.net.httpserver.nodelay} unless it was given on the command line. The JDK
+     * reads it once, when the first {@link HttpServer} is created, so this must run before that.
+     */
+    public static void useNoDelayByDefault() {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /**
+     * Runs the sidecar, with Prometheus metrics on {@code GET /metrics}. Arguments (all optional):
+     * {@code port capacity refillPerSecond cacheMaxEntries}.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        long capacity = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        double rate = args.length > 2 ? Double.parseDouble(args[2]) : 50.0;
+        int cacheMaxEntries = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+        useNoDelayByDefault();
+
+        TimeProvider time = new SystemTimeProvider();
+        KeyedRateLimiter<String> limiters = new KeyedRateLimiter<>(time, capacity, rate, 1_000_000);
+        SimpleTTLCache<String, byte[]> cache = new SimpleTTLCache<>(time, cacheMaxEntries);
+        LimitraHttpServer server =
+                new LimitraHttpServer(new InetSocketAddress(port), limiters, cache);
+        MetricsRegistry metrics =
+                new MetricsRegistry()
+                        .registerLimiter("sidecar", limiters)
+                        .registerCache("sidecar", cache);
+        server.addContext("/metrics", metrics.handler());
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.out.println("Limitra listening on port " + server.port());
+    }
+}
@@ -0,0 +1,96 @@
+package com.limitra.api.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts observations into fixed buckets, for export as an OpenMetrics histogram.
+ *
+ * <p>Observing is a binary search over the bounds and two adder updates; it allocates nothing
+ * and never contends on a lock. Bucket counts are stored per bucket and made cumulative only when
+ * rendered.
+ */
+public final class Histogram {
+
+    private static final double[] LATENCY_SECONDS = {
+        0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5
+    };
+
+    private final double[] upperBounds;
+    // one more than the bounds: the last bucket is +Inf
+    private final LongAdder[] counts;
+    private final DoubleAdder sum;
+    // rendered "le" label values, computed once
+    private final String[] le;
+
+    /**
+     * @param upperBounds finite, strictly increasing bucket bounds; {@code +Inf} is implied
+     */
+    public Histogram(double... upperBounds) {
+        if (upperBounds.length == 0) {
+            throw new IllegalArgumentException("upperBounds must not be empty");
+        }
+        for (int i = 0; i < upperBounds.length; i++) {
+            if (!Double.isFinite(upperBounds[i])
+                    || (i > 0 && upperBounds[i] <= upperBounds[i - 1])) {
+                throw new IllegalArgumentException(
+                        "upperBounds must be finite and strictly increasing");
+            }
+        }
+        this.upperBounds = upperBounds.clone();
+        this.counts = new LongAdder[upperBounds.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+        this.sum = new DoubleAdder();
+        this.le = new String[counts.length];
+        for (int i = 0; i < upperBounds.length; i++) {
+            le[i] = Double.toString(upperBounds[i]);
+        }
+        le[upperBounds.length] = "+Inf";
+    }
+
+    /** Buckets from 100 µs to 2.5 s, for latencies observed in seconds. */
+    public static Histogram latencySeconds() {
+        return new Histogram(LATENCY_SECONDS);
+    }
+
+    public void observe(double value) {
+        int index = Arrays.binarySearch(upperBounds, value);
+        // a bound is inclusive ("le"); a miss lands in the first bucket above the value
+        counts[index >= 0 ? index : -index - 1].increment();
+        sum.add(value);
+    }
+
+    /** Observes a duration measured in nanoseconds, in seconds. */
+    public void observeNanos(long nanos) {
+        observe(nanos / 1e9);
+    }
+
+    int bucketCount() {
+        return counts.length;
+    }
+
+    /** The bucket's upper bound as a label value; {@code +Inf} for the last one. */
+    String le(int bucket) {
+        return le[bucket];
+    }
+
+    /** Observations in this bucket alone, not cumulative. */
+    long count(int bucket) {
+        return counts[bucket].sum();
+    }
+
+    double sum() {
+        return sum.sum();
+    }
+
+    /** Drops all observations; not atomic with respect to concurrent ones. */
+    void reset() {
+        for (LongAdder count : counts) {
+            count.reset();
+        }
+        sum.reset();
+    }
+}
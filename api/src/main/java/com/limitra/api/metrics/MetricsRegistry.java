@@ -0,0 +1,342 @@
+package com.limitra.api.metrics;
+
+import com.limitra.cache.SimpleTTLCache;
+import com.limitra.limiter.KeyedRateLimiter;
+import com.limitra.limiter.TokenBucketRateLimiter;
+import com.limitra.metrics.CacheMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Named caches, limiters and histograms, rendered in the OpenMetrics text format for Prometheus.
+ *
+ * <p>Exported families:
+ *
+ * <ul>
+ *   <li>{@code limitra_cache_hits_total}, {@code limitra_cache_misses_total} and {@code
+ *       limitra_cache_evictions_total{cause="ttl"|"capacity"}}, labelled {@code cache}.
+ *   <li>{@code limitra_limiter_requests_total{result="granted"|"denied"}}, {@code
+ *       limitra_limiter_keys} and the {@code limitra_limiter_bucket_fill_ratio} histogram of
+ *       available permits over capacity across all keys, labelled {@code limiter}.
+ *   <li>Each registered {@link Histogram} under its own name.
+ * </ul>
+ *
+ * <p>Scrapes are serialized and render into one {@link StringBuilder} and byte buffer that are
+ * reused from scrape to scrape, so a scrape allocates almost nothing once the buffers have grown
+ * to size. Per-key state is summarized in the fill-ratio histogram rather than exported as one
+ * series per key, which keeps the output small however many keys there are. Walking the keys
+ * takes no lock on the key map; each bucket's own lock is held only to read its permits, so
+ * request threads are never blocked for the length of a scrape.
+ */
+public final class MetricsRegistry {
+
+    public static final String CONTENT_TYPE =
+            "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private static final Pattern METRIC_NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final double[] FILL_RATIO_BOUNDS = {0, 0.1, 0.25, 0.5, 0.75, 0.9, 1};
+
+    private final List<Named<SimpleTTLCache<?, ?>>> caches;
+    private final List<Named<KeyedRateLimiter<?>>> limiters;
+    private final List<NamedHistogram> histograms;
+
+    private final ReentrantLock scrapeLock;
+    // guarded by scrapeLock, reused across scrapes
+    private final StringBuilder text;
+    private byte[] bytes;
+    private final FillRatioTally fillRatios;
+
+    public MetricsRegistry() {
+        this.caches = new CopyOnWriteArrayList<>();
+        this.limiters = new CopyOnWriteArrayList<>();
+        this.histograms = new CopyOnWriteArrayList<>();
+        this.scrapeLock = new ReentrantLock();
+        this.text = new StringBuilder(4096);
+        this.bytes = new byte[4096];
+        this.fillRatios = new FillRatioTally(FILL_RATIO_BOUNDS);
+    }
+
+    /** Exports the cache's counters with the label {@code cache="name"}. */
+    public MetricsRegistry registerCache(String name, SimpleTTLCache<?, ?> cache) {
+        add(caches, name, Objects.requireNonNull(cache, "cache must not be null"));
+        return this;
+    }
+
+    /** Exports the limiter's counters with the label {@code limiter="name"}. */
+    public MetricsRegistry registerLimiter(String name, KeyedRateLimiter<?> limiter) {
+        add(limiters, name, Objects.requireNonNull(limiter, "limiter must not be null"));
+        return this;
+    }
+
+    /**
+     * Exports a histogram as the family {@code name}, e.g. {@code
+     * limitra_http_request_duration_seconds}.
+     */
+    public MetricsRegistry registerHistogram(String name, String help, Histogram histogram) {
+        Objects.requireNonNull(name, "name must not be null");
+        Objects.requireNonNull(help, "help must not be null");
+        Objects.requireNonNull(histogram, "histogram must not be null");
+        if (!METRIC_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid metric name: " + name);
+        }
+        synchronized (histograms) {
+            for (NamedHistogram existing : histograms) {
+                if (existing.name().equals(name)) {
+                    throw new IllegalArgumentException("Already registered: " + name);
+                }
+            }
+            histograms.add(new NamedHistogram(name, help, histogram));
+        }
+        return this;
+    }
+
+    private static <T> void add(List<Named<T>> list, String name, T value) {
+        Objects.requireNonNull(name, "name must not be null");
+        synchronized (list) {
+            for (Named<T> existing : list) {
+                if (existing.name().equals(name)) {
+                    throw new IllegalArgumentException("Already registered: " + name);
+                }
+            }
+            list.add(new Named<>(name, value));
+        }
+    }
+
+    /** Renders all metrics; mainly for tests, as it copies the text into a new string. */
+    public String scrape() {
+        scrapeLock.lock();
+        try {
+            render();
+            return text.toString();
+        } finally {
+            scrapeLock.unlock();
+        }
+    }
+
+    /** Renders all metrics into {@code out}. */
+    public void scrapeTo(OutputStream out) throws IOException {
+        scrapeLock.lock();
+        try {
+            out.write(bytes, 0, renderBytes());
+        } finally {
+            scrapeLock.unlock();
+        }
+    }
+
+    /** A handler for {@code GET} scrapes, to mount with {@code LimitraHttpServer.addContext}. */
+    public HttpHandler handler() {
+        return this::handle;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try (InputStream in = exchange.getRequestBody()) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            scrapeLock.lock();
+            try {
+                int length = renderBytes();
+                exchange.sendResponseHeaders(200, length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes, 0, length);
+                }
+            } finally {
+                scrapeLock.unlock();
+            }
+        }
+    }
+
+    /** Renders into {@link #text}, then encodes it into {@link #bytes}; returns the length. */
+    private int renderBytes() {
+        render();
+        int length = text.length();
+        if (bytes.length < length) {
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // non-ASCII label values are rare; encode the slow way
+                byte[] utf8 = text.toString().getBytes(StandardCharsets.UTF_8);
+                bytes = utf8.length > bytes.length ? utf8 : bytes;
+                System.arraycopy(utf8, 0, bytes, 0, utf8.length);
+                return utf8.length;
+            }
+            bytes[i] = (byte) c;
+        }
+        return length;
+    }
+
+    private void render() {
+        text.setLength(0);
+        renderCaches();
+        renderLimiters();
+        for (NamedHistogram histogram : histograms) {
+            header(histogram.name(), "histogram", histogram.help());
+            histogram(histogram.name(), null, null, histogram.histogram());
+        }
+        text.append("# EOF\n");
+    }
+
+    private void renderCaches() {
+        if (caches.isEmpty()) {
+            return;
+        }
+        // one snapshot per cache, so every family reports the same instant
+        CacheMetrics[] snapshots = new CacheMetrics[caches.size()];
+        int n = 0;
+        for (Named<SimpleTTLCache<?, ?>> cache : caches) {
+            if (n == snapshots.length) {
+                break; // registered during this scrape; exported next time
+            }
+            snapshots[n++] = cache.value().metricsSnapshot();
+        }
+
+        header("limitra_cache_hits", "counter", "Lookups that found a live entry.");
+        for (int i = 0; i < n; i++) {
+            sample("limitra_cache_hits_total", "cache", caches.get(i).name(), null, null);
+            text.append(snapshots[i].hits()).append('\n');
+        }
+        header("limitra_cache_misses", "counter", "Lookups that found no live entry.");
+        for (int i = 0; i < n; i++) {
+            sample("limitra_cache_misses_total", "cache", caches.get(i).name(), null, null);
+            text.append(snapshots[i].misses()).append('\n');
+        }
+        header("limitra_cache_evictions", "counter", "Entries removed by the cache itself.");
+        for (int i = 0; i < n; i++) {
+            String name = caches.get(i).name();
+            sample("limitra_cache_evictions_total", "cache", name, "cause", "ttl");
+            text.append(snapshots[i].evictedByTtl()).append('\n');
+            sample("limitra_cache_evictions_total", "cache", name, "cause", "capacity");
+            text.append(snapshots[i].evictedByCapacity()).append('\n');
+        }
+    }
+
+    private void renderLimiters() {
+        if (limiters.isEmpty()) {
+            return;
+        }
+        header("limitra_limiter_requests", "counter", "tryAcquire calls by outcome.");
+        for (Named<KeyedRateLimiter<?>> limiter : limiters) {
+            String name = limiter.name();
+            sample("limitra_limiter_requests_total", "limiter", name, "result", "granted");
+            text.append(limiter.value().grantedRequests()).append('\n');
+            sample("limitra_limiter_requests_total", "limiter", name, "result", "denied");
+            text.append(limiter.value().deniedRequests()).append('\n');
+        }
+        header("limitra_limiter_keys", "gauge", "Key buckets currently held.");
+        for (Named<KeyedRateLimiter<?>> limiter : limiters) {
+            sample("limitra_limiter_keys", "limiter", limiter.name(), null, null);
+            text.append(limiter.value().size()).append('\n');
+        }
+        header(
+                "limitra_limiter_bucket_fill_ratio",
+                "histogram",
+                "Available permits over capacity, across key buckets.");
+        for (Named<KeyedRateLimiter<?>> limiter : limiters) {
+            fillRatios.reset(limiter.value().capacity());
+            limiter.value().forEachLimiter(fillRatios);
+            histogram(
+                    "limitra_limiter_bucket_fill_ratio",
+                    "limiter",
+                    limiter.name(),
+                    fillRatios.histogram());
+        }
+    }
+
+    private void histogram(String family, String label, String value, Histogram histogram) {
+        long cumulative = 0;
+        for (int bucket = 0; bucket < histogram.bucketCount(); bucket++) {
+            cumulative += histogram.count(bucket);
+            sample(family + "_bucket", label, value, "le", histogram.le(bucket));
+            text.append(cumulative).append('\n');
+        }
+        sample(family + "_count", label, value, null, null);
+        text.append(cumulative).append('\n');
+        sample(family + "_sum", label, value, null, null);
+        text.append(histogram.sum()).append('\n');
+    }
+
+    private void header(String family, String type, String help) {
+        text.append("# TYPE ").append(family).append(' ').append(type).append('\n');
+        text.append("# HELP ").append(family).append(' ').append(help).append('\n');
+    }
+
+    /** Appends the sample name and up to two labels, ready for the value. */
+    private void sample(String name, String label1, String value1, String label2, String value2) {
+        text.append(name);
+        if (label1 != null || label2 != null) {
+            text.append('{');
+            if (label1 != null) {
+                label(label1, value1);
+            }
+            if (label1 != null && label2 != null) {
+                text.append(',');
+            }
+            if (label2 != null) {
+                label(label2, value2);
+            }
+            text.append('}');
+        }
+        text.append(' ');
+    }
+
+    private void label(String label, String value) {
+        text.append(label).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> text.append("\\\\");
+                case '"' -> text.append("\\\"");
+                case '\n' -> text.append("\\n");
+                default -> text.append(c);
+            }
+        }
+        text.append('"');
+    }
+
+    private record Named<T>(String name, T value) {}
+
+    private record NamedHistogram(String name, String help, Histogram histogram) {}
+
+    /** Tallies bucket fill ratios into a histogram that is cleared, not reallocated, per use. */
+    private static final class FillRatioTally implements Consumer<TokenBucketRateLimiter> {
+
+        private final Histogram histogram;
+        private double capacity;
+
+        FillRatioTally(double[] bounds) {
+            this.histogram = new Histogram(bounds);
+        }
+
+        void reset(long capacity) {
+            this.capacity = capacity;
+            histogram.reset();
+        }
+
+        @Override
+        public void accept(TokenBucketRateLimiter limiter) {
+            histogram.observe(limiter.availablePermits() / capacity);
+        }
+
+        Histogram histogram() {
+            return histogram;
+        }
+    }
+}
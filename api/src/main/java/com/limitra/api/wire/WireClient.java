@@ -0,0 +1,293 @@
+package com.limitra.api.wire;
+
+import static com.limitra.api.wire.WireProtocol.HEADER_BYTES;
+import static com.limitra.api.wire.WireProtocol.OP_BATCH_ACQUIRE;
+import static com.limitra.api.wire.WireProtocol.OP_CACHE_GET;
+import static com.limitra.api.wire.WireProtocol.OP_CACHE_PUT;
+import static com.limitra.api.wire.WireProtocol.OP_TRY_ACQUIRE;
+import static com.limitra.api.wire.WireProtocol.STATUS_ERROR;
+import static com.limitra.api.wire.WireProtocol.STATUS_NOT_FOUND;
+import static com.limitra.api.wire.WireProtocol.STATUS_OK;
+import static com.limitra.api.wire.WireProtocol.keyBytes;
+import static com.limitra.api.wire.WireProtocol.putKey;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Pipelining client for {@link WireServer}.
+ *
+ * <p>Requests are spread round-robin over a fixed pool of connections and never wait for earlier
+ * responses: each call writes its frame and returns a future that a per-connection reader (a
+ * virtual thread) completes when the matching response arrives. If a connection breaks, its
+ * outstanding and later futures fail with the {@link IOException}.
+ */
+public class WireClient implements AutoCloseable {
+
+    private final Connection[] connections;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public WireClient(InetSocketAddress address, int connections) throws IOException {
+        Objects.requireNonNull(address, "address must not be null");
+        if (connections <= 0) {
+            throw new IllegalArgumentException("connections must be greater than 0");
+        }
+        this.connections = new Connection[connections];
+        try {
+            for (int i = 0; i < connections; i++) {
+                this.connections[i] = new Connection(SocketChannel.open(address));
+            }
+        } catch (IOException e) {
+            closeAll(this.connections);
+            throw e;
+        }
+    }
+
+    public CompletableFuture<Boolean> tryAcquire(String key, int permits) {
+        byte[] keyBytes = keyBytes(Objects.requireNonNull(key, "key must not be null"));
+        requirePositive(permits);
+        return connection()
+                .send(
+                        OP_TRY_ACQUIRE,
+                        2 + keyBytes.length + 4,
+                        out -> {
+                            putKey(out, keyBytes);
+                            out.putInt(permits);
+                        },
+                        (status, in) -> status == STATUS_OK);
+    }
+
+    /** Acquires {@code permits} for each key; element {@code i} is true if key {@code i} won. */
+    public CompletableFuture<boolean[]> tryAcquireAll(List<String> keys, int permits) {
+        Objects.requireNonNull(keys, "keys must not be null");
+        if (keys.size() > 0xFFFF) {
+            throw new IllegalArgumentException("at most 65535 keys per batch");
+        }
+        requirePositive(permits);
+        byte[][] keyBytes = new byte[keys.size()][];
+        int payload = 2;
+        for (int i = 0; i < keyBytes.length; i++) {
+            keyBytes[i] = keyBytes(Objects.requireNonNull(keys.get(i), "keys must not be null"));
+            payload += 2 + keyBytes[i].length + 4;
+        }
+        return connection()
+                .send(
+                        OP_BATCH_ACQUIRE,
+                        payload,
+                        out -> {
+                            out.putShort((short) keyBytes.length);
+                            for (byte[] k : keyBytes) {
+                                putKey(out, k);
+                                out.putInt(permits);
+                            }
+                        },
+                        (status, in) -> {
+                            boolean[] granted = new boolean[in.getShort() & 0xFFFF];
+                            int base = in.position();
+                            for (int i = 0; i < granted.length; i++) {
+                                granted[i] = (in.get(base + (i >>> 3)) & (1 << (i & 7))) != 0;
+                            }
+                            return granted;
+                        });
+    }
+
+    public CompletableFuture<Optional<byte[]>> get(String key) {
+        byte[] keyBytes = keyBytes(Objects.requireNonNull(key, "key must not be null"));
+        return connection()
+                .send(
+                        OP_CACHE_GET,
+                        2 + keyBytes.length,
+                        out -> putKey(out, keyBytes),
+                        (status, in) -> {
+                            if (status == STATUS_NOT_FOUND) {
+                                return Optional.empty();
+                            }
+                            byte[] value = new byte[in.getInt()];
+                            in.get(value);
+                            return Optional.of(value);
+                        });
+    }
+
+    /** Stores {@code value}; a {@code ttlMillis} of 0 stores it without expiry. */
+    public CompletableFuture<Void> put(String key, byte[] value, long ttlMillis) {
+        byte[] keyBytes = keyBytes(Objects.requireNonNull(key, "key must not be null"));
+        Objects.requireNonNull(value, "value must not be null");
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("ttlMillis must not be negative");
+        }
+        return connection()
+                .send(
+                        OP_CACHE_PUT,
+                        2 + keyBytes.length + 8 + 4 + value.length,
+                        out -> {
+                            putKey(out, keyBytes);
+                            out.putLong(ttlMillis);
+                            out.putInt(value.length);
+                            out.put(value);
+                        },
+                        (status, in) -> null);
+    }
+
+    @Override
+    public void close() {
+        closeAll(connections);
+    }
+
+    private static void closeAll(Connection[] connections) {
+        for (Connection connection : connections) {
+            if (connection != null) {
+                connection.fail(new IOException("Client closed"));
+            }
+        }
+    }
+
+    private Connection connection() {
+        return connections[Math.floorMod(next.getAndIncrement(), connections.length)];
+    }
+
+    private static void requirePositive(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("permits must be greater than 0");
+        }
+    }
+
+    @FunctionalInterface
+    private interface Decoder<T> {
+        /** Called for OK, DENIED and NOT_FOUND; {@code in} is limited to the payload. */
+        T decode(byte status, ByteBuffer in);
+    }
+
+    private record Pending<T>(CompletableFuture<T> future, Decoder<T> decoder) {
+        void complete(byte status, ByteBuffer in) {
+            if (status == STATUS_ERROR) {
+                future.completeExceptionally(new IllegalStateException("Server rejected request"));
+                return;
+            }
+            try {
+                future.complete(decoder.decode(status, in));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class Connection {
+
+        private final SocketChannel channel;
+        private final ReentrantLock writeLock = new ReentrantLock();
+        private final AtomicInteger ids = new AtomicInteger();
+        private final ConcurrentHashMap<Integer, Pending<?>> pending = new ConcurrentHashMap<>();
+        private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(16 * 1024);
+        private volatile IOException failure;
+
+        Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Thread.ofVirtual().name("limitra-wire-client").start(this::readLoop);
+        }
+
+        <T> CompletableFuture<T> send(
+                byte op, int payloadBytes, Consumer<ByteBuffer> encoder, Decoder<T> decoder) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            int requestId = ids.incrementAndGet();
+            // registered before writing: the response can arrive before write() returns
+            pending.put(requestId, new Pending<>(future, decoder));
+            writeLock.lock();
+            try {
+                int frameBytes = HEADER_BYTES + payloadBytes;
+                if (writeBuffer.capacity() < frameBytes) {
+                    writeBuffer = ByteBuffer.allocateDirect(frameBytes);
+                }
+                writeBuffer.clear();
+                writeBuffer.putInt(frameBytes - 4).putInt(requestId).put(op);
+                encoder.accept(writeBuffer);
+                writeBuffer.flip();
+                while (writeBuffer.hasRemaining()) {
+                    channel.write(writeBuffer);
+                }
+            } catch (IOException e) {
+                fail(e);
+            } finally {
+                writeLock.unlock();
+            }
+            // a reader that failed before our put() would never complete the future
+            IOException e = failure;
+            if (e != null && pending.remove(requestId) != null) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+
+        private void readLoop() {
+            ByteBuffer in = ByteBuffer.allocateDirect(64 * 1024);
+            try {
+                while (true) {
+                    if (channel.read(in) < 0) {
+                        throw new IOException("Connection closed by server");
+                    }
+                    in.flip();
+                    while (in.remaining() >= HEADER_BYTES) {
+                        int length = in.getInt(in.position());
+                        if (length < HEADER_BYTES - 4) {
+                            throw new IOException("Malformed response frame: length " + length);
+                        }
+                        if (in.remaining() < 4 + length) {
+                            break;
+                        }
+                        int frameEnd = in.position() + 4 + length;
+                        int limit = in.limit();
+                        in.position(in.position() + 4).limit(frameEnd);
+                        int requestId = in.getInt();
+                        byte status = in.get();
+                        Pending<?> p = pending.remove(requestId);
+                        if (p != null) {
+                            p.complete(status, in);
+                        }
+                        in.limit(limit).position(frameEnd);
+                    }
+                    if (in.remaining() >= 4 && 4 + in.getInt(in.position()) > in.capacity()) {
+                        ByteBuffer bigger =
+                                ByteBuffer.allocateDirect(4 + in.getInt(in.position()));
+                        bigger.put(in);
+                        in = bigger;
+                    } else {
+                        in.compact();
+                    }
+                }
+            } catch (IOException e) {
+                fail(e);
+            } catch (RuntimeException e) {
+                // a corrupt frame; without failing, every pending future would hang
+                fail(new IOException("Malformed response frame", e));
+            }
+        }
+
+        void fail(IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // already broken
+            }
+            for (Integer id : pending.keySet()) {
+                Pending<?> p = pending.remove(id);
+                if (p != null) {
+                    p.future().completeExceptionally(failure);
+                }
+            }
+        }
+    }
+}
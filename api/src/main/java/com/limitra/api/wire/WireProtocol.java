@@ -0,0 +1,62 @@
+package com.limitra.api.wire;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Frame layout shared by {@link WireServer} and {@link WireClient}. All integers are big-endian.
+ *
+ * <pre>
+ * request  = length:int32 requestId:int32 op:int8 payload
+ * response = length:int32 requestId:int32 status:int8 payload
+ * key      = keyLength:int16 utf8Bytes
+ *
+ * TRY_ACQUIRE   request: key permits:int32                     response: OK | DENIED
+ * BATCH_ACQUIRE request: count:int16 (key permits:int32)*count response: OK count:int16 bitmap
+ * CACHE_GET     request: key                                   response: OK valueLength:int32 bytes
+ *                                                                        | NOT_FOUND
+ * CACHE_PUT     request: key ttlMillis:int64 valueLength:int32 bytes  response: OK
+ * </pre>
+ *
+ * <p>{@code length} counts the bytes after itself. Request IDs are chosen by the client and echoed
+ * back, so a connection may carry many requests in flight; responses are sent in request order. A
+ * {@code ttlMillis} of 0 stores an eternal entry. Bit {@code i} of the batch bitmap (LSB first) is
+ * set if entry {@code i} was granted.
+ */
+public final class WireProtocol {
+
+    public static final byte OP_TRY_ACQUIRE = 1;
+    public static final byte OP_BATCH_ACQUIRE = 2;
+    public static final byte OP_CACHE_GET = 3;
+    public static final byte OP_CACHE_PUT = 4;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_DENIED = 1;
+    public static final byte STATUS_NOT_FOUND = 2;
+    public static final byte STATUS_ERROR = 3;
+
+    /** Bytes of {@code length}, {@code requestId} and {@code op}/{@code status}. */
+    public static final int HEADER_BYTES = 9;
+
+    public static final int MAX_KEY_BYTES = Short.MAX_VALUE;
+    public static final int DEFAULT_MAX_FRAME_BYTES = (1 << 20) + 1024;
+
+    private WireProtocol() {}
+
+    static byte[] keyBytes(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length == 0 || bytes.length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("key must be 1.." + MAX_KEY_BYTES + " UTF-8 bytes");
+        }
+        return bytes;
+    }
+
+    static void putKey(ByteBuffer buffer, byte[] key) {
+        buffer.putShort((short) key.length);
+        buffer.put(key);
+    }
+
+    static int bitmapBytes(int count) {
+        return (count + 7) >>> 3;
+    }
+}
@@ -0,0 +1,428 @@
+package com.limitra.api.wire;
+
+import static com.limitra.api.wire.WireProtocol.DEFAULT_MAX_FRAME_BYTES;
+import static com.limitra.api.wire.WireProtocol.HEADER_BYTES;
+import static com.limitra.api.wire.WireProtocol.MAX_KEY_BYTES;
+import static com.limitra.api.wire.WireProtocol.OP_BATCH_ACQUIRE;
+import static com.limitra.api.wire.WireProtocol.OP_CACHE_GET;
+import static com.limitra.api.wire.WireProtocol.OP_CACHE_PUT;
+import static com.limitra.api.wire.WireProtocol.OP_TRY_ACQUIRE;
+import static com.limitra.api.wire.WireProtocol.STATUS_DENIED;
+import static com.limitra.api.wire.WireProtocol.STATUS_ERROR;
+import static com.limitra.api.wire.WireProtocol.STATUS_NOT_FOUND;
+import static com.limitra.api.wire.WireProtocol.STATUS_OK;
+import static com.limitra.api.wire.WireProtocol.bitmapBytes;
+
+import com.limitra.cache.SimpleTTLCache;
+import com.limitra.limiter.KeyedRateLimiter;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Serves the {@link WireProtocol} with a small set of non-blocking selector loops.
+ *
+ * <p>The first loop also accepts connections and hands them out round-robin. Each connection is
+ * owned by one loop for its lifetime, so its buffers are never shared between threads. Requests
+ * are decoded straight from a direct read buffer and responses are encoded straight into a direct
+ * write buffer; all responses produced by one read are written with a single {@code write} call.
+ *
+ * <p>Backpressure: once a connection has {@value #HIGH_WATER_BYTES} bytes of unsent responses, the
+ * loop stops decoding its requests and stops reading from its socket until the client catches up.
+ */
+public class WireServer implements AutoCloseable {
+
+    static final int HIGH_WATER_BYTES = 256 * 1024;
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    private final KeyedRateLimiter<String> limiters;
+    private final SimpleTTLCache<String, byte[]> cache;
+    private final int maxFrameBytes;
+    private final ServerSocketChannel serverChannel;
+    private final EventLoop[] loops;
+    private int nextLoop;
+
+    public WireServer(
+            InetSocketAddress address,
+            KeyedRateLimiter<String> limiters,
+            SimpleTTLCache<String, byte[]> cache,
+            int eventLoops)
+            throws IOException {
+        this(address, limiters, cache, eventLoops, DEFAULT_MAX_FRAME_BYTES);
+    }
+
+    public WireServer(
+            InetSocketAddress address,
+            KeyedRateLimiter<String> limiters,
+            SimpleTTLCache<String, byte[]> cache,
+            int eventLoops,
+            int maxFrameBytes)
+            throws IOException {
+        Objects.requireNonNull(address, "address must not be null");
+        this.limiters = Objects.requireNonNull(limiters, "limiters must not be null");
+        this.cache = Objects.requireNonNull(cache, "cache must not be null");
+        if (eventLoops <= 0) {
+            throw new IllegalArgumentException("eventLoops must be greater than 0");
+        }
+        if (maxFrameBytes < HEADER_BYTES) {
+            throw new IllegalArgumentException("maxFrameBytes must be at least " + HEADER_BYTES);
+        }
+        this.maxFrameBytes = maxFrameBytes;
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(address, 1024);
+        this.serverChannel.configureBlocking(false);
+        this.loops = new EventLoop[eventLoops];
+        for (int i = 0; i < eventLoops; i++) {
+            loops[i] = new EventLoop(i);
+        }
+        serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public WireServer start() {
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+        return this;
+    }
+
+    public int port() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        for (EventLoop loop : loops) {
+            loop.running = false;
+            loop.selector.wakeup();
+        }
+        for (EventLoop loop : loops) {
+            try {
+                loop.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // handed over by the acceptor but never registered, possibly after their loop stopped
+        for (EventLoop loop : loops) {
+            SocketChannel channel;
+            while ((channel = loop.incoming.poll()) != null) {
+                closeQuietly(channel);
+            }
+        }
+        try {
+            serverChannel.close();
+        } catch (IOException ignored) {
+            // closing anyway
+        }
+    }
+
+    private final class EventLoop {
+
+        final Selector selector;
+        final Thread thread;
+        final ConcurrentLinkedQueue<SocketChannel> incoming;
+        // UTF-8 key bytes are copied here before decoding; safe because the loop is single-threaded
+        final byte[] keyScratch;
+        volatile boolean running;
+
+        EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.incoming = new ConcurrentLinkedQueue<>();
+            this.keyScratch = new byte[MAX_KEY_BYTES];
+            this.running = true;
+            this.thread = Thread.ofPlatform().name("limitra-wire-" + index).unstarted(this::run);
+        }
+
+        void assign(SocketChannel channel) {
+            incoming.add(channel);
+            selector.wakeup();
+        }
+
+        void run() {
+            while (running) {
+                try {
+                    selector.select();
+                    registerIncoming();
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            ((Connection) key.attachment()).onReady(key);
+                        }
+                    }
+                } catch (IOException e) {
+                    // selector-level failure; keep serving the remaining connections
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection c) {
+                    c.close();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // shutting down
+            }
+        }
+
+        private void accept() throws IOException {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                loops[nextLoop++ % loops.length].assign(channel);
+            }
+        }
+
+        private void registerIncoming() {
+            SocketChannel channel;
+            while ((channel = incoming.poll()) != null) {
+                try {
+                    Connection connection = new Connection(this, channel);
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                } catch (IOException e) {
+                    closeQuietly(channel);
+                }
+            }
+        }
+    }
+
+    private final class Connection {
+
+        final EventLoop loop;
+        final SocketChannel channel;
+        SelectionKey key;
+        // fill mode between events: [0, position) holds received, undecoded bytes
+        ByteBuffer in;
+        // fill mode between events: [0, position) holds encoded, unsent responses
+        ByteBuffer out;
+
+        Connection(EventLoop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+            this.in = ByteBuffer.allocateDirect(INITIAL_BUFFER_BYTES);
+            this.out = ByteBuffer.allocateDirect(INITIAL_BUFFER_BYTES);
+        }
+
+        void onReady(SelectionKey key) {
+            try {
+                if (key.isWritable() && !flush()) {
+                    return;
+                }
+                if (key.isReadable() && channel.read(in) < 0) {
+                    close();
+                    return;
+                }
+                serve();
+            } catch (IOException | RuntimeException e) {
+                close();
+            }
+        }
+
+        /** Decodes and answers buffered requests until none are complete or the socket is full. */
+        private void serve() throws IOException {
+            boolean more;
+            do {
+                more = decodeFrames();
+                if (!channel.isOpen()) {
+                    return;
+                }
+            } while (flush() && more);
+        }
+
+        /** Returns true if it stopped at the high-water mark with complete frames left over. */
+        private boolean decodeFrames() {
+            in.flip();
+            boolean stoppedEarly = false;
+            int needed = 0;
+            while (in.remaining() >= 4) {
+                if (out.position() >= HIGH_WATER_BYTES) {
+                    stoppedEarly = true;
+                    break;
+                }
+                int length = in.getInt(in.position());
+                if (length < HEADER_BYTES - 4 || length > maxFrameBytes) {
+                    close();
+                    return false;
+                }
+                if (in.remaining() < 4 + length) {
+                    needed = 4 + length;
+                    break;
+                }
+                int frameEnd = in.position() + 4 + length;
+                int limit = in.limit();
+                in.position(in.position() + 4).limit(frameEnd);
+                try {
+                    handleFrame();
+                } finally {
+                    in.limit(limit).position(frameEnd);
+                }
+            }
+            in.compact();
+            if (needed > in.capacity()) {
+                in = grow(in, needed);
+            }
+            return stoppedEarly && in.position() > 0;
+        }
+
+        private void handleFrame() {
+            int requestId = in.getInt();
+            byte op = in.get();
+            int mark = out.position();
+            try {
+                switch (op) {
+                    case OP_TRY_ACQUIRE -> tryAcquire(requestId);
+                    case OP_BATCH_ACQUIRE -> batchAcquire(requestId);
+                    case OP_CACHE_GET -> cacheGet(requestId);
+                    case OP_CACHE_PUT -> cachePut(requestId);
+                    default -> header(requestId, STATUS_ERROR, 0);
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                out.position(mark);
+                header(requestId, STATUS_ERROR, 0);
+            }
+        }
+
+        private void tryAcquire(int requestId) {
+            String key = readKey();
+            int permits = readPermits();
+            boolean allowed = limiters.tryAcquire(key, permits);
+            header(requestId, allowed ? STATUS_OK : STATUS_DENIED, 0);
+        }
+
+        private void batchAcquire(int requestId) {
+            int count = in.getShort() & 0xFFFF;
+            // decode every entry first, so a malformed one fails the batch before any is granted
+            String[] keys = new String[count];
+            int[] permits = new int[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = readKey();
+                permits[i] = readPermits();
+            }
+            int bitmapBytes = bitmapBytes(count);
+            header(requestId, STATUS_OK, 2 + bitmapBytes);
+            out.putShort((short) count);
+            int base = out.position();
+            for (int i = 0; i < bitmapBytes; i++) {
+                out.put((byte) 0);
+            }
+            for (int i = 0; i < count; i++) {
+                if (limiters.tryAcquire(keys[i], permits[i])) {
+                    int at = base + (i >>> 3);
+                    out.put(at, (byte) (out.get(at) | (1 << (i & 7))));
+                }
+            }
+        }
+
+        private void cacheGet(int requestId) {
+            Optional<byte[]> value = cache.get(readKey());
+            if (value.isEmpty()) {
+                header(requestId, STATUS_NOT_FOUND, 0);
+                return;
+            }
+            byte[] bytes = value.get();
+            header(requestId, STATUS_OK, 4 + bytes.length);
+            out.putInt(bytes.length);
+            out.put(bytes);
+        }
+
+        private void cachePut(int requestId) {
+            String key = readKey();
+            long ttlMillis = in.getLong();
+            int length = in.getInt();
+            if (length < 0 || length != in.remaining() || ttlMillis < 0) {
+                throw new IllegalArgumentException("malformed CACHE_PUT");
+            }
+            byte[] value = new byte[length];
+            in.get(value);
+            if (ttlMillis == 0) {
+                cache.put(key, value);
+            } else {
+                cache.put(key, value, ttlMillis);
+            }
+            header(requestId, STATUS_OK, 0);
+        }
+
+        private String readKey() {
+            int length = in.getShort() & 0xFFFF;
+            if (length == 0 || length > MAX_KEY_BYTES) {
+                throw new IllegalArgumentException("key must be 1.." + MAX_KEY_BYTES + " bytes");
+            }
+            in.get(loop.keyScratch, 0, length);
+            return new String(loop.keyScratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private int readPermits() {
+            int permits = in.getInt();
+            if (permits <= 0) {
+                throw new IllegalArgumentException("permits must be greater than 0");
+            }
+            return permits;
+        }
+
+        /** Writes a response header and makes room for {@code payloadBytes} more. */
+        private void header(int requestId, byte status, int payloadBytes) {
+            int frameBytes = HEADER_BYTES + payloadBytes;
+            if (out.remaining() < frameBytes) {
+                out = grow(out, out.position() + frameBytes);
+            }
+            out.putInt(frameBytes - 4);
+            out.putInt(requestId);
+            out.put(status);
+        }
+
+        /** Returns true if all was written; otherwise waits for OP_WRITE and stops reading. */
+        private boolean flush() throws IOException {
+            if (out.position() > 0) {
+                out.flip();
+                channel.write(out);
+                out.compact();
+            }
+            boolean drained = out.position() == 0;
+            if (key.isValid()) {
+                key.interestOps(drained ? SelectionKey.OP_READ : SelectionKey.OP_WRITE);
+            }
+            return drained;
+        }
+
+        void close() {
+            key.cancel();
+            closeQuietly(channel);
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // already broken
+        }
+    }
+
+    /** Copies a buffer in fill mode into a larger direct buffer. */
+    static ByteBuffer grow(ByteBuffer buffer, int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(minCapacity, 1) - 1) << 1;
+        ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(capacity, minCapacity));
+        buffer.flip();
+        bigger.put(buffer);
+        return bigger;
+    }
+}
@@ -0,0 +1,153 @@
+package com.limitra.api;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.cache.SimpleTTLCache;
+import com.limitra.limiter.KeyedRateLimiter;
+import com.limitra.time.FakeTimeProvider;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LimitraHttpServerTest {
+
+    private FakeTimeProvider time;
+    private LimitraHttpServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        time = new FakeTimeProvider();
+        server =
+                new LimitraHttpServer(
+                                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                                new KeyedRateLimiter<>(time, 2, 1.0, 100),
+                                new SimpleTTLCache<>(time, 100),
+                                16)
+                        .start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    private HttpResponse<String> send(String method, String path, String body)
+            throws IOException, InterruptedException {
+        HttpRequest request =
+                HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + path))
+                        .method(
+                                method,
+                                body == null
+                                        ? HttpRequest.BodyPublishers.noBody()
+                                        : HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void limit_grantsUpToCapacity_thenReturns429() throws Exception {
+
+        // When Then
+        assertEquals(200, send("POST", "/limit/tenant-a", null).statusCode());
+        assertEquals(200, send("POST", "/limit/tenant-a", null).statusCode());
+
+        HttpResponse<String> denied = send("POST", "/limit/tenant-a", null);
+        assertEquals(429, denied.statusCode());
+        assertEquals("{\"allowed\":false}", denied.body());
+
+        assertEquals(200, send("POST", "/limit/tenant-b?permits=2", null).statusCode());
+        time.advanceSeconds(1);
+        assertEquals(200, send("POST", "/limit/tenant-a", null).statusCode());
+    }
+
+    @Test
+    void limit_badRequests_areRejected() throws Exception {
+
+        assertEquals(400, send("POST", "/limit/a?permits=0", null).statusCode());
+        assertEquals(400, send("POST", "/limit/a?permits=x", null).statusCode());
+        assertEquals(400, send("POST", "/limit/", null).statusCode());
+        assertEquals(405, send("GET", "/limit/a", null).statusCode());
+    }
+
+    @Test
+    void cache_putGetDelete_roundTrip() throws Exception {
+
+        // When
+        assertEquals(404, send("GET", "/cache/k", null).statusCode());
+        assertEquals(204, send("PUT", "/cache/k?ttlMillis=100", "hello").statusCode());
+
+        // Then
+        HttpResponse<String> hit = send("GET", "/cache/k", null);
+        assertEquals(200, hit.statusCode());
+        assertEquals("hello", hit.body());
+
+        time.advanceMillis(101);
+        assertEquals(404, send("GET", "/cache/k", null).statusCode());
+
+        assertEquals(204, send("PUT", "/cache/k", "eternal").statusCode());
+        assertEquals(204, send("DELETE", "/cache/k", null).statusCode());
+        assertEquals(404, send("DELETE", "/cache/k", null).statusCode());
+    }
+
+    @Test
+    void cache_oversizedValue_isRejected() throws Exception {
+
+        assertEquals(413, send("PUT", "/cache/k", "x".repeat(17)).statusCode());
+        assertEquals(404, send("GET", "/cache/k", null).statusCode());
+    }
+
+    @Test
+    void pipelinedRequests_onOneConnection_areAnsweredInOrder() throws Exception {
+
+        // Given
+        String put = "PUT /cache/p HTTP/1.1\r\nHost: x\r\nContent-Length: 2\r\n\r\nok";
+        String get = "GET /cache/p HTTP/1.1\r\nHost: x\r\n\r\n";
+        String limit = "POST /limit/p HTTP/1.1\r\nHost: x\r\nContent-Length: 0\r\n\r\n";
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+            // When
+            OutputStream out = socket.getOutputStream();
+            out.write((put + get + limit).getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            // Then
+            BufferedReader in =
+                    new BufferedReader(
+                            new InputStreamReader(
+                                    socket.getInputStream(), StandardCharsets.US_ASCII));
+            assertEquals("HTTP/1.1 204 No Content", in.readLine());
+            skipHeaders(in);
+            assertEquals("HTTP/1.1 200 OK", in.readLine());
+            int length = skipHeaders(in);
+            char[] body = new char[length];
+            assertEquals(length, in.read(body));
+            assertEquals("ok", new String(body));
+            assertEquals("HTTP/1.1 200 OK", in.readLine());
+        }
+    }
+
+    private static int skipHeaders(BufferedReader in) throws IOException {
+        int contentLength = 0;
+        String line;
+        while (!(line = in.readLine()).isEmpty()) {
+            if (line.toLowerCase().startsWith("content-length:")) {
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        return contentLength;
+    }
+}
@@ -0,0 +1,168 @@
+package com.limitra.api.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.api.LimitraHttpServer;
+import com.limitra.cache.SimpleTTLCache;
+import com.limitra.limiter.KeyedRateLimiter;
+import com.limitra.time.FakeTimeProvider;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import org.junit.jupiter.api.Test;
+
+class MetricsRegistryTest {
+
+    private final FakeTimeProvider time = new FakeTimeProvider();
+
+    @Test
+    void scrape_rendersCacheAndLimiterFamilies_inOpenMetricsText() {
+
+        // Given
+        SimpleTTLCache<String, String> cache = new SimpleTTLCache<>(time, 1);
+        cache.put("a", "A");
+        cache.get("a");
+        cache.get("missing");
+        cache.put("b", "B"); // evicts "a" for capacity
+        KeyedRateLimiter<String> limiter = new KeyedRateLimiter<>(time, 1, 1.0, 100);
+        limiter.tryAcquire("k");
+        limiter.tryAcquire("k");
+        MetricsRegistry registry =
+                new MetricsRegistry()
+                        .registerCache("sessions", cache)
+                        .registerLimiter("api", limiter);
+
+        // When
+        String text = registry.scrape();
+
+        // Then
+        assertTrue(text.contains("# TYPE limitra_cache_hits counter\n"));
+        assertTrue(text.contains("limitra_cache_hits_total{cache=\"sessions\"} 1\n"));
+        assertTrue(text.contains("limitra_cache_misses_total{cache=\"sessions\"} 1\n"));
+        assertTrue(
+                text.contains(
+                        "limitra_cache_evictions_total"
+                                + "{cache=\"sessions\",cause=\"capacity\"} 1\n"));
+        assertTrue(
+                text.contains(
+                        "limitra_limiter_requests_total"
+                                + "{limiter=\"api\",result=\"denied\"} 1\n"));
+        assertTrue(text.contains("limitra_limiter_keys{limiter=\"api\"} 1\n"));
+        // the one bucket is empty
+        assertTrue(
+                text.contains(
+                        "limitra_limiter_bucket_fill_ratio_bucket"
+                                + "{limiter=\"api\",le=\"0.0\"} 1\n"));
+        assertTrue(text.endsWith("# EOF\n"));
+    }
+
+    @Test
+    void histogram_isCumulative_withInfBucket_countAndSum() {
+
+        // Given
+        Histogram latency = new Histogram(0.01, 0.1);
+        latency.observe(0.005);
+        latency.observe(0.01); // bounds are inclusive
+        latency.observe(0.05);
+        latency.observe(3);
+        MetricsRegistry registry =
+                new MetricsRegistry()
+                        .registerHistogram("limitra_test_seconds", "Test latency.", latency);
+
+        // When
+        String text = registry.scrape();
+
+        // Then
+        assertTrue(text.contains("# TYPE limitra_test_seconds histogram\n"));
+        assertTrue(text.contains("limitra_test_seconds_bucket{le=\"0.01\"} 2\n"));
+        assertTrue(text.contains("limitra_test_seconds_bucket{le=\"0.1\"} 3\n"));
+        assertTrue(text.contains("limitra_test_seconds_bucket{le=\"+Inf\"} 4\n"));
+        assertTrue(text.contains("limitra_test_seconds_count 4\n"));
+        assertTrue(text.contains("limitra_test_seconds_sum 3.065\n"));
+    }
+
+    @Test
+    void labelValues_areEscaped_andNamesMustBeUnique() {
+
+        // Given
+        MetricsRegistry registry =
+                new MetricsRegistry().registerCache("a\"b\\c", new SimpleTTLCache<>(time));
+
+        // When Then
+        assertTrue(registry.scrape().contains("{cache=\"a\\\"b\\\\c\"}"));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> registry.registerCache("a\"b\\c", new SimpleTTLCache<>(time)));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> registry.registerHistogram("bad name", "x", new Histogram(1)));
+    }
+
+    @Test
+    void scrapeOfManyKeys_summarizesThemInOneHistogram() {
+
+        // Given: 10k keys, half of them drained
+        KeyedRateLimiter<Integer> limiter = new KeyedRateLimiter<>(time, 2, 1.0, 20_000);
+        for (int key = 0; key < 10_000; key++) {
+            limiter.tryAcquire(key, key % 2 == 0 ? 2 : 1);
+        }
+        MetricsRegistry registry = new MetricsRegistry().registerLimiter("api", limiter);
+
+        // When: scraping twice reuses the tally and the buffers
+        String first = registry.scrape();
+        String second = registry.scrape();
+
+        // Then
+        assertEquals(first, second);
+        String prefix = "limitra_limiter_bucket_fill_ratio_bucket{limiter=\"api\",le=";
+        assertTrue(first.contains(prefix + "\"0.0\"} 5000\n"));
+        assertTrue(first.contains(prefix + "\"0.5\"} 10000\n"));
+        assertTrue(
+                first.contains("limitra_limiter_bucket_fill_ratio_count{limiter=\"api\"} 10000"));
+        assertTrue(first.length() < 4096);
+    }
+
+    @Test
+    void handler_servesScrapesOverHttp() throws Exception {
+
+        // Given
+        SimpleTTLCache<String, byte[]> cache = new SimpleTTLCache<>(time, 10);
+        KeyedRateLimiter<String> limiter = new KeyedRateLimiter<>(time, 5, 1.0, 10);
+        MetricsRegistry registry =
+                new MetricsRegistry()
+                        .registerCache("sidecar", cache)
+                        .registerLimiter("sidecar", limiter);
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (LimitraHttpServer server = new LimitraHttpServer(address, limiter, cache)) {
+            server.addContext("/metrics", registry.handler());
+            server.start();
+            HttpClient client = HttpClient.newHttpClient();
+            URI base = URI.create("http://127.0.0.1:" + server.port());
+            client.send(
+                    HttpRequest.newBuilder(base.resolve("/limit/k"))
+                            .POST(HttpRequest.BodyPublishers.noBody())
+                            .build(),
+                    HttpResponse.BodyHandlers.discarding());
+
+            // When
+            HttpResponse<String> response =
+                    client.send(
+                            HttpRequest.newBuilder(base.resolve("/metrics")).build(),
+                            HttpResponse.BodyHandlers.ofString());
+
+            // Then
+            assertEquals(200, response.statusCode());
+            assertEquals(
+                    MetricsRegistry.CONTENT_TYPE,
+                    response.headers().firstValue("Content-Type").orElseThrow());
+            assertTrue(
+                    response.body()
+                            .contains(
+                                    "limitra_limiter_requests_total"
+                                            + "{limiter=\"sidecar\",result=\"granted\"} 1\n"));
+        }
+    }
+}
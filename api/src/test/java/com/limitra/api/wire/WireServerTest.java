@@ -0,0 +1,282 @@
+package com.limitra.api.wire;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.cache.SimpleTTLCache;
+import com.limitra.limiter.KeyedRateLimiter;
+import com.limitra.time.FakeTimeProvider;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class WireServerTest {
+
+    private FakeTimeProvider time;
+    private WireServer server;
+    private WireClient client;
+
+    @BeforeEach
+    void start() throws IOException {
+        time = new FakeTimeProvider();
+        server =
+                new WireServer(
+                                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                                new KeyedRateLimiter<>(time, 2, 1.0, 100),
+                                new SimpleTTLCache<>(time, 1_000),
+                                2,
+                                4096)
+                        .start();
+        client = new WireClient(address(), 2);
+    }
+
+    @AfterEach
+    void stop() {
+        client.close();
+        server.close();
+    }
+
+    private InetSocketAddress address() {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), server.port());
+    }
+
+    @Test
+    void tryAcquire_grantsUpToCapacity_thenDenies() throws Exception {
+
+        // When Then
+        assertTrue(client.tryAcquire("tenant-a", 1).get());
+        assertTrue(client.tryAcquire("tenant-a", 1).get());
+        assertFalse(client.tryAcquire("tenant-a", 1).get());
+        assertTrue(client.tryAcquire("tenant-b", 2).get());
+
+        time.advanceSeconds(1);
+        assertTrue(client.tryAcquire("tenant-a", 1).get());
+    }
+
+    @Test
+    void tryAcquireAll_returnsPerKeyResults() throws Exception {
+
+        // Given
+        assertTrue(client.tryAcquire("hot", 2).get());
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            keys.add(i == 3 || i == 8 ? "hot" : "cold-" + i);
+        }
+
+        // When
+        boolean[] granted = client.tryAcquireAll(keys, 1).get();
+
+        // Then
+        assertEquals(10, granted.length);
+        for (int i = 0; i < granted.length; i++) {
+            assertEquals(i != 3 && i != 8, granted[i], "key " + i);
+        }
+    }
+
+    @Test
+    void cache_putGet_honoursTtl() throws Exception {
+
+        // When
+        assertTrue(client.get("k").get().isEmpty());
+        client.put("k", "hello".getBytes(StandardCharsets.UTF_8), 100).get();
+        client.put("eternal", new byte[0], 0).get();
+
+        // Then
+        byte[] hit = client.get("k").get().orElseThrow();
+        assertEquals("hello", new String(hit, StandardCharsets.UTF_8));
+        time.advanceMillis(101);
+        assertTrue(client.get("k").get().isEmpty());
+        assertEquals(0, client.get("eternal").get().orElseThrow().length);
+    }
+
+    @Test
+    void pipelinedRequests_areMatchedToTheirResponses() throws Exception {
+
+        // Given
+        int n = 1_000;
+        List<CompletableFuture<Void>> puts = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            puts.add(client.put("k" + i, ("v" + i).getBytes(StandardCharsets.UTF_8), 0));
+        }
+        CompletableFuture.allOf(puts.toArray(CompletableFuture[]::new)).get();
+
+        // When
+        List<CompletableFuture<Optional<byte[]>>> gets = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            gets.add(client.get("k" + i));
+        }
+
+        // Then
+        for (int i = 0; i < n; i++) {
+            byte[] value = gets.get(i).get().orElseThrow();
+            assertEquals("v" + i, new String(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void malformedRequest_getsErrorStatus_andConnectionStaysUsable() throws Exception {
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            // When: unknown op, then a TRY_ACQUIRE with zero permits, then a valid one
+            out.writeInt(5);
+            out.writeInt(7);
+            out.writeByte(99);
+            writeTryAcquire(out, 8, "x", 0);
+            writeTryAcquire(out, 9, "x", 1);
+            out.flush();
+
+            // Then
+            assertResponse(in, 7, WireProtocol.STATUS_ERROR);
+            assertResponse(in, 8, WireProtocol.STATUS_ERROR);
+            assertResponse(in, 9, WireProtocol.STATUS_OK);
+        }
+    }
+
+    @Test
+    void keyLongerThanTheLimit_getsErrorStatus_andConnectionStaysUsable() throws Exception {
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            // When: a key length above MAX_KEY_BYTES, then a valid request
+            out.writeInt(WireProtocol.HEADER_BYTES - 4 + 2 + 4);
+            out.writeInt(7);
+            out.writeByte(WireProtocol.OP_TRY_ACQUIRE);
+            out.writeShort(WireProtocol.MAX_KEY_BYTES + 1);
+            out.writeInt(1);
+            writeTryAcquire(out, 8, "x", 1);
+            out.flush();
+
+            // Then
+            assertResponse(in, 7, WireProtocol.STATUS_ERROR);
+            assertResponse(in, 8, WireProtocol.STATUS_OK);
+        }
+    }
+
+    @Test
+    void malformedBatch_grantsNothing() throws Exception {
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            // When: the second entry asks for zero permits
+            out.writeInt(WireProtocol.HEADER_BYTES - 4 + 2 + 2 * (2 + 1 + 4));
+            out.writeInt(7);
+            out.writeByte(WireProtocol.OP_BATCH_ACQUIRE);
+            out.writeShort(2);
+            out.writeShort(1);
+            out.write('a');
+            out.writeInt(2);
+            out.writeShort(1);
+            out.write('b');
+            out.writeInt(0);
+            out.flush();
+
+            // Then: "a" still has its whole capacity of 2
+            assertResponse(in, 7, WireProtocol.STATUS_ERROR);
+        }
+        assertTrue(client.tryAcquire("a", 2).get());
+    }
+
+    @Test
+    void corruptResponse_failsPendingFutures_insteadOfHanging() throws Exception {
+
+        // Given: a server that answers with a negative frame length
+        try (ServerSocket fake = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Thread.startVirtualThread(
+                    () -> {
+                        try (Socket socket = fake.accept()) {
+                            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                            socket.getInputStream().read();
+                            out.writeInt(-1);
+                            out.writeInt(1);
+                            out.writeByte(WireProtocol.STATUS_OK);
+                            out.flush();
+                            socket.getInputStream().read();
+                        } catch (IOException ignored) {
+                            // the client hung up
+                        }
+                    });
+
+            InetSocketAddress fakeAddress =
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), fake.getLocalPort());
+            try (WireClient corrupt = new WireClient(fakeAddress, 1)) {
+
+                // When
+                CompletableFuture<Boolean> result = corrupt.tryAcquire("k", 1);
+
+                // Then
+                ExecutionException e =
+                        assertThrows(
+                                ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IOException.class, e.getCause());
+            }
+        }
+    }
+
+    @Test
+    void oversizedFrame_closesTheConnection() throws Exception {
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+
+            // When
+            out.writeInt(4097);
+            out.flush();
+
+            // Then
+            assertEquals(-1, socket.getInputStream().read());
+        }
+        assertTrue(client.tryAcquire("still-serving", 1).get());
+    }
+
+    @Test
+    void brokenConnection_failsOutstandingFutures() throws Exception {
+
+        // Given
+        server.close();
+
+        // When
+        CompletableFuture<Boolean> result = client.tryAcquire("k", 1);
+
+        // Then
+        ExecutionException e = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(IOException.class, e.getCause());
+    }
+
+    private static void writeTryAcquire(
+            DataOutputStream out, int requestId, String key, int permits) throws IOException {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(WireProtocol.HEADER_BYTES - 4 + 2 + k.length + 4);
+        out.writeInt(requestId);
+        out.writeByte(WireProtocol.OP_TRY_ACQUIRE);
+        out.writeShort(k.length);
+        out.write(k);
+        out.writeInt(permits);
+    }
+
+    private static void assertResponse(DataInputStream in, int requestId, byte status)
+            throws IOException {
+        assertEquals(5, in.readInt());
+        assertEquals(requestId, in.readInt());
+        assertEquals(status, in.readByte());
+    }
+}
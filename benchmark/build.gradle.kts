@@ -0,0 +1,28 @@
+plugins { }
+
+dependencies {
+    implementation(project(":common"))
+    implementation(project(":cache"))
+    implementation(project(":limiter"))
+    implementation(project(":api"))
+
+    implementation("org.openjdk.jmh:jmh-core:1.37")
+    annotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+// ./gradlew :benchmark:jmh -Pjmh.include=BulkOperations
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs JMH benchmarks (filter with -Pjmh.include=<regex>)"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args(project.findProperty("jmh.include")?.toString() ?: ".*")
+}
+
+// ./gradlew :benchmark:traceReplay --args="access.log 10000:60000:100:50 50000:60000:100:50"
+tasks.register<JavaExec>("traceReplay") {
+    group = "benchmark"
+    description = "Replays an access log against cache and limiter configurations on virtual time"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.limitra.benchmark.TraceReplay")
+}
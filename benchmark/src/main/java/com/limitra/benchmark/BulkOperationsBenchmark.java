@@ -0,0 +1,110 @@
+package com.limitra.benchmark;
+
+import com.limitra.cache.SimpleTTLCache;
+import com.limitra.time.SystemTimeProvider;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares loading/reading/removing a batch of keys one call at a time against the bulk API.
+ *
+ * <p>The cache capacity is half the batch size so every iteration also pays for capacity eviction.
+ * Bulk puts and removes save the per-key clock reads, writer calls and eviction passes, not LRU
+ * locking: each key's map entry and LRU node still change together under that key's lock.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkOperationsBenchmark {
+
+    @Param({"100", "10000"})
+    int batchSize;
+
+    SimpleTTLCache<String, Integer> cache;
+    Map<String, Integer> entries;
+    List<String> keys;
+
+    @Setup(Level.Trial)
+    public void prepareBatch() {
+        entries = new HashMap<>();
+        keys = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            String key = "key-" + i;
+            entries.put(key, i);
+            keys.add(key);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void freshCache() {
+        cache = new SimpleTTLCache<>(new SystemTimeProvider(), Math.max(1, batchSize / 2));
+    }
+
+    @Benchmark
+    public SimpleTTLCache<String, Integer> putLoop() {
+        for (Map.Entry<String, Integer> e : entries.entrySet()) {
+            cache.put(e.getKey(), e.getValue(), 60_000);
+        }
+        return cache;
+    }
+
+    @Benchmark
+    public SimpleTTLCache<String, Integer> putAll() {
+        cache.putAll(entries, 60_000);
+        return cache;
+    }
+
+    @Benchmark
+    public int putThenGetLoop() {
+        cache.putAll(entries, 60_000);
+        int found = 0;
+        for (String key : keys) {
+            if (cache.get(key).isPresent()) {
+                ++found;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int putThenGetAll() {
+        cache.putAll(entries, 60_000);
+        return cache.getAll(keys).size();
+    }
+
+    @Benchmark
+    public int putThenRemoveLoop() {
+        cache.putAll(entries, 60_000);
+        int removed = 0;
+        for (String key : keys) {
+            if (cache.remove(key)) {
+                ++removed;
+            }
+        }
+        return removed;
+    }
+
+    @Benchmark
+    public int putThenRemoveAll() {
+        cache.putAll(entries, 60_000);
+        return cache.removeAll(keys);
+    }
+}
@@ -0,0 +1,136 @@
+package com.limitra.benchmark;
+
+import com.limitra.api.LimitraHttpServer;
+import com.limitra.cache.SimpleTTLCache;
+import com.limitra.limiter.KeyedRateLimiter;
+import com.limitra.time.SystemTimeProvider;
+import com.limitra.time.TimeProvider;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP load test against an in-process {@link LimitraHttpServer} on loopback.
+ *
+ * <p>Each connection runs on a virtual thread, keeps its socket alive and keeps {@code depth}
+ * pipelined requests in flight. Requests alternate between {@code POST /limit/{key}} and {@code GET
+ * /cache/{key}} over a small key space.
+ *
+ * <p>Usage: {@code HttpLoadGenerator [connections] [depth] [seconds]}
+ */
+public class HttpLoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        LimitraHttpServer.useNoDelayByDefault();
+
+        TimeProvider time = new SystemTimeProvider();
+        SimpleTTLCache<String, byte[]> cache = new SimpleTTLCache<>(time, 10_000);
+        for (int i = 0; i < 1_000; i++) {
+            cache.put("k" + i, ("value-" + i).getBytes(StandardCharsets.US_ASCII));
+        }
+
+        try (LimitraHttpServer server =
+                new LimitraHttpServer(
+                                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                                new KeyedRateLimiter<>(time, 1_000_000, 1_000_000, 100_000),
+                                cache)
+                        .start()) {
+            LongAdder completed = new LongAdder();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+            try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int c = 0; c < connections; c++) {
+                    int id = c;
+                    int port = server.port();
+                    futures.add(
+                            workers.submit(
+                                    () -> {
+                                        runConnection(port, id, depth, deadline, completed);
+                                        return null;
+                                    }));
+                }
+                for (Future<?> f : futures) {
+                    f.get();
+                }
+            }
+
+            double rps = completed.sum() / (double) seconds;
+            System.out.printf(
+                    "connections=%d depth=%d duration=%ds requests=%d throughput=%.0f req/s%n",
+                    connections, depth, seconds, completed.sum(), rps);
+        }
+    }
+
+    private static void runConnection(
+            int port, int id, int depth, long deadline, LongAdder completed) throws IOException {
+        byte[][] requests = new byte[64][];
+        for (int i = 0; i < requests.length; i++) {
+            String key = "k" + ((id * 31 + i) % 1_000);
+            String request =
+                    (i % 2 == 0)
+                            ? "POST /limit/" + key + " HTTP/1.1\r\nContent-Length: 0\r\n"
+                            : "GET /cache/" + key + " HTTP/1.1\r\n";
+            request += "Host: localhost\r\n\r\n";
+            requests[i] = request.getBytes(StandardCharsets.US_ASCII);
+        }
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+            int sent = 0;
+            int inFlight = 0;
+            while (System.nanoTime() < deadline || inFlight > 0) {
+                while (inFlight < depth && System.nanoTime() < deadline) {
+                    out.write(requests[sent++ % requests.length]);
+                    ++inFlight;
+                }
+                out.flush();
+                readResponse(in);
+                --inFlight;
+                completed.increment();
+            }
+        }
+    }
+
+    /** Reads one response: status line, headers and a Content-Length framed body. */
+    private static void readResponse(InputStream in) throws IOException {
+        int contentLength = 0;
+        StringBuilder line = new StringBuilder();
+        while (true) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Connection closed by server");
+            }
+            if (b == '\n') {
+                if (line.length() <= 1) {
+                    break; // blank line ends the headers
+                }
+                String header = line.toString().toLowerCase();
+                if (header.startsWith("content-length:")) {
+                    contentLength = Integer.parseInt(header.substring(15).trim());
+                }
+                line.setLength(0);
+            } else {
+                line.append((char) b);
+            }
+        }
+        in.skipNBytes(contentLength);
+    }
+}
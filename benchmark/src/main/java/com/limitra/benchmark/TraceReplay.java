@@ -0,0 +1,355 @@
+package com.limitra.benchmark;
+
+import com.limitra.cache.SimpleTTLCache;
+import com.limitra.limiter.KeyedRateLimiter;
+import com.limitra.metrics.CacheMetrics;
+import com.limitra.time.FakeTimeProvider;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a production access log against many cache and limiter configurations on virtual time,
+ * to compare capacity plans offline: a day of traffic takes as long as it takes to parse.
+ *
+ * <p>The trace has one record per line, {@code <epochMillis> <op> <key>}, with {@code op} one of
+ * {@code G} (cache read; a miss is filled, as cache-aside code would), {@code P} (cache write) or
+ * {@code A} (acquire one permit for the key). Blank lines and lines starting with {@code #} are
+ * skipped, and records slightly out of order do not move the clock back.
+ *
+ * <p>The file is memory-mapped in windows of up to 1 GiB and parsed in place: timestamps are
+ * decoded from the bytes and keys are reduced to a 64-bit hash, so the trace is never loaded into
+ * the heap and parsing allocates no strings. Each configuration replays the whole trace on its
+ * own {@link FakeTimeProvider}, as one task of a {@link ForkJoinPool}; the mapped pages are shared
+ * through the page cache, so parallel replays do not multiply the I/O.
+ *
+ * <p>Memory is reported as the peak number of cache entries and limiter keys, sampled every 64Ki
+ * records, and as the bytes the replay allocated, from the replaying thread's allocation counter.
+ * Retained heap per configuration cannot be told apart while configurations run side by side.
+ *
+ * <p>Usage: {@code TraceReplay <trace> <maxEntries:ttlMillis:capacity:refillPerSecond>...}, with
+ * {@code ttlMillis} 0 for entries that never expire; or {@code TraceReplay --generate <trace>
+ * <records> <keys>} to write a skewed synthetic day to try it on.
+ */
+public class TraceReplay {
+
+    private static final long WINDOW_BYTES = 1L << 30;
+    private static final int SAMPLE_MASK = (1 << 16) - 1;
+    private static final int MAX_LIMITER_KEYS = 1 << 20;
+
+    /** One capacity plan to replay. */
+    record Config(int maxEntries, long ttlMillis, long capacity, double refillPerSecond) {
+
+        static Config parse(String spec) {
+            String[] parts = spec.split(":");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException(
+                        "Expected maxEntries:ttlMillis:capacity:refillPerSecond, got " + spec);
+            }
+            return new Config(
+                    Integer.parseInt(parts[0]),
+                    Long.parseLong(parts[1]),
+                    Long.parseLong(parts[2]),
+                    Double.parseDouble(parts[3]));
+        }
+
+        @Override
+        public String toString() {
+            return maxEntries + ":" + ttlMillis + ":" + capacity + ":" + refillPerSecond;
+        }
+    }
+
+    record Result(
+            Config config,
+            long records,
+            long tracedMillis,
+            CacheMetrics cache,
+            long granted,
+            long denied,
+            long peakEntries,
+            long peakKeys,
+            long allocatedBytes,
+            long elapsedNanos) {
+
+        double hitRate() {
+            long lookups = cache.hits() + cache.misses();
+            return lookups == 0 ? 0 : (double) cache.hits() / lookups;
+        }
+
+        double denialRate() {
+            long acquires = granted + denied;
+            return acquires == 0 ? 0 : (double) denied / acquires;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 4 && args[0].equals("--generate")) {
+            generate(Path.of(args[1]), Long.parseLong(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+        if (args.length < 2) {
+            System.err.println(
+                    "Usage: TraceReplay <trace> <maxEntries:ttlMillis:capacity:refillPerSecond>..."
+                            + "\n       TraceReplay --generate <trace> <records> <keys>");
+            System.exit(2);
+        }
+        List<Config> configs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            configs.add(Config.parse(args[i]));
+        }
+
+        List<Result> results = replayAll(Path.of(args[0]), configs);
+        System.out.printf(
+                "%-28s %12s %8s %10s %10s %8s %10s %10s %10s %8s%n",
+                "config",
+                "records",
+                "hitRate",
+                "ttlEvict",
+                "capEvict",
+                "denied",
+                "peakEntr",
+                "peakKeys",
+                "allocMB",
+                "seconds");
+        for (Result r : results) {
+            System.out.printf(
+                    "%-28s %12d %8.4f %10d %10d %8.4f %10d %10d %10.1f %8.2f%n",
+                    r.config(),
+                    r.records(),
+                    r.hitRate(),
+                    r.cache().evictedByTtl(),
+                    r.cache().evictedByCapacity(),
+                    r.denialRate(),
+                    r.peakEntries(),
+                    r.peakKeys(),
+                    r.allocatedBytes() / (1024.0 * 1024),
+                    r.elapsedNanos() / 1e9);
+        }
+    }
+
+    /** Replays {@code trace} once per configuration, in parallel; results in input order. */
+    static List<Result> replayAll(Path trace, List<Config> configs)
+            throws IOException, InterruptedException {
+        List<Callable<Result>> tasks = new ArrayList<>(configs.size());
+        for (Config config : configs) {
+            tasks.add(() -> replay(trace, config));
+        }
+        ForkJoinPool pool = new ForkJoinPool(Math.min(configs.size(), cpus()));
+        try {
+            List<Result> results = new ArrayList<>(configs.size());
+            for (Future<Result> future : pool.invokeAll(tasks)) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException io) {
+                        throw io;
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static int cpus() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    static Result replay(Path trace, Config config) throws IOException {
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        Replayer replayer = new Replayer(config);
+        try (FileChannel channel = FileChannel.open(trace, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long length = Math.min(WINDOW_BYTES, size - position);
+                MappedByteBuffer window =
+                        channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = (int) length;
+                if (position + length < size) {
+                    // stop at the last full line; the rest starts the next window
+                    while (end > 0 && window.get(end - 1) != '\n') {
+                        --end;
+                    }
+                    if (end == 0) {
+                        throw new IOException("Line longer than a window at byte " + position);
+                    }
+                }
+                replayer.parse(window, end, position);
+                position += end;
+            }
+        }
+        return replayer.result(System.nanoTime() - start, allocatedBytes() - allocatedBefore);
+    }
+
+    /** Bytes allocated by the calling thread so far, or 0 if the JVM does not count them. */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean()
+                instanceof com.sun.management.ThreadMXBean threads) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    /** Drives one configuration's cache and limiter from parsed records. */
+    private static final class Replayer {
+
+        private final Config config;
+        private final FakeTimeProvider time;
+        private final SimpleTTLCache<Long, Boolean> cache;
+        private final KeyedRateLimiter<Long> limiter;
+        private long records;
+        private long firstMillis = Long.MIN_VALUE;
+        private long lastMillis;
+        private long peakEntries;
+        private long peakKeys;
+
+        Replayer(Config config) {
+            this.config = config;
+            this.time = new FakeTimeProvider();
+            this.cache = new SimpleTTLCache<>(time, config.maxEntries());
+            this.limiter =
+                    new KeyedRateLimiter<>(
+                            time, config.capacity(), config.refillPerSecond(), MAX_LIMITER_KEYS);
+        }
+
+        void parse(MappedByteBuffer window, int end, long offset) throws IOException {
+            int i = 0;
+            while (i < end) {
+                int lineStart = i;
+                byte b = window.get(i);
+                if (b == '#' || b == '\n' || b == '\r') {
+                    while (i < end && window.get(i) != '\n') {
+                        ++i;
+                    }
+                    ++i;
+                    continue;
+                }
+                long millis = 0;
+                while (i < end && (b = window.get(i)) >= '0' && b <= '9') {
+                    millis = millis * 10 + (b - '0');
+                    ++i;
+                }
+                if (i == lineStart) {
+                    throw new IOException("Malformed record at byte " + (offset + lineStart));
+                }
+                i = skipSpaces(window, i, end);
+                byte op = i < end ? window.get(i++) : 0;
+                i = skipSpaces(window, i, end);
+                // FNV-1a over the key bytes
+                long hash = 0xcbf29ce484222325L;
+                int keyStart = i;
+                while (i < end && (b = window.get(i)) != '\n' && b != '\r') {
+                    hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+                    ++i;
+                }
+                if (i == keyStart) {
+                    throw new IOException("Malformed record at byte " + (offset + lineStart));
+                }
+                while (i < end && window.get(i) != '\n') {
+                    ++i;
+                }
+                ++i;
+                apply(millis, op, hash, offset + lineStart);
+            }
+        }
+
+        private static int skipSpaces(MappedByteBuffer window, int i, int end) {
+            while (i < end && (window.get(i) == ' ' || window.get(i) == '\t')) {
+                ++i;
+            }
+            return i;
+        }
+
+        private void apply(long millis, byte op, long keyHash, long at) throws IOException {
+            if (firstMillis == Long.MIN_VALUE) {
+                firstMillis = millis;
+                lastMillis = millis;
+            } else if (millis > lastMillis) {
+                time.advanceMillis(millis - lastMillis);
+                lastMillis = millis;
+            }
+            Long key = keyHash;
+            switch (op) {
+                case 'G' -> {
+                    if (cache.get(key).isEmpty()) {
+                        put(key);
+                    }
+                }
+                case 'P' -> put(key);
+                case 'A' -> limiter.tryAcquire(key);
+                default -> throw new IOException("Unknown op '" + (char) op + "' at byte " + at);
+            }
+            if ((++records & SAMPLE_MASK) == 0) {
+                peakEntries = Math.max(peakEntries, cache.size());
+                peakKeys = Math.max(peakKeys, limiter.size());
+            }
+        }
+
+        private void put(Long key) {
+            if (config.ttlMillis() > 0) {
+                cache.put(key, Boolean.TRUE, config.ttlMillis());
+            } else {
+                cache.put(key, Boolean.TRUE);
+            }
+        }
+
+        Result result(long elapsedNanos, long allocatedBytes) {
+            peakEntries = Math.max(peakEntries, cache.size());
+            peakKeys = Math.max(peakKeys, limiter.size());
+            return new Result(
+                    config,
+                    records,
+                    records == 0 ? 0 : lastMillis - firstMillis,
+                    cache.metricsSnapshot(),
+                    limiter.grantedRequests(),
+                    limiter.deniedRequests(),
+                    peakEntries,
+                    peakKeys,
+                    allocatedBytes,
+                    elapsedNanos);
+        }
+    }
+
+    /**
+     * Writes {@code records} records spread evenly over one day, 70% reads, 10% writes and 20%
+     * acquires, over {@code keys} keys with a heavy head (key rank drawn as {@code keys * u^3}).
+     */
+    static void generate(Path trace, long records, int keys) throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        long dayMillis = TimeUnit.DAYS.toMillis(1);
+        long start = 1_700_000_000_000L;
+        try (BufferedWriter out = Files.newBufferedWriter(trace, StandardCharsets.US_ASCII)) {
+            out.write("# synthetic trace: " + records + " records, " + keys + " keys\n");
+            for (long i = 0; i < records; i++) {
+                double u = random.nextDouble();
+                int key = (int) (keys * u * u * u);
+                int mix = random.nextInt(10);
+                char op = mix < 7 ? 'G' : mix < 8 ? 'P' : 'A';
+                out.write(Long.toString(start + i * dayMillis / records));
+                out.write(' ');
+                out.write(op);
+                out.write(" user:");
+                out.write(Integer.toString(key));
+                out.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.limitra.cache;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A set of keys that answers "definitely not present" or "maybe present", in a fixed number of
+ * bits. Used by {@link SimpleTTLCache} to turn away lookups for keys that do not exist at all
+ * before they reach the map or the backing store.
+ *
+ * <p>Adds and queries are lock-free and safe to run concurrently. Keys cannot be removed, so a
+ * filter over a changing key set is rebuilt from time to time rather than kept forever. Bit
+ * positions come from {@code hashCode()}, so keys with equal hash codes are indistinguishable.
+ *
+ * @param <K> the type of keys
+ */
+public final class BloomFilter<K> {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    private BloomFilter(long bits, int hashes) {
+        this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+        this.bits = bits;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Sizes the filter for {@code expectedKeys} keys at the given false-positive rate, e.g. 10
+     * million keys at 1% take about 12 MB.
+     */
+    public static <K> BloomFilter<K> create(long expectedKeys, double falsePositiveRate) {
+        if (expectedKeys <= 0) {
+            throw new IllegalArgumentException("expectedKeys must be greater than 0");
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+        }
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (ln2 * ln2));
+        if (bits > 64L * Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("filter would exceed 2^31 words");
+        }
+        bits = Math.max(64, bits);
+        int hashes = (int) Math.max(1, Math.round((double) bits / expectedKeys * ln2));
+        return new BloomFilter<>(bits, hashes);
+    }
+
+    public void add(K key) {
+        long hash = mix(Objects.requireNonNull(key, "key must not be null").hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            // most adds of a known key find their bits set already and skip the write
+            if ((words.get(word) & mask) == 0) {
+                words.getAndAccumulate(word, mask, (current, m) -> current | m);
+            }
+        }
+    }
+
+    /** False if the key was never added; true if it probably was. */
+    public boolean mightContain(K key) {
+        long hash = mix(Objects.requireNonNull(key, "key must not be null").hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitSize() {
+        return bits;
+    }
+
+    public int hashFunctions() {
+        return hashes;
+    }
+
+    /** Spreads a 32-bit hash code over 64 bits (the MurmurHash3 finalizer). */
+    private static long mix(int hashCode) {
+        long h = hashCode;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -1,5 +1,7 @@
 package com.limitra.cache;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -55,6 +57,44 @@ public interface Cache<K, V> {
      */
     Optional<V> get(K key);
 
+    /**
+     * Stores all entries as eternal entries. Equivalent to calling {@link #put(Object, Object)} for
+     * each entry, but implementations may amortize locking and eviction across the batch.
+     *
+     * @param entries entries to store
+     * @throws NullPointerException for null map, keys or values; nothing is stored in that case
+     */
+    void putAll(Map<? extends K, ? extends V> entries);
+
+    /**
+     * Stores all entries with the same time-to-live, measured from a single clock read.
+     *
+     * @param entries entries to store
+     * @param ttlMillis time to expire of the entries, must be > 0
+     * @throws NullPointerException for null map, keys or values; nothing is stored in that case
+     * @throws IllegalArgumentException if ttlMillis <= 0
+     */
+    void putAll(Map<? extends K, ? extends V> entries, long ttlMillis);
+
+    /**
+     * Returns the present, non-expired values for the given keys. Absent or expired keys are
+     * omitted from the result. Hit/miss metrics are updated as if {@link #get} was called per key.
+     *
+     * @param keys of the entries
+     * @return a map of the keys that were found to their values
+     * @throws NullPointerException for null collection or keys
+     */
+    Map<K, V> getAll(Collection<? extends K> keys);
+
+    /**
+     * Removes all given keys.
+     *
+     * @param keys of the entries
+     * @return the number of entries that were removed
+     * @throws NullPointerException for null collection or keys
+     */
+    int removeAll(Collection<? extends K> keys);
+
     /**
      * true if something was removed.
      *
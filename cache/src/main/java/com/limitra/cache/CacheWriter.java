@@ -0,0 +1,52 @@
+package com.limitra.cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Propagates cache mutations to a backing store.
+ *
+ * <p>{@link SimpleTTLCache} invokes the writer synchronously from {@code put} and explicit {@code
+ * remove} calls, before the local map is updated. A writer that throws aborts the cache mutation.
+ * Evictions (TTL or capacity) are local decisions and are never propagated.
+ *
+ * <p>Use the store's writer directly for <i>write-through</i>, or wrap it in a {@link
+ * WriteBehindCacheWriter} to take store latency off the caller's path.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public interface CacheWriter<K, V> {
+
+    /** Writes or replaces the value for the key in the backing store. */
+    void write(K key, V value);
+
+    /** Deletes the key from the backing store. */
+    void delete(K key);
+
+    /** Writes all entries. Stores with a native batch API should override this. */
+    default void writeAll(Map<K, V> entries) {
+        entries.forEach(this::write);
+    }
+
+    /** Deletes all keys. Stores with a native batch API should override this. */
+    default void deleteAll(Collection<K> keys) {
+        keys.forEach(this::delete);
+    }
+
+    /** Writer that ignores all mutations; used when the cache has no backing store. */
+    @SuppressWarnings("unchecked")
+    static <K, V> CacheWriter<K, V> disabled() {
+        return (CacheWriter<K, V>) DisabledWriter.INSTANCE;
+    }
+
+    enum DisabledWriter implements CacheWriter<Object, Object> {
+        INSTANCE;
+
+        @Override
+        public void write(Object key, Object value) {}
+
+        @Override
+        public void delete(Object key) {}
+    }
+}
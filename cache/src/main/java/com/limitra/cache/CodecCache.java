@@ -0,0 +1,99 @@
+package com.limitra.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A {@link Cache} that stores its values encoded, in another cache of byte arrays. With a {@link
+ * CompressingCodec} this keeps large values compressed on the heap, so more of them fit under the
+ * same limit; every hit then pays for a decode.
+ *
+ * <p>TTL, eviction, metrics and listeners are those of the underlying cache, which sees only the
+ * encoded bytes.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class CodecCache<K, V> implements Cache<K, V> {
+
+    private final Cache<K, byte[]> store;
+    private final ValueCodec<V> codec;
+
+    public CodecCache(Cache<K, byte[]> store, ValueCodec<V> codec) {
+        this.store = Objects.requireNonNull(store, "store must not be null");
+        this.codec = Objects.requireNonNull(codec, "codec must not be null");
+    }
+
+    @Override
+    public void put(K key, V value) {
+        store.put(key, encode(value));
+    }
+
+    @Override
+    public void put(K key, V value, long ttlMillis) {
+        store.put(key, encode(value), ttlMillis);
+    }
+
+    @Override
+    public Optional<V> get(K key) {
+        return store.get(key).map(this::decode);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        store.putAll(encodeAll(entries));
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries, long ttlMillis) {
+        store.putAll(encodeAll(entries), ttlMillis);
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, byte[]> found = store.getAll(keys);
+        Map<K, V> decoded = new HashMap<>(Math.max(16, found.size() * 2));
+        found.forEach((key, bytes) -> decoded.put(key, decode(bytes)));
+        return decoded;
+    }
+
+    @Override
+    public int removeAll(Collection<? extends K> keys) {
+        return store.removeAll(keys);
+    }
+
+    @Override
+    public boolean remove(K key) {
+        return store.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        store.clear();
+    }
+
+    @Override
+    public long size() {
+        return store.size();
+    }
+
+    private byte[] encode(V value) {
+        return codec.encode(Objects.requireNonNull(value, "value must not be null"));
+    }
+
+    private V decode(byte[] bytes) {
+        return codec.decode(bytes, 0, bytes.length);
+    }
+
+    /** Encodes every value before storing any, so a null value leaves the cache untouched. */
+    private Map<K, byte[]> encodeAll(Map<? extends K, ? extends V> entries) {
+        Objects.requireNonNull(entries, "entries must not be null");
+        Map<K, byte[]> encoded = new LinkedHashMap<>(Math.max(16, entries.size() * 2));
+        entries.forEach((key, value) -> encoded.put(key, encode(value)));
+        return encoded;
+    }
+}
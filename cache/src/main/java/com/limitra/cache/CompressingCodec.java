@@ -0,0 +1,273 @@
+package com.limitra.cache;
+
+import com.limitra.metrics.CompressionMetrics;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A {@link ValueCodec} that deflates the bytes of another codec when they are at least {@code
+ * thresholdBytes} long, trading CPU on every write and read for memory per entry.
+ *
+ * <p>Contracts:
+ *
+ * <ul>
+ *   <li><b>Format:</b> One flag byte, then either the inner codec's bytes as they are, or their
+ *       length as four bytes and their deflated form. Values that do not shrink are stored as they
+ *       are, so incompressible data costs one byte.
+ *   <li><b>Reuse:</b> Deflaters, inflaters and scratch buffers are pooled, not thread-local, so
+ *       that many virtual threads do not each pin a native zlib stream. Apart from the stored
+ *       array and the decoded value, a call allocates only when the pool is empty. Decoding
+ *       hands the inner codec a pooled buffer, so its {@code decode} must copy what it keeps;
+ *       {@link ValueCodec#bytes()} is given a fresh array instead.
+ *   <li><b>Metrics:</b> {@link #metricsSnapshot()} reports the compression ratio and the CPU time
+ *       spent in zlib, measured per thread where the JVM supports it and in wall time otherwise.
+ *       Virtual threads have no CPU clock of their own, so calls on them are always timed in wall
+ *       time.
+ *   <li><b>Corrupt input:</b> {@code decode} rejects a stored length that the deflated bytes could
+ *       not possibly expand to with an {@link IllegalArgumentException}, before allocating.
+ * </ul>
+ *
+ * @param <V> the type of values
+ */
+public final class CompressingCodec<V> implements ValueCodec<V> {
+
+    private static final byte RAW = 0;
+    private static final byte DEFLATED = 1;
+    private static final int HEADER_BYTES = 5;
+    // deflate cannot encode more than 258 bytes in about two bits, a ratio of at most 1032:1
+    private static final int MAX_DEFLATE_RATIO = 1_032;
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+    // scratch buffers grown past this are dropped on return, so one huge value is not kept alive
+    private static final int MAX_RETAINED_BUFFER = 1 << 20;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final ValueCodec<V> inner;
+    private final int thresholdBytes;
+    private final int level;
+    private final BlockingQueue<Workspace> pool;
+    private final boolean cpuTime;
+
+    private final LongAdder encoded = new LongAdder();
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder storedBytes = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder decompressed = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+
+    /** Compresses at {@link Deflater#BEST_SPEED}, as caches read far more often than they miss. */
+    public CompressingCodec(ValueCodec<V> inner, int thresholdBytes) {
+        this(inner, thresholdBytes, Deflater.BEST_SPEED);
+    }
+
+    /**
+     * @param inner the codec whose bytes are compressed
+     * @param thresholdBytes smallest encoded size worth compressing
+     * @param level a {@link Deflater} compression level, 0 to 9
+     */
+    public CompressingCodec(ValueCodec<V> inner, int thresholdBytes, int level) {
+        this.inner = Objects.requireNonNull(inner, "inner must not be null");
+        if (thresholdBytes < 0) {
+            throw new IllegalArgumentException("thresholdBytes must not be negative");
+        }
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("level must be between 0 and 9");
+        }
+        this.thresholdBytes = thresholdBytes;
+        this.level = level;
+        this.pool = new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+        this.cpuTime =
+                THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+    }
+
+    @Override
+    public byte[] encode(V value) {
+        byte[] raw = inner.encode(value);
+        encoded.increment();
+        rawBytes.add(raw.length);
+        byte[] stored = raw.length >= thresholdBytes ? deflate(raw) : null;
+        if (stored == null) {
+            stored = new byte[raw.length + 1];
+            stored[0] = RAW;
+            System.arraycopy(raw, 0, stored, 1, raw.length);
+        } else {
+            compressed.increment();
+        }
+        storedBytes.add(stored.length);
+        return stored;
+    }
+
+    @Override
+    public V decode(byte[] bytes, int offset, int length) {
+        if (length < 1) {
+            throw new IllegalArgumentException("Missing compression header");
+        }
+        if (bytes[offset] == RAW) {
+            return inner.decode(bytes, offset + 1, length - 1);
+        }
+        if (bytes[offset] != DEFLATED || length < HEADER_BYTES) {
+            throw new IllegalArgumentException("Unknown compression header");
+        }
+        int rawLength = readInt(bytes, offset + 1);
+        long deflatedLength = length - HEADER_BYTES;
+        if (rawLength < 0
+                || rawLength > MAX_ARRAY_LENGTH
+                || rawLength > deflatedLength * MAX_DEFLATE_RATIO) {
+            throw new IllegalArgumentException(
+                    "Corrupt compressed value: "
+                            + deflatedLength
+                            + " bytes cannot hold a "
+                            + rawLength
+                            + "-byte value");
+        }
+        // the bytes codec may hand back the array it is given, which must then not be pooled
+        boolean keepsArray = inner == ValueCodec.bytes();
+        Workspace workspace = borrow();
+        try {
+            byte[] out = keepsArray ? new byte[rawLength] : workspace.buffer(rawLength);
+            workspace.startTimer(cpuTime);
+            Inflater inflater = workspace.inflater;
+            inflater.reset();
+            inflater.setInput(bytes, offset + HEADER_BYTES, length - HEADER_BYTES);
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(out, n, rawLength - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += read;
+            }
+            decompressNanos.add(workspace.elapsedNanos());
+            decompressed.increment();
+            if (n != rawLength) {
+                throw new IllegalArgumentException("Truncated compressed value");
+            }
+            return inner.decode(out, 0, rawLength);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt compressed value", e);
+        } finally {
+            giveBack(workspace);
+        }
+    }
+
+    public CompressionMetrics metricsSnapshot() {
+        return new CompressionMetrics(
+                encoded.sum(),
+                compressed.sum(),
+                rawBytes.sum(),
+                storedBytes.sum(),
+                compressNanos.sum(),
+                decompressed.sum(),
+                decompressNanos.sum());
+    }
+
+    /** The header and deflated bytes, or null if deflating does not make the value smaller. */
+    private byte[] deflate(byte[] raw) {
+        Workspace workspace = borrow();
+        try {
+            workspace.startTimer(cpuTime);
+            Deflater deflater = workspace.deflater;
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            // anything longer than the raw value is useless, so do not grow past it
+            byte[] out = workspace.buffer(raw.length + 1);
+            int n = HEADER_BYTES;
+            while (!deflater.finished() && n < raw.length + 1) {
+                n += deflater.deflate(out, n, raw.length + 1 - n);
+            }
+            compressNanos.add(workspace.elapsedNanos());
+            if (!deflater.finished() || n > raw.length) {
+                return null;
+            }
+            out[0] = DEFLATED;
+            writeInt(out, 1, raw.length);
+            return Arrays.copyOf(out, n);
+        } finally {
+            giveBack(workspace);
+        }
+    }
+
+    private Workspace borrow() {
+        Workspace workspace = pool.poll();
+        return workspace != null ? workspace : new Workspace(level);
+    }
+
+    private void giveBack(Workspace workspace) {
+        if (workspace.scratch.length > MAX_RETAINED_BUFFER) {
+            workspace.scratch = new byte[0];
+        }
+        if (!pool.offer(workspace)) {
+            workspace.end();
+        }
+    }
+
+    private static void writeInt(byte[] bytes, int at, int value) {
+        bytes[at] = (byte) (value >>> 24);
+        bytes[at + 1] = (byte) (value >>> 16);
+        bytes[at + 2] = (byte) (value >>> 8);
+        bytes[at + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes, int at) {
+        return (bytes[at] & 0xFF) << 24
+                | (bytes[at + 1] & 0xFF) << 16
+                | (bytes[at + 2] & 0xFF) << 8
+                | bytes[at + 3] & 0xFF;
+    }
+
+    private static final class Workspace {
+
+        final Deflater deflater;
+        final Inflater inflater;
+        byte[] scratch = new byte[0];
+        // the timer of the call holding the workspace, kept here so timing does not allocate
+        boolean timingCpu;
+        long timerStart;
+
+        Workspace(int level) {
+            this.deflater = new Deflater(level);
+            this.inflater = new Inflater();
+        }
+
+        byte[] buffer(int size) {
+            if (scratch.length < size) {
+                scratch = new byte[Math.max(size, scratch.length * 2)];
+            }
+            return scratch;
+        }
+
+        /**
+         * Starts timing in thread CPU time if the JVM measures it for this thread. It returns -1
+         * for virtual threads and when measurement is disabled, so those fall back to wall time.
+         */
+        void startTimer(boolean cpuTime) {
+            timerStart = -1;
+            if (cpuTime && !Thread.currentThread().isVirtual()) {
+                timerStart = THREADS.getCurrentThreadCpuTime();
+            }
+            timingCpu = timerStart >= 0;
+            if (!timingCpu) {
+                timerStart = System.nanoTime();
+            }
+        }
+
+        long elapsedNanos() {
+            long now = timingCpu ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+            return Math.max(0, now - timerStart);
+        }
+
+        void end() {
+            deflater.end();
+            inflater.end();
+        }
+    }
+}
@@ -3,7 +3,12 @@ package com.limitra.cache;
 public final class Entry<V> {
 
     final V value;
-    final long expiresAtNanos;
+    // moved by reads when the cache has an Expiry
+    volatile long expiresAtNanos;
+    // guarded by the TimerWheel lock; null unless the entry is linked into a wheel
+    TimerWheel.Node<?, V> timer;
+    // guarded by the map's lock for the key; a pinned entry has no LRU node
+    boolean pinned;
 
     public Entry(V value, long expiresAtNanos) {
         this.value = value;
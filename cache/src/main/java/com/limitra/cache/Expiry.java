@@ -0,0 +1,75 @@
+package com.limitra.cache;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * Computes how long an entry of a {@link SimpleTTLCache} stays alive, when it is created, updated
+ * and read.
+ *
+ * <p>Every method returns a duration in nanoseconds counted from {@code nowNanos}, the cache's
+ * {@link com.limitra.time.TimeProvider} reading. {@link Long#MAX_VALUE} means the entry never
+ * expires; zero or less expires it immediately. Methods run on the caller's thread, on every
+ * write or hit, so they should be cheap and must not touch the cache.
+ *
+ * <p>An explicit {@code put(k, v, ttlMillis)} overrides {@link #expireAfterCreate} and {@link
+ * #expireAfterUpdate} for that write; later reads still go through {@link #expireAfterRead}.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public interface Expiry<K, V> {
+
+    /** Lifetime of a new entry. */
+    long expireAfterCreate(K key, V value, long nowNanos);
+
+    /**
+     * Lifetime of an entry whose value was replaced while it was still live. Defaults to starting
+     * over, as {@link #expireAfterCreate} would.
+     *
+     * @param remainingNanos time the replaced entry had left
+     */
+    default long expireAfterUpdate(K key, V value, long nowNanos, long remainingNanos) {
+        return expireAfterCreate(key, value, nowNanos);
+    }
+
+    /**
+     * Lifetime of an entry after a hit. Defaults to leaving the deadline alone.
+     *
+     * @param remainingNanos time the entry has left
+     */
+    default long expireAfterRead(K key, V value, long nowNanos, long remainingNanos) {
+        return remainingNanos;
+    }
+
+    /** Expires entries {@code ttlMillis} after they were last written or read. */
+    static <K, V> Expiry<K, V> afterAccess(long ttlMillis) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("ttlMillis must be greater than 0");
+        }
+        long ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(K key, V value, long nowNanos) {
+                return ttlNanos;
+            }
+
+            @Override
+            public long expireAfterRead(K key, V value, long nowNanos, long remainingNanos) {
+                return ttlNanos;
+            }
+        };
+    }
+
+    /**
+     * Expires entries after a lifetime taken from the entry itself, e.g. a response's {@code
+     * max-age}. Reads do not extend it.
+     */
+    static <K, V> Expiry<K, V> afterWrite(ToLongBiFunction<? super K, ? super V> ttlMillis) {
+        Objects.requireNonNull(ttlMillis, "ttlMillis must not be null");
+        // toNanos saturates, so a huge max-age maps to "never"
+        return (key, value, nowNanos) ->
+                TimeUnit.MILLISECONDS.toNanos(ttlMillis.applyAsLong(key, value));
+    }
+}
@@ -1,7 +1,11 @@
 package com.limitra.cache;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
 
 /** Access-ordered LRU list for keys */
@@ -35,6 +39,41 @@ public class LruList<K> {
         }
     }
 
+    /** Whether key has a position in the list */
+    public boolean contains(K key) {
+        lock.lock();
+        try {
+            return lru.containsKey(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Moves key to MRU position if present; never adds it */
+    public void touch(K key) {
+        lock.lock();
+        try {
+            lru.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Moves the keys that are present to MRU position under a single lock acquisition */
+    public void touchAll(Collection<? extends K> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            for (K key : keys) {
+                lru.get(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /** Remove and return the least-recently-used key, or null if empty */
     public K evictEldest() {
         lock.lock();
@@ -52,6 +91,25 @@ public class LruList<K> {
         }
     }
 
+    /** Remove and return up to {@code max} least-recently-used keys, eldest first */
+    public List<K> evictEldest(int max) {
+        if (max <= 0) {
+            return Collections.emptyList();
+        }
+        lock.lock();
+        try {
+            List<K> eldest = new ArrayList<>(Math.min(max, lru.size()));
+            Iterator<K> it = lru.keySet().iterator();
+            while (eldest.size() < max && it.hasNext()) {
+                eldest.add(it.next());
+                it.remove();
+            }
+            return eldest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /** For debugging/tests only */
     public int orderSize() {
         lock.lock();
@@ -0,0 +1,235 @@
+package com.limitra.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps encoded values outside the Java heap, in a direct buffer or a memory-mapped file; used as
+ * the second tier of a {@link TieredCache}.
+ *
+ * <p>Values are appended to a ring-shaped log. When the log wraps around, the records it writes
+ * over are evicted, oldest first, so eviction costs nothing beyond the write itself. Overwritten
+ * and removed records stay in the log as dead space until the ring reaches them again. Keys,
+ * offsets and expiry times are indexed on heap, which keeps lookups cheap and the off-heap layout
+ * simple; a mapped file is therefore scratch space, not a persistent store.
+ *
+ * <p>All operations take one lock. The expensive part of a hit, decoding, happens outside it.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class OffHeapStore<K, V> implements AutoCloseable {
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final ValueCodec<V> codec;
+    private final FileChannel file;
+    private final ReentrantLock lock;
+    // guarded by lock
+    private final HashMap<K, Slot<K>> index;
+    private final ArrayDeque<Slot<K>> log;
+    private long writePosition;
+    private long evictedByCapacity;
+    private long rejected;
+
+    private OffHeapStore(ByteBuffer buffer, ValueCodec<V> codec, FileChannel file) {
+        this.buffer = buffer;
+        this.capacity = buffer.capacity();
+        this.codec = Objects.requireNonNull(codec, "codec must not be null");
+        this.file = file;
+        this.lock = new ReentrantLock();
+        this.index = new HashMap<>();
+        this.log = new ArrayDeque<>();
+    }
+
+    /** A store in a direct buffer of {@code capacityBytes}. */
+    public static <K, V> OffHeapStore<K, V> direct(int capacityBytes, ValueCodec<V> codec) {
+        if (capacityBytes <= 0) {
+            throw new IllegalArgumentException("capacityBytes must be greater than 0");
+        }
+        return new OffHeapStore<>(ByteBuffer.allocateDirect(capacityBytes), codec, null);
+    }
+
+    /**
+     * A store in {@code file}, mapped into memory, so the OS pages values in and out. The file is
+     * created or truncated to {@code capacityBytes}; its previous contents are not read.
+     */
+    public static <K, V> OffHeapStore<K, V> mapped(
+            Path file, int capacityBytes, ValueCodec<V> codec) throws IOException {
+        if (capacityBytes <= 0) {
+            throw new IllegalArgumentException("capacityBytes must be greater than 0");
+        }
+        FileChannel channel =
+                FileChannel.open(
+                        file,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+            return new OffHeapStore<>(mapped, codec, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Stores the value. A value larger than the whole store is rejected, and any older value for
+     * the key is dropped so that it cannot be served later.
+     *
+     * @return false if the value was rejected
+     */
+    public boolean put(K key, V value, long expiresAtNanos) {
+        Objects.requireNonNull(key, "key must not be null");
+        byte[] bytes = codec.encode(Objects.requireNonNull(value, "value must not be null"));
+        lock.lock();
+        try {
+            if (bytes.length > capacity) {
+                ++rejected;
+                index.remove(key);
+                return false;
+            }
+            // an empty value still takes a byte, so that its record is reclaimed like any other
+            int footprint = Math.max(1, bytes.length);
+            int physical = (int) (writePosition % capacity);
+            if (physical + footprint > capacity) {
+                writePosition += capacity - physical; // records never wrap around the end
+                physical = 0;
+            }
+            Slot<K> slot = new Slot<>(key, writePosition, bytes.length, expiresAtNanos);
+            writePosition += footprint;
+            reclaim(writePosition - capacity);
+            buffer.put(physical, bytes);
+            index.put(key, slot);
+            log.addLast(slot);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Evicts every record that starts before {@code floor}, i.e. is about to be overwritten. */
+    private void reclaim(long floor) {
+        while (!log.isEmpty() && log.peekFirst().offset < floor) {
+            Slot<K> slot = log.pollFirst();
+            if (index.remove(slot.key, slot)) {
+                ++evictedByCapacity;
+            }
+        }
+    }
+
+    /** Returns the entry, or null. Expiry is left to the caller, which owns the clock. */
+    public Entry<V> get(K key) {
+        return read(key, false);
+    }
+
+    /** Removes and returns the entry, or returns null. */
+    public Entry<V> take(K key) {
+        return read(key, true);
+    }
+
+    private Entry<V> read(K key, boolean remove) {
+        Objects.requireNonNull(key, "key must not be null");
+        byte[] bytes;
+        Slot<K> slot;
+        lock.lock();
+        try {
+            slot = remove ? index.remove(key) : index.get(key);
+            if (slot == null) {
+                return null;
+            }
+            bytes = new byte[slot.length];
+            buffer.get((int) (slot.offset % capacity), bytes);
+        } finally {
+            lock.unlock();
+        }
+        return new Entry<>(codec.decode(bytes, 0, bytes.length), slot.expiresAtNanos);
+    }
+
+    public boolean remove(K key) {
+        Objects.requireNonNull(key, "key must not be null");
+        lock.lock();
+        try {
+            return index.remove(key) != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            index.clear();
+            log.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Records in the log, live or dead. */
+    int logRecords() {
+        lock.lock();
+        try {
+            return log.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacityBytes() {
+        return capacity;
+    }
+
+    /** Live records written over because the log wrapped around. */
+    public long evictedByCapacity() {
+        lock.lock();
+        try {
+            return evictedByCapacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Values rejected for being larger than the store. */
+    public long rejected() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Closes the backing file, if any. The mapping itself is released by the garbage collector. */
+    @Override
+    public void close() {
+        clear();
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException ignored) {
+                // nothing left to flush: the contents are not meant to outlive the process
+            }
+        }
+    }
+
+    private record Slot<K>(K key, long offset, int length, long expiresAtNanos) {}
+}
@@ -0,0 +1,22 @@
+package com.limitra.cache;
+
+/** Why an entry left the cache. */
+public enum RemovalCause {
+
+    /** Removed by the caller through {@code remove}, {@code removeAll} or {@code clear}. */
+    EXPLICIT,
+
+    /** Value was overwritten by a {@code put} for the same key. */
+    REPLACED,
+
+    /** Entry outlived its time-to-live. */
+    EXPIRED,
+
+    /** Live entry forced out by capacity pressure. */
+    SIZE;
+
+    /** Whether the cache removed the entry on its own (as opposed to a caller's mutation). */
+    public boolean wasEvicted() {
+        return this == EXPIRED || this == SIZE;
+    }
+}
@@ -0,0 +1,19 @@
+package com.limitra.cache;
+
+/**
+ * Receives entries after they have left a {@link SimpleTTLCache}, e.g. to release resources held
+ * by the value.
+ *
+ * <p>Listeners run asynchronously on the cache's listener executor, one notification at a time, in
+ * the order the removals were published. No notification is dropped: while the listener queue is
+ * full, the thread that caused a removal delivers queued notifications itself, still one at a
+ * time. Exceptions thrown by a listener are swallowed and counted.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+@FunctionalInterface
+public interface RemovalListener<K, V> {
+
+    void onRemoval(K key, V value, RemovalCause cause);
+}
@@ -0,0 +1,108 @@
+package com.limitra.cache;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands removal notifications from cache threads to a {@link RemovalListener} running on an
+ * executor.
+ *
+ * <p>Notifications are never dropped, as listeners may be releasing resources. When the bounded
+ * queue is full, the publishing thread delivers the oldest queued notifications itself until its
+ * own fits, which slows removals down to the listener's pace. Every delivery holds one lock, so
+ * the listener still sees notifications serially and in queue order.
+ */
+class RemovalNotifier<K, V> {
+
+    private final RemovalListener<K, V> listener;
+    private final Executor executor;
+    private final ArrayBlockingQueue<Notification<K, V>> queue;
+    private final AtomicBoolean drainScheduled;
+    private final ReentrantLock deliveryLock;
+    private final LongAdder deliveredByPublisher;
+    private final LongAdder failures;
+
+    RemovalNotifier(RemovalListener<K, V> listener, Executor executor, int queueCapacity) {
+        Objects.requireNonNull(listener, "listener must not be null");
+        Objects.requireNonNull(executor, "executor must not be null");
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be greater than 0");
+        }
+        this.listener = listener;
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.drainScheduled = new AtomicBoolean();
+        this.deliveryLock = new ReentrantLock();
+        this.deliveredByPublisher = new LongAdder();
+        this.failures = new LongAdder();
+    }
+
+    void publish(K key, V value, RemovalCause cause) {
+        Notification<K, V> notification = new Notification<>(key, value, cause);
+        while (!queue.offer(notification)) {
+            // reentrant, so a listener whose own removals overflow the queue does not deadlock
+            if (deliverNext()) {
+                deliveredByPublisher.increment();
+            }
+        }
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                drainScheduled.set(false);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            while (deliverNext()) {
+                // keep going until the queue is empty
+            }
+        } finally {
+            drainScheduled.set(false);
+            // a publisher may have seen the flag still set after our last poll
+            if (!queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    /** Polls and delivers under the lock, so that deliveries keep the queue's order. */
+    private boolean deliverNext() {
+        deliveryLock.lock();
+        try {
+            Notification<K, V> n = queue.poll();
+            if (n == null) {
+                return false;
+            }
+            try {
+                listener.onRemoval(n.key(), n.value(), n.cause());
+            } catch (RuntimeException e) {
+                failures.increment();
+            }
+            return true;
+        } finally {
+            deliveryLock.unlock();
+        }
+    }
+
+    long deliveredByPublisher() {
+        return deliveredByPublisher.sum();
+    }
+
+    long failures() {
+        return failures.sum();
+    }
+
+    private record Notification<K, V>(K key, V value, RemovalCause cause) {}
+}
@@ -1,16 +1,40 @@
 package com.limitra.cache;
 
+import com.limitra.hotkeys.HeavyHitters;
+import com.limitra.hotkeys.HotKey;
 import com.limitra.metrics.CacheMetrics;
 import com.limitra.metrics.MetricsSnapshot;
+import com.limitra.metrics.NegativeCacheMetrics;
+import com.limitra.metrics.RollingCacheStats;
+import com.limitra.metrics.RollingWindowSnapshot;
 import com.limitra.time.TimeProvider;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 public class SimpleTTLCache<K, V> implements Cache<K, V> {
 
+    // internalPut deadline meaning "ask the Expiry"
+    private static final long BY_POLICY = Long.MIN_VALUE;
+    // keys marked absent within this long of each other share one sentinel entry
+    private static final long SENTINEL_SHARING_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // what lookup returns for a key the known-keys filter rejected
+    private static final Entry<?> REJECTED = new Entry<>(null, Long.MAX_VALUE);
+
     TimeProvider time;
     ConcurrentHashMap<K, Entry<V>> map;
     LongAdder hits;
@@ -19,17 +43,59 @@ public class SimpleTTLCache<K, V> implements Cache<K, V> {
     LongAdder evictionsByCapacity;
     final int maxEntries;
     final LruList<K> lruList;
+    final CacheWriter<K, V> writer;
+    final RemovalNotifier<K, V> notifier;
+    // called on the evicting thread, inside the map's lock for the evicted key; TieredCache uses
+    // it to demote entries
+    final BiConsumer<K, Entry<V>> capacityEvictionSink;
+    final Expiry<K, V> expiry;
+    // tracks deadlines only when there is an Expiry, so plain caches keep their write path
+    final TimerWheel<K, V> wheel;
+    // null unless the builder asked for windowed statistics
+    final RollingCacheStats rollingStats;
+    // null unless the builder asked for hot-key detection
+    final HeavyHitters<K> hotKeys;
+    // 0 unless the builder asked for negative caching
+    final long negativeTtlNanos;
+    // null unless the builder asked for a known-keys filter
+    final BloomFilter<K> knownKeys;
+    // 0 unless the builder allowed pinning; pinned entries count against this, not maxEntries
+    final int maxPinned;
+    // entries with pinned set; changed only inside the map's lock for the key
+    private final AtomicInteger pinnedCount;
+    // the shared sentinel for absent keys: an entry with a null value, never scheduled in the wheel
+    private volatile Entry<V> absent;
+    // loads in flight in getOrLoad, so concurrent callers for one key share a single load
+    private final ConcurrentHashMap<K, CompletableFuture<Optional<V>>> loads;
+    private final LongAdder negativeHits;
+    private final LongAdder filterRejections;
+    private final LongAdder loadCount;
+    private final LongAdder coalescedLoads;
 
     public SimpleTTLCache(TimeProvider time) {
         this(time, Integer.MAX_VALUE);
     }
 
     public SimpleTTLCache(TimeProvider time, int maxEntries) {
+        this(time, maxEntries, CacheWriter.disabled());
+    }
+
+    /**
+     * Creates a cache that propagates {@code put} and explicit {@code remove} calls to {@code
+     * writer} before updating itself. Pass a {@link WriteBehindCacheWriter} to keep store latency
+     * off the caller's path.
+     */
+    public SimpleTTLCache(TimeProvider time, int maxEntries, CacheWriter<K, V> writer) {
+        this(SimpleTTLCache.<K, V>builder(time).maxEntries(maxEntries).writer(writer));
+    }
 
+    private SimpleTTLCache(Builder<K, V> builder) {
+
+        int maxEntries = builder.maxEntries;
         if (maxEntries <= 0) {
             throw new IllegalArgumentException("maxEntries must be greater than 0");
         }
-        this.time = time;
+        this.time = builder.time;
         this.map = new ConcurrentHashMap<>();
         this.hits = new LongAdder();
         this.misses = new LongAdder();
@@ -37,92 +103,698 @@ public class SimpleTTLCache<K, V> implements Cache<K, V> {
         this.evictionsByCapacity = new LongAdder();
         this.maxEntries = maxEntries;
         this.lruList = new LruList<>();
+        this.writer = builder.writer;
+        this.notifier =
+                builder.removalListener == null
+                        ? null
+                        : new RemovalNotifier<>(
+                                builder.removalListener,
+                                builder.listenerExecutor,
+                                builder.listenerQueueCapacity);
+        this.capacityEvictionSink = builder.capacityEvictionSink;
+        this.expiry = builder.expiry;
+        this.wheel = expiry == null ? null : new TimerWheel<>(time.nowNanos());
+        this.rollingStats =
+                builder.rollingWindowSeconds == 0
+                        ? null
+                        : new RollingCacheStats(time, builder.rollingWindowSeconds);
+        this.hotKeys = builder.hotKeys;
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(builder.negativeTtlMillis);
+        this.knownKeys = builder.knownKeys;
+        this.maxPinned = builder.maxPinned;
+        this.pinnedCount = new AtomicInteger();
+        this.loads = new ConcurrentHashMap<>();
+        this.negativeHits = new LongAdder();
+        this.filterRejections = new LongAdder();
+        this.loadCount = new LongAdder();
+        this.coalescedLoads = new LongAdder();
+    }
+
+    public static <K, V> Builder<K, V> builder(TimeProvider time) {
+        return new Builder<>(time);
     }
 
     @Override
     public void put(K key, V value) {
-        internalPut(key, value, Long.MAX_VALUE);
+        internalPut(key, value, expiry == null ? Long.MAX_VALUE : BY_POLICY, true, false);
     }
 
-    private void internalPut(K key, V value, long ttlMillis) {
+    /** Stores the entry, pinned if {@code pin} and the budget allows; returns if it is pinned. */
+    private boolean internalPut(
+            K key, V value, long expiresAtNanos, boolean writeThrough, boolean pin) {
 
         Objects.requireNonNull(key, "key must not be null");
         Objects.requireNonNull(value, "value must not be null");
 
-        lruList.recordAccess(key);
-        map.put(key, new Entry<>(value, ttlMillis));
+        if (writeThrough) {
+            writer.write(key, value);
+        }
+        if (knownKeys != null) {
+            knownKeys.add(key);
+        }
+        long now = wheel == null ? 0 : time.nowNanos();
+        if (expiresAtNanos == BY_POLICY) {
+            expiresAtNanos = policyDeadline(key, value, map.get(key), now);
+        }
+        Entry<V> entry = new Entry<>(value, expiresAtNanos);
+        entry.pinned = pin;
+        Entry<V> previous = link(key, entry);
+        if (wheel != null) {
+            wheel.schedule(key, entry);
+        }
+        if (previous != null) {
+            onRemoval(key, previous, RemovalCause.REPLACED);
+        }
+        if (rollingStats != null) {
+            rollingStats.recordPuts(1);
+        }
 
-        while (map.size() > maxEntries) {
-            K eldest = lruList.evictEldest();
-            Entry<V> eldestItem = map.get(eldest);
-            if (eldestItem != null && eldestItem.isExpired(time.nowNanos())) {
-                if (remove(eldest)) {
-                    evictionsByTtl.increment();
+        evictIfOverCapacity();
+        expireFromWheel(now, false);
+        return entry.pinned;
+    }
+
+    /** Stores an entry with an absolute expiry, e.g. one promoted from another tier. */
+    void putUntil(K key, V value, long expiresAtNanos) {
+        internalPut(key, value, expiresAtNanos, true, false);
+    }
+
+    /**
+     * Pops just enough eldest keys to get back under {@code maxEntries}, with one {@link LruList}
+     * lock acquisition and one clock read per round.
+     */
+    private void evictIfOverCapacity() {
+        int excess = excess();
+        while (excess > 0) {
+            List<K> eldest = lruList.evictEldest(excess);
+            if (eldest.isEmpty()) {
+                return;
+            }
+            long now = time.nowNanos();
+            for (K key : eldest) {
+                Entry<V> eldestItem = unlinkEldest(key, now);
+                if (eldestItem == null || eldestItem.value == null) {
+                    continue; // gone already, or an absent marker with nothing to report
                 }
-            } else if (eldestItem != null) {
-                if (remove(eldest)) {
-                    evictionsByCapacity.increment();
+                if (eldestItem.isExpired(now)) {
+                    recordEvictionsByTtl(1);
+                    onRemoval(key, eldestItem, RemovalCause.EXPIRED);
+                } else {
+                    recordEvictionsByCapacity(1);
+                    onRemoval(key, eldestItem, RemovalCause.SIZE);
                 }
             }
+            excess = excess();
         }
     }
 
+    /** Unpinned entries beyond {@code maxEntries}; pinned ones have a budget of their own. */
+    private int excess() {
+        return map.size() - pinnedCount.get() - maxEntries;
+    }
+
     @Override
     public void put(K key, V value, long ttlMillis) {
 
         if (ttlMillis <= 0) {
             throw new IllegalArgumentException("ttlMillis must be greater than 0");
         }
-        internalPut(key, value, time.nowNanos() + TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+        internalPut(
+                key,
+                value,
+                time.nowNanos() + TimeUnit.MILLISECONDS.toNanos(ttlMillis),
+                true,
+                false);
+    }
+
+    /**
+     * Stores an eternal entry that capacity eviction never removes, for data such as feature flags
+     * that must survive a burst of other keys. Pinned entries count against {@link
+     * Builder#maxPinned(int)} instead of {@code maxEntries}; when that budget is spent the entry is
+     * stored unpinned, like {@link #put(Object, Object)}. A later put to a pinned key keeps it
+     * pinned, until {@link #unpin(Object)} or a removal.
+     *
+     * @return {@code true} if the entry is pinned, {@code false} if the budget was spent
+     * @throws IllegalStateException if the cache was built without pinning
+     */
+    public boolean putPinned(K key, V value) {
+        checkPinning();
+        return internalPut(key, value, expiry == null ? Long.MAX_VALUE : BY_POLICY, true, true);
+    }
+
+    /**
+     * Like {@link #putPinned(Object, Object)}, with a time-to-live: pinned entries still expire.
+     *
+     * @throws IllegalArgumentException if ttlMillis <= 0
+     */
+    public boolean putPinned(K key, V value, long ttlMillis) {
+        checkPinning();
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("ttlMillis must be greater than 0");
+        }
+        return internalPut(
+                key,
+                value,
+                time.nowNanos() + TimeUnit.MILLISECONDS.toNanos(ttlMillis),
+                true,
+                true);
+    }
+
+    /**
+     * Makes a pinned entry evictable again, as the most recently used one, and frees its place in
+     * the pinned budget.
+     *
+     * @return {@code true} if the key was pinned
+     */
+    public boolean unpin(K key) {
+        Objects.requireNonNull(key, "key must not be null");
+        Displaced<V> unpinned = new Displaced<>();
+        map.computeIfPresent(
+                key,
+                (k, current) -> {
+                    if (current.pinned) {
+                        current.pinned = false;
+                        pinnedCount.decrementAndGet();
+                        lruList.recordAccess(k);
+                        unpinned.entry = current;
+                    }
+                    return current;
+                });
+        if (unpinned.entry == null) {
+            return false;
+        }
+        evictIfOverCapacity();
+        return true;
+    }
+
+    /** Number of pinned entries, expired ones included until they are removed. */
+    public int pinnedCount() {
+        return pinnedCount.get();
+    }
+
+    private void checkPinning() {
+        if (maxPinned == 0) {
+            throw new IllegalStateException("pinning is not enabled");
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        internalPutAll(entries, expiry == null ? Long.MAX_VALUE : BY_POLICY);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries, long ttlMillis) {
+
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("ttlMillis must be greater than 0");
+        }
+        internalPutAll(entries, time.nowNanos() + TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+    }
+
+    private void internalPutAll(Map<? extends K, ? extends V> entries, long expiresAtNanos) {
+
+        Objects.requireNonNull(entries, "entries must not be null");
+        entries.forEach(
+                (key, value) -> {
+                    Objects.requireNonNull(key, "key must not be null");
+                    Objects.requireNonNull(value, "value must not be null");
+                });
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        writer.writeAll(Collections.unmodifiableMap(entries));
+        if (knownKeys != null) {
+            entries.keySet().forEach(knownKeys::add);
+        }
+        long now = wheel == null ? 0 : time.nowNanos();
+        entries.forEach(
+                (key, value) -> {
+                    long deadline =
+                            expiresAtNanos == BY_POLICY
+                                    ? policyDeadline(key, value, map.get(key), now)
+                                    : expiresAtNanos;
+                    Entry<V> entry = new Entry<>(value, deadline);
+                    Entry<V> previous = link(key, entry);
+                    if (wheel != null) {
+                        wheel.schedule(key, entry);
+                    }
+                    if (previous != null) {
+                        onRemoval(key, previous, RemovalCause.REPLACED);
+                    }
+                });
+        if (rollingStats != null) {
+            rollingStats.recordPuts(entries.size());
+        }
+
+        evictIfOverCapacity();
+        expireFromWheel(now, false);
+    }
+
+    /** Deadline the {@link Expiry} gives a write: an update if the key is live, else a create. */
+    private long policyDeadline(K key, V value, Entry<V> current, long now) {
+        long nanos =
+                current != null && current.value != null && !current.isExpired(now)
+                        ? expiry.expireAfterUpdate(key, value, now, remaining(current, now))
+                        : expiry.expireAfterCreate(key, value, now);
+        return deadline(now, nanos);
+    }
+
+    /** Lets the {@link Expiry} move a hit's deadline; a plain volatile write, no lock. */
+    private void onRead(K key, Entry<V> entry, long now) {
+        long remaining = remaining(entry, now);
+        long nanos = expiry.expireAfterRead(key, entry.value, now, remaining);
+        if (nanos == remaining) {
+            return;
+        }
+        boolean wasEternal = entry.expiresAtNanos == Long.MAX_VALUE;
+        entry.expiresAtNanos = deadline(now, nanos);
+        if (wasEternal) {
+            wheel.schedule(key, entry);
+        }
+    }
+
+    private static long remaining(Entry<?> entry, long now) {
+        long expiresAt = entry.expiresAtNanos;
+        return expiresAt == Long.MAX_VALUE ? Long.MAX_VALUE : expiresAt - now;
+    }
+
+    private static long deadline(long now, long nanos) {
+        if (nanos == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        if (nanos <= 0) {
+            return now;
+        }
+        long deadline = now + nanos;
+        return deadline < now ? Long.MAX_VALUE : deadline;
+    }
+
+    /**
+     * Removes the entries the timing wheel found expired since its last advance. Writes and reads
+     * call this without waiting for the wheel lock; {@link #cleanUp()} waits.
+     */
+    private void expireFromWheel(long now, boolean wait) {
+        if (wheel == null) {
+            return;
+        }
+        for (TimerWheel.Node<K, V> node : wheel.advance(now, wait)) {
+            expire(node.key, node.entry);
+        }
+    }
+
+    /**
+     * Removes expired entries now rather than on the next access. Without an {@link Expiry} there
+     * is nothing to do: entries expire lazily, when read or counted by {@link #size()}.
+     */
+    public void cleanUp() {
+        if (wheel != null) {
+            expireFromWheel(time.nowNanos(), true);
+        }
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Objects.requireNonNull(keys, "keys must not be null");
+
+        long now = time.nowNanos();
+        Map<K, V> found = new HashMap<>();
+        Map<K, Entry<V>> expired = new HashMap<>();
+        int missed = 0;
+        for (K key : keys) {
+            Objects.requireNonNull(key, "key must not be null");
+            if (hotKeys != null) {
+                hotKeys.record(key);
+            }
+            if (knownKeys != null && !knownKeys.mightContain(key)) {
+                filterRejections.increment();
+                continue;
+            }
+            Entry<V> entry = map.get(key);
+            if (entry == null) {
+                ++missed;
+            } else if (entry.isExpired(now)) {
+                ++missed;
+                expired.put(key, entry);
+            } else if (entry.value == null) {
+                negativeHits.increment();
+            } else {
+                found.put(key, entry.value);
+                if (expiry != null) {
+                    onRead(key, entry, now);
+                }
+            }
+        }
+
+        expired.forEach(this::expire);
+        recordHits(found.size());
+        recordMisses(missed);
+        lruList.touchAll(found.keySet());
+        return found;
+    }
+
+    @Override
+    public int removeAll(Collection<? extends K> keys) {
+        Objects.requireNonNull(keys, "keys must not be null");
+        for (K key : keys) {
+            Objects.requireNonNull(key, "key must not be null");
+        }
+
+        writer.deleteAll(Collections.unmodifiableCollection(keys));
+        int removed = 0;
+        for (K key : keys) {
+            if (evict(key, RemovalCause.EXPLICIT)) {
+                ++removed;
+            }
+        }
+        return removed;
     }
 
     @Override
     public Optional<V> get(K key) {
+        Entry<V> entry = lookup(key);
+        return entry == null ? Optional.empty() : Optional.ofNullable(entry.value);
+    }
+
+    /**
+     * Reads {@code key} and does the bookkeeping of a read. Returns null on a miss, an entry with
+     * a null value if the key is known to be absent, or else the live entry.
+     */
+    @SuppressWarnings("unchecked")
+    private Entry<V> lookup(K key) {
         Objects.requireNonNull(key, "key must not be null");
+        if (hotKeys != null) {
+            hotKeys.record(key);
+        }
+        if (knownKeys != null && !knownKeys.mightContain(key)) {
+            filterRejections.increment();
+            return (Entry<V>) REJECTED;
+        }
 
         Entry<V> entry = map.get(key);
         if (entry == null) {
-            misses.increment();
-            return Optional.empty();
+            recordMisses(1);
+            return null;
         }
 
-        if (entry.isExpired(time.nowNanos())) {
-            misses.increment();
-            evictionsByTtl.increment();
-            remove(key);
-            return Optional.empty();
+        long now = time.nowNanos();
+        if (entry.isExpired(now)) {
+            recordMisses(1);
+            expire(key, entry);
+            return null;
         }
 
-        hits.increment();
-        lruList.recordAccess(key);
-        return Optional.of(entry.value);
+        if (entry.value == null) {
+            // not moved up the LRU list: absent markers should be the first to go
+            negativeHits.increment();
+            return entry;
+        }
+        recordHits(1);
+        lruList.touch(key);
+        if (expiry != null) {
+            onRead(key, entry, now);
+            expireFromWheel(now, false);
+        }
+        return entry;
+    }
+
+    /**
+     * Cache-aside read: returns the cached value, or calls {@code loader} and caches what it finds.
+     * A value the loader returns is stored like {@link #put(Object, Object)} but is not passed to
+     * the writer, since it came from the store; an empty result is stored as absent if {@link
+     * Builder#negativeTtl(long)} is set.
+     *
+     * <p>Concurrent calls for the same key share one load: the first caller runs the loader and
+     * the rest wait for its result, or rethrow its exception. Keys cached as absent, or rejected
+     * by the {@link Builder#knownKeys(BloomFilter) known-keys filter}, return empty without
+     * calling the loader.
+     */
+    public Optional<V> getOrLoad(K key, Function<? super K, Optional<? extends V>> loader) {
+        Objects.requireNonNull(loader, "loader must not be null");
+        Entry<V> entry = lookup(key);
+        if (entry != null) {
+            return Optional.ofNullable(entry.value);
+        }
+
+        CompletableFuture<Optional<V>> load = new CompletableFuture<>();
+        CompletableFuture<Optional<V>> running = loads.putIfAbsent(key, load);
+        if (running != null) {
+            coalescedLoads.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException r ? r : e;
+            }
+        }
+        try {
+            Optional<V> result = load(key, loader);
+            load.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    private Optional<V> load(K key, Function<? super K, Optional<? extends V>> loader) {
+        // a load that finished between our lookup and our claim has already cached its result
+        Entry<V> current = map.get(key);
+        if (current != null && !current.isExpired(time.nowNanos())) {
+            return Optional.ofNullable(current.value);
+        }
+        loadCount.increment();
+        Optional<? extends V> loaded =
+                Objects.requireNonNull(loader.apply(key), "loader must not return null");
+        if (loaded.isPresent()) {
+            V value = loaded.get();
+            internalPut(key, value, expiry == null ? Long.MAX_VALUE : BY_POLICY, false, false);
+            return Optional.of(value);
+        }
+        if (negativeTtlNanos > 0) {
+            storeAbsent(key);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Caches that {@code key} has no value, for the negative TTL, so reads stop going to the store
+     * for it. Replaces a cached value; the writer is not called. Requires {@link
+     * Builder#negativeTtl(long)}.
+     *
+     * @throws IllegalStateException if the cache was built without negative caching
+     */
+    public void markAbsent(K key) {
+        Objects.requireNonNull(key, "key must not be null");
+        if (negativeTtlNanos == 0) {
+            throw new IllegalStateException("negative caching is not enabled");
+        }
+        storeAbsent(key);
+    }
+
+    private void storeAbsent(K key) {
+        Entry<V> sentinel = absentSentinel(time.nowNanos());
+        Entry<V> previous = link(key, sentinel);
+        if (previous != null) {
+            onRemoval(key, previous, RemovalCause.REPLACED);
+        }
+        evictIfOverCapacity();
+    }
+
+    /**
+     * The sentinel to store for a key marked absent at {@code now}. Keys marked within {@link
+     * #SENTINEL_SHARING_NANOS} of each other share one, so an absent key costs a map slot and an
+     * LRU node but no entry of its own; the price is a negative TTL up to that much shorter.
+     */
+    private Entry<V> absentSentinel(long now) {
+        long deadline = deadline(now, negativeTtlNanos);
+        Entry<V> sentinel = absent;
+        if (sentinel == null || deadline - sentinel.expiresAtNanos >= SENTINEL_SHARING_NANOS) {
+            sentinel = new Entry<>(null, deadline);
+            absent = sentinel;
+        }
+        return sentinel;
     }
 
     @Override
     public boolean remove(K key) {
         Objects.requireNonNull(key, "key must not be null");
 
-        Entry<V> remove = map.remove(key);
+        writer.delete(key);
+        return evict(key, RemovalCause.EXPLICIT);
+    }
+
+    /**
+     * Drops entries from this cache only, without calling the writer: for when the source of truth
+     * already changed, e.g. on an invalidation from another instance. Listeners see {@link
+     * RemovalCause#EXPLICIT}.
+     *
+     * @return the number of entries dropped
+     */
+    public int invalidateAll(Collection<? extends K> keys) {
+        Objects.requireNonNull(keys, "keys must not be null");
+        int dropped = 0;
+        for (K key : keys) {
+            if (evict(Objects.requireNonNull(key, "key must not be null"), RemovalCause.EXPLICIT)) {
+                ++dropped;
+            }
+        }
+        return dropped;
+    }
+
+    /** Removes the entry locally; evictions are never propagated to the writer. */
+    private boolean evict(K key, RemovalCause cause) {
+        Entry<V> remove = unlink(key, null);
         if (remove != null) {
-            lruList.removeKey(key);
+            onRemoval(key, remove, cause);
+        }
+        return remove != null && remove.value != null;
+    }
+
+    /** Removes an entry found expired, unless a write has replaced it since. */
+    private void expire(K key, Entry<V> entry) {
+        Entry<V> removed = unlink(key, entry);
+        if (removed != null) {
+            if (removed.value != null) {
+                recordEvictionsByTtl(1);
+            }
+            onRemoval(key, removed, RemovalCause.EXPIRED);
+        }
+    }
+
+    /*
+     * The map and the LRU list change together, inside the map's lock for the key, so that once
+     * writers are done every cached key has exactly one LRU node and every node a cached key.
+     * Updating them one after the other let a put and a removal of the same key interleave into
+     * an entry without a node, which capacity eviction could then never find. Lock order is
+     * always map bin, then LRU list; reads only move existing nodes and never add one.
+     *
+     * Pinned entries are the exception: they have no node, so eviction never has to skip them,
+     * and pinnedCount changes in the same critical sections so that it matches the map.
+     */
+
+    /**
+     * Stores {@code entry} and moves the key to the MRU end, or out of the LRU list if the entry
+     * ends up pinned; returns the replaced entry. A value replacing a pinned one stays pinned;
+     * a new pin is dropped if the pinned budget is spent.
+     */
+    private Entry<V> link(K key, Entry<V> entry) {
+        Displaced<V> displaced = new Displaced<>();
+        map.compute(
+                key,
+                (k, current) -> {
+                    displaced.entry = current;
+                    boolean wasPinned = current != null && current.pinned;
+                    boolean pin = entry.value != null && (entry.pinned || wasPinned);
+                    if (pin && !wasPinned) {
+                        pin = pinnedCount.getAndUpdate(n -> n < maxPinned ? n + 1 : n) < maxPinned;
+                    } else if (!pin && wasPinned) {
+                        pinnedCount.decrementAndGet();
+                    }
+                    if (entry.value != null) {
+                        entry.pinned = pin; // never on the shared absent sentinel
+                    }
+                    if (pin) {
+                        lruList.removeKey(k);
+                    } else {
+                        lruList.recordAccess(k);
+                    }
+                    return entry;
+                });
+        return displaced.entry;
+    }
+
+    /**
+     * Removes the key's entry and LRU node if the entry is {@code expected}, or whatever it is
+     * when {@code expected} is null; returns the removed entry, or null if nothing was removed.
+     */
+    private Entry<V> unlink(K key, Entry<V> expected) {
+        Displaced<V> displaced = new Displaced<>();
+        map.computeIfPresent(
+                key,
+                (k, current) -> {
+                    if (expected != null && current != expected) {
+                        return current;
+                    }
+                    displaced.entry = current;
+                    if (current.pinned) {
+                        pinnedCount.decrementAndGet();
+                    } else {
+                        lruList.removeKey(k);
+                    }
+                    return null;
+                });
+        return displaced.entry;
+    }
+
+    /**
+     * Removes an entry whose LRU node capacity eviction just popped, unless a write put the key
+     * back in the list or pinned it since; returns the removed entry, or null. A live entry is
+     * handed to the eviction sink before the key's lock is released, so a removal of the same key
+     * sees either the entry or what the sink did with it.
+     */
+    private Entry<V> unlinkEldest(K key, long now) {
+        Displaced<V> displaced = new Displaced<>();
+        map.computeIfPresent(
+                key,
+                (k, current) -> {
+                    if (current.pinned || lruList.contains(k)) {
+                        return current;
+                    }
+                    displaced.entry = current;
+                    if (capacityEvictionSink != null
+                            && current.value != null
+                            && !current.isExpired(now)) {
+                        capacityEvictionSink.accept(k, current);
+                    }
+                    return null;
+                });
+        return displaced.entry;
+    }
+
+    /** Carries the entry a remapping function replaced or removed back to its caller. */
+    private static final class Displaced<V> {
+        Entry<V> entry;
+    }
+
+    /** Unlinks a removed entry from the timing wheel and tells the listener. */
+    private void onRemoval(K key, Entry<V> entry, RemovalCause cause) {
+        if (entry.value == null) {
+            return; // absent markers are never scheduled and never reported
+        }
+        if (wheel != null) {
+            wheel.deschedule(entry);
+        }
+        if (notifier != null) {
+            notifier.publish(key, entry.value, cause);
         }
-        return remove != null;
     }
 
     @Override
     public void clear() {
-        map.clear();
+        if (wheel != null) {
+            wheel.clear();
+        }
+        for (K key : map.keySet()) {
+            Entry<V> entry = unlink(key, null);
+            if (notifier != null && entry != null && entry.value != null) {
+                notifier.publish(key, entry.value, RemovalCause.EXPLICIT);
+            }
+        }
     }
 
     @Override
     public long size() {
         // TODO Optimize later this O(n) implementation
+        long now = time.nowNanos();
         long count = 0;
-        for (K key : map.keySet()) {
-            if (map.get(key).isExpired(time.nowNanos())) {
-                evictionsByTtl.increment();
-                remove(key);
-            } else {
+        for (Map.Entry<K, Entry<V>> e : map.entrySet()) {
+            Entry<V> entry = e.getValue();
+            if (entry.isExpired(now)) {
+                expire(e.getKey(), entry);
+            } else if (entry.value != null) {
                 ++count;
             }
         }
@@ -134,4 +806,219 @@ public class SimpleTTLCache<K, V> implements Cache<K, V> {
         return new MetricsSnapshot(
                 hits.sum(), misses.sum(), evictionsByTtl.sum(), evictionsByCapacity.sum());
     }
+
+    /**
+     * Counters for reads answered without a value or a miss: negative hits and known-keys filter
+     * rejections, plus {@link #getOrLoad} loads. These reads count as neither hits nor misses in
+     * {@link #metricsSnapshot()}.
+     */
+    public NegativeCacheMetrics negativeMetricsSnapshot() {
+        return new NegativeCacheMetrics(
+                negativeHits.sum(), filterRejections.sum(), loadCount.sum(), coalescedLoads.sum());
+    }
+
+    /**
+     * Counters over the last {@code windowSeconds} whole seconds, for spotting a drop in hit rate
+     * as it happens. Requires {@link Builder#rollingStats(int)}.
+     *
+     * @throws IllegalStateException if the cache was built without rolling statistics
+     */
+    public RollingWindowSnapshot metricsSnapshot(int windowSeconds) {
+        if (rollingStats == null) {
+            throw new IllegalStateException("rolling statistics are not enabled");
+        }
+        return rollingStats.snapshot(windowSeconds);
+    }
+
+    /**
+     * The {@code k} most read keys over the sketch's window, hits and misses alike. Requires
+     * {@link Builder#hotKeys(HeavyHitters)}.
+     *
+     * @throws IllegalStateException if the cache was built without hot-key detection
+     */
+    public List<HotKey<K>> hotKeys(int k) {
+        if (hotKeys == null) {
+            throw new IllegalStateException("hot-key detection is not enabled");
+        }
+        return hotKeys.topK(k);
+    }
+
+    // each counter is kept for the lifetime snapshot and, when enabled, per second
+
+    private void recordHits(long count) {
+        hits.add(count);
+        if (rollingStats != null) {
+            rollingStats.recordHits(count);
+        }
+    }
+
+    private void recordMisses(long count) {
+        misses.add(count);
+        if (rollingStats != null) {
+            rollingStats.recordMisses(count);
+        }
+    }
+
+    private void recordEvictionsByTtl(long count) {
+        evictionsByTtl.add(count);
+        if (rollingStats != null) {
+            rollingStats.recordEvictionsByTtl(count);
+        }
+    }
+
+    private void recordEvictionsByCapacity(long count) {
+        evictionsByCapacity.add(count);
+        if (rollingStats != null) {
+            rollingStats.recordEvictionsByCapacity(count);
+        }
+    }
+
+    /**
+     * Removal notifications that a removing thread delivered itself because the listener queue was
+     * full; a sign that the listener cannot keep up. 0 without a listener.
+     */
+    public long removalNotificationsDeliveredByCaller() {
+        return notifier == null ? 0 : notifier.deliveredByPublisher();
+    }
+
+    /** Removal notifications whose listener threw; 0 without a listener. */
+    public long removalListenerFailures() {
+        return notifier == null ? 0 : notifier.failures();
+    }
+
+    /**
+     * Configures optional cache features. Defaults match {@link
+     * SimpleTTLCache#SimpleTTLCache(TimeProvider)}: no capacity bound, no writer and no removal
+     * listener.
+     */
+    public static final class Builder<K, V> {
+
+        private final TimeProvider time;
+        private int maxEntries = Integer.MAX_VALUE;
+        private CacheWriter<K, V> writer = CacheWriter.disabled();
+        private RemovalListener<K, V> removalListener;
+        private Executor listenerExecutor = ForkJoinPool.commonPool();
+        private int listenerQueueCapacity = 1024;
+        private BiConsumer<K, Entry<V>> capacityEvictionSink;
+        private Expiry<K, V> expiry;
+        private int rollingWindowSeconds;
+        private HeavyHitters<K> hotKeys;
+        private long negativeTtlMillis;
+        private BloomFilter<K> knownKeys;
+        private int maxPinned;
+
+        private Builder(TimeProvider time) {
+            this.time = Objects.requireNonNull(time, "time must not be null");
+        }
+
+        public Builder<K, V> maxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        public Builder<K, V> writer(CacheWriter<K, V> writer) {
+            this.writer = Objects.requireNonNull(writer, "writer must not be null");
+            return this;
+        }
+
+        public Builder<K, V> removalListener(RemovalListener<K, V> listener) {
+            this.removalListener = Objects.requireNonNull(listener, "listener must not be null");
+            return this;
+        }
+
+        /** Executor that runs the removal listener; defaults to the common fork/join pool. */
+        public Builder<K, V> listenerExecutor(Executor executor) {
+            this.listenerExecutor = Objects.requireNonNull(executor, "executor must not be null");
+            return this;
+        }
+
+        /**
+         * Maximum number of undelivered notifications. When full, the thread that removed an entry
+         * delivers queued notifications itself until there is room, rather than dropping any.
+         */
+        public Builder<K, V> listenerQueueCapacity(int capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("capacity must be greater than 0");
+            }
+            this.listenerQueueCapacity = capacity;
+            return this;
+        }
+
+        /**
+         * Computes each entry's lifetime on create, update and read, e.g. to expire entries after
+         * access or to take a TTL from the value. Expired entries are then also removed without
+         * being read, by a timing wheel that writes and reads advance.
+         */
+        public Builder<K, V> expiry(Expiry<K, V> expiry) {
+            this.expiry = Objects.requireNonNull(expiry, "expiry must not be null");
+            return this;
+        }
+
+        /**
+         * Keeps per-second counters for the last {@code maxWindowSeconds}, read with {@link
+         * SimpleTTLCache#metricsSnapshot(int)}. Costs a clock read on every recorded operation.
+         */
+        public Builder<K, V> rollingStats(int maxWindowSeconds) {
+            if (maxWindowSeconds <= 0) {
+                throw new IllegalArgumentException("maxWindowSeconds must be greater than 0");
+            }
+            this.rollingWindowSeconds = maxWindowSeconds;
+            return this;
+        }
+
+        /**
+         * Feeds every key read into {@code sketch}, read back with {@link
+         * SimpleTTLCache#hotKeys(int)}. Sample in the sketch to keep the cost off the read path.
+         */
+        public Builder<K, V> hotKeys(HeavyHitters<K> sketch) {
+            this.hotKeys = Objects.requireNonNull(sketch, "sketch must not be null");
+            return this;
+        }
+
+        /**
+         * Enables {@link SimpleTTLCache#markAbsent(Object)}, and makes {@link
+         * SimpleTTLCache#getOrLoad} cache empty loads: the key is then remembered as absent for
+         * {@code ttlMillis}. Keep it short, as a key created in the store meanwhile stays absent
+         * here until it expires or is put.
+         */
+        public Builder<K, V> negativeTtl(long ttlMillis) {
+            if (ttlMillis <= 0) {
+                throw new IllegalArgumentException("ttlMillis must be greater than 0");
+            }
+            this.negativeTtlMillis = ttlMillis;
+            return this;
+        }
+
+        /**
+         * Rejects reads of keys the filter has never seen, before they reach the map or a loader.
+         * Puts add their keys; the caller must add the keys that exist in the store, and rebuild
+         * the filter when removals leave it too full.
+         */
+        public Builder<K, V> knownKeys(BloomFilter<K> filter) {
+            this.knownKeys = Objects.requireNonNull(filter, "filter must not be null");
+            return this;
+        }
+
+        /**
+         * Enables {@link SimpleTTLCache#putPinned}, for up to {@code maxPinned} entries on top of
+         * {@code maxEntries}. Pinned entries are never evicted for capacity, only when they expire
+         * or are removed.
+         */
+        public Builder<K, V> maxPinned(int maxPinned) {
+            if (maxPinned <= 0) {
+                throw new IllegalArgumentException("maxPinned must be greater than 0");
+            }
+            this.maxPinned = maxPinned;
+            return this;
+        }
+
+        Builder<K, V> capacityEvictionSink(BiConsumer<K, Entry<V>> sink) {
+            this.capacityEvictionSink = Objects.requireNonNull(sink, "sink must not be null");
+            return this;
+        }
+
+        public SimpleTTLCache<K, V> build() {
+            return new SimpleTTLCache<>(this);
+        }
+    }
 }
@@ -0,0 +1,279 @@
+package com.limitra.cache;
+
+import com.limitra.metrics.CacheMetrics;
+import com.limitra.metrics.MetricsSnapshot;
+import com.limitra.time.TimeProvider;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A small on-heap {@link SimpleTTLCache} (L1) in front of a large {@link OffHeapStore} (L2).
+ *
+ * <p>Contracts:
+ *
+ * <ul>
+ *   <li><b>Exclusive tiers:</b> A key lives in at most one tier. Writes go to L1 and drop any L2
+ *       copy.
+ *   <li><b>Demotion:</b> Entries that L1 evicts for capacity move to L2. Entries that L1 drops
+ *       because they expired are not demoted.
+ *   <li><b>Promotion:</b> An L2 hit moves the entry back to L1, which may demote another entry.
+ *   <li><b>TTL:</b> An entry keeps its original expiry time in both tiers and across moves.
+ *   <li><b>Consistency:</b> Moves, writes and removals of the same key are serialized by a
+ *       striped lock. Each of them cancels the key's pending demotion, and a demotion is dropped
+ *       if L1 holds the key again, so a demotion never overwrites a newer value or brings back a
+ *       removed key. L1 hits take no tiered lock.
+ * </ul>
+ *
+ * <p>{@link #l1Metrics()} and {@link #l2Metrics()} report each tier separately. L1 capacity
+ * evictions are demotions, not losses; L2 capacity evictions are entries the L2 log wrote over.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class TieredCache<K, V> implements Cache<K, V>, AutoCloseable {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final TimeProvider time;
+    private final SimpleTTLCache<K, V> l1;
+    private final OffHeapStore<K, V> l2;
+    private final ReentrantLock[] locks;
+    // the latest entry L1 evicted per key, filled by L1 inside its lock for the key and taken
+    // only under the key's stripe lock, so removals and writes can cancel it
+    private final ConcurrentHashMap<K, Entry<V>> pendingDemotions;
+    // keys with a pending demotion, in eviction order; a key may be queued more than once
+    private final ConcurrentLinkedQueue<K> demotionQueue;
+
+    private final LongAdder l2Hits;
+    private final LongAdder l2Misses;
+    private final LongAdder l2EvictionsByTtl;
+    private final LongAdder promotions;
+    private final LongAdder demotions;
+
+    public TieredCache(TimeProvider time, int l1MaxEntries, OffHeapStore<K, V> l2) {
+        this.time = Objects.requireNonNull(time, "time must not be null");
+        this.l2 = Objects.requireNonNull(l2, "l2 must not be null");
+        ConcurrentHashMap<K, Entry<V>> pending = new ConcurrentHashMap<>();
+        ConcurrentLinkedQueue<K> queue = new ConcurrentLinkedQueue<>();
+        this.pendingDemotions = pending;
+        this.demotionQueue = queue;
+        this.l1 =
+                SimpleTTLCache.<K, V>builder(time)
+                        .maxEntries(l1MaxEntries)
+                        .capacityEvictionSink(
+                                (key, entry) -> {
+                                    pending.put(key, entry);
+                                    queue.add(key);
+                                })
+                        .build();
+        this.locks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.l2Hits = new LongAdder();
+        this.l2Misses = new LongAdder();
+        this.l2EvictionsByTtl = new LongAdder();
+        this.promotions = new LongAdder();
+        this.demotions = new LongAdder();
+    }
+
+    private ReentrantLock lockFor(Object key) {
+        int h = key.hashCode();
+        return locks[(h ^ (h >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    @Override
+    public void put(K key, V value) {
+        Objects.requireNonNull(key, "key must not be null");
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            pendingDemotions.remove(key);
+            l2.remove(key);
+            l1.put(key, value);
+        } finally {
+            lock.unlock();
+        }
+        applyDemotions();
+    }
+
+    @Override
+    public void put(K key, V value, long ttlMillis) {
+        Objects.requireNonNull(key, "key must not be null");
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            pendingDemotions.remove(key);
+            l2.remove(key);
+            l1.put(key, value, ttlMillis);
+        } finally {
+            lock.unlock();
+        }
+        applyDemotions();
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        Objects.requireNonNull(entries, "entries must not be null");
+        entries.forEach(this::put);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries, long ttlMillis) {
+        Objects.requireNonNull(entries, "entries must not be null");
+        entries.forEach((key, value) -> put(key, value, ttlMillis));
+    }
+
+    @Override
+    public Optional<V> get(K key) {
+        Optional<V> hit = l1.get(key);
+        if (hit.isPresent()) {
+            return hit;
+        }
+        applyDemotions(); // the key may be on its way down
+        V promoted = null;
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            Entry<V> current = l1.map.get(key);
+            long now = time.nowNanos();
+            if (current != null && !current.isExpired(now)) {
+                return Optional.of(current.value); // promoted by a concurrent get
+            }
+            Entry<V> entry = pendingDemotions.remove(key); // evicted, not yet demoted
+            if (entry == null) {
+                entry = l2.take(key);
+            }
+            if (entry == null) {
+                l2Misses.increment();
+            } else if (entry.isExpired(now)) {
+                l2Misses.increment();
+                l2EvictionsByTtl.increment();
+            } else {
+                l2Hits.increment();
+                promotions.increment();
+                l1.putUntil(key, entry.value, entry.expiresAtNanos);
+                promoted = entry.value;
+            }
+        } finally {
+            lock.unlock();
+        }
+        applyDemotions();
+        return Optional.ofNullable(promoted);
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Objects.requireNonNull(keys, "keys must not be null");
+        Map<K, V> found = new HashMap<>();
+        for (K key : keys) {
+            get(key).ifPresent(value -> found.put(key, value));
+        }
+        return found;
+    }
+
+    @Override
+    public boolean remove(K key) {
+        Objects.requireNonNull(key, "key must not be null");
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            boolean fromL1 = l1.remove(key);
+            // L1 hands an evicted entry over before its own lock for the key is released, so
+            // once l1.remove has run, the entry is either pending here or already in L2
+            Entry<V> pending = pendingDemotions.remove(key);
+            boolean fromL2 = l2.remove(key);
+            return fromL1 || fromL2 || (pending != null && !pending.isExpired(time.nowNanos()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int removeAll(Collection<? extends K> keys) {
+        Objects.requireNonNull(keys, "keys must not be null");
+        int removed = 0;
+        for (K key : keys) {
+            if (remove(key)) {
+                ++removed;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        pendingDemotions.clear();
+        demotionQueue.clear();
+        l1.clear();
+        l2.clear();
+    }
+
+    @Override
+    public long size() {
+        applyDemotions();
+        return l1.size() + l2.size();
+    }
+
+    /**
+     * Moves entries evicted from L1 into L2. A write, removal or promotion of the key takes its
+     * pending demotion under the same stripe lock. A write to L1 may still race an eviction of
+     * the value it replaces, which then arrives after the write has cancelled the pending
+     * demotion; such an entry is dropped here because L1 already holds a newer value for the key.
+     */
+    private void applyDemotions() {
+        K key;
+        while ((key = demotionQueue.poll()) != null) {
+            ReentrantLock lock = lockFor(key);
+            lock.lock();
+            try {
+                Entry<V> entry = pendingDemotions.remove(key);
+                if (entry == null || entry.isExpired(time.nowNanos())) {
+                    continue; // applied by an earlier queue slot, cancelled, or expired
+                }
+                if (l1.map.containsKey(key)) {
+                    continue; // evicted before a write that is now in L1, even if it expired
+                }
+                if (l2.put(key, entry.value, entry.expiresAtNanos)) {
+                    demotions.increment();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Hits, misses and evictions of the on-heap tier. */
+    public CacheMetrics l1Metrics() {
+        return l1.metricsSnapshot();
+    }
+
+    /** Lookups that missed L1, split into L2 hits and misses, and L2's own evictions. */
+    public CacheMetrics l2Metrics() {
+        return new MetricsSnapshot(
+                l2Hits.sum(), l2Misses.sum(), l2EvictionsByTtl.sum(), l2.evictedByCapacity());
+    }
+
+    /** Entries moved from L2 to L1 on a hit. */
+    public long promotions() {
+        return promotions.sum();
+    }
+
+    /** Entries moved from L1 to L2 on eviction. */
+    public long demotions() {
+        return demotions.sum();
+    }
+
+    @Override
+    public void close() {
+        clear();
+        l2.close();
+    }
+}
@@ -0,0 +1,221 @@
+package com.limitra.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hierarchical timing wheel that finds the expired entries of a {@link SimpleTTLCache} without
+ * scanning the map.
+ *
+ * <p>Each level is a ring of 64 buckets. A bucket spans 2^20 ns (about 1 ms) on the first level
+ * and 64 times more on each level above it: 67 ms, 4.3 s, 4.6 min and 4.9 h. An entry goes into
+ * the finest level whose ring still reaches its deadline, so linking and unlinking it is O(1).
+ * {@link #advance} walks only the buckets the clock has passed since the previous call; entries
+ * from a coarse bucket either expire or move down to a finer level.
+ *
+ * <p>The deadline in the {@link Entry} stays the source of truth. A read that extends it does not
+ * touch the wheel: when the entry's old bucket comes due, the entry is found to be still live and
+ * is linked again under its new deadline. Expiring after access therefore costs a volatile write
+ * per read and at most one relink per lifetime that passes.
+ *
+ * <p>All methods are guarded by one lock; {@link #advance} can skip when another thread holds it.
+ * The wheel has no thread of its own and reads no clock, so it is deterministic under a fake one.
+ */
+final class TimerWheel<K, V> {
+
+    private static final int[] SHIFTS = {20, 26, 32, 38, 44};
+    private static final int BUCKETS = 64;
+
+    private final ReentrantLock lock;
+    private final Node<K, V>[][] buckets;
+    // the clock reading of the last advance; written under lock
+    private volatile long nanos;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(long nowNanos) {
+        this.lock = new ReentrantLock();
+        this.buckets = (Node<K, V>[][]) new Node<?, ?>[SHIFTS.length][BUCKETS];
+        for (Node<K, V>[] level : buckets) {
+            for (int i = 0; i < BUCKETS; i++) {
+                level[i] = Node.sentinel();
+            }
+        }
+        this.nanos = nowNanos;
+    }
+
+    /** Links an entry unless it is eternal or already linked. */
+    void schedule(K key, Entry<V> entry) {
+        if (entry.expiresAtNanos == Long.MAX_VALUE) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (entry.timer != null) {
+                return;
+            }
+            Node<K, V> node = new Node<>(key, entry);
+            entry.timer = node;
+            link(node);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Unlinks an entry that left the cache. */
+    void deschedule(Entry<V> entry) {
+        lock.lock();
+        try {
+            @SuppressWarnings("unchecked")
+            Node<K, V> node = (Node<K, V>) entry.timer;
+            if (node != null) {
+                unlink(node);
+                entry.timer = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the wheel to {@code now} and unlinks the entries whose deadline has passed. Returns
+     * immediately if the clock has not left the current 1 ms bucket, or if {@code wait} is false
+     * and another thread is advancing.
+     *
+     * @return the expired nodes, for the caller to remove from the map
+     */
+    List<Node<K, V>> advance(long now, boolean wait) {
+        if ((now >> SHIFTS[0]) <= (nanos >> SHIFTS[0])) {
+            return List.of();
+        }
+        if (wait) {
+            lock.lock();
+        } else if (!lock.tryLock()) {
+            return List.of();
+        }
+        try {
+            long previous = nanos;
+            if (now <= previous) {
+                return List.of();
+            }
+            nanos = now;
+            List<Node<K, V>> expired = new ArrayList<>();
+            // coarse levels first, so entries they hand down are seen by the finer passes
+            for (int level = SHIFTS.length - 1; level >= 0; level--) {
+                long from = previous >> SHIFTS[level];
+                long to = now >> SHIFTS[level];
+                if (from == to) {
+                    continue;
+                }
+                long passed = Math.min(to - from + 1, BUCKETS);
+                for (long tick = from; tick < from + passed; tick++) {
+                    expire(buckets[level][(int) (tick & (BUCKETS - 1))], now, expired);
+                }
+            }
+            return expired;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Empties a bucket: expired nodes go to {@code expired}, live ones are linked again. */
+    private void expire(Node<K, V> sentinel, long now, List<Node<K, V>> expired) {
+        Node<K, V> node = sentinel.next;
+        sentinel.next = sentinel;
+        sentinel.prev = sentinel;
+        while (node != sentinel) {
+            Node<K, V> next = node.next;
+            long deadline = node.entry.expiresAtNanos;
+            if (now >= deadline) {
+                node.prev = null;
+                node.next = null;
+                node.entry.timer = null;
+                expired.add(node);
+            } else if (deadline == Long.MAX_VALUE) {
+                node.prev = null;
+                node.next = null;
+                node.entry.timer = null; // made eternal by a read
+            } else {
+                link(node);
+            }
+            node = next;
+        }
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            for (Node<K, V>[] level : buckets) {
+                for (Node<K, V> sentinel : level) {
+                    Node<K, V> node = sentinel.next;
+                    while (node != sentinel) {
+                        Node<K, V> next = node.next;
+                        node.entry.timer = null;
+                        node.prev = null;
+                        node.next = null;
+                        node = next;
+                    }
+                    sentinel.next = sentinel;
+                    sentinel.prev = sentinel;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void link(Node<K, V> node) {
+        Node<K, V> sentinel = bucketFor(node.entry.expiresAtNanos);
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+        }
+    }
+
+    private Node<K, V> bucketFor(long deadline) {
+        long current = nanos;
+        if (deadline <= current) {
+            // already due: the bucket of the current millisecond is walked on the next advance
+            return buckets[0][(int) ((current >> SHIFTS[0]) & (BUCKETS - 1))];
+        }
+        long delta = deadline - current;
+        if (delta < 0) {
+            delta = Long.MAX_VALUE; // the subtraction overflowed
+        }
+        int level = 0;
+        while (level < SHIFTS.length - 1 && delta >= (1L << SHIFTS[level + 1])) {
+            ++level;
+        }
+        // beyond the last ring (about 13 days) the bucket comes due early and is relinked then
+        return buckets[level][(int) ((deadline >> SHIFTS[level]) & (BUCKETS - 1))];
+    }
+
+    static final class Node<K, V> {
+
+        final K key;
+        final Entry<V> entry;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, Entry<V> entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+
+        private static <K, V> Node<K, V> sentinel() {
+            Node<K, V> sentinel = new Node<>(null, null);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+    }
+}
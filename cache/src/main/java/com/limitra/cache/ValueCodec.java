@@ -0,0 +1,55 @@
+package com.limitra.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Converts cache values to and from bytes, for tiers that keep values outside the Java heap.
+ *
+ * @param <V> the type of values
+ */
+public interface ValueCodec<V> {
+
+    byte[] encode(V value);
+
+    V decode(byte[] bytes, int offset, int length);
+
+    /** Stores byte arrays as they are. */
+    static ValueCodec<byte[]> bytes() {
+        return BytesCodec.INSTANCE;
+    }
+
+    static ValueCodec<String> utf8() {
+        return Utf8Codec.INSTANCE;
+    }
+
+    enum BytesCodec implements ValueCodec<byte[]> {
+        INSTANCE;
+
+        @Override
+        public byte[] encode(byte[] value) {
+            return value;
+        }
+
+        @Override
+        public byte[] decode(byte[] bytes, int offset, int length) {
+            return offset == 0 && length == bytes.length
+                    ? bytes
+                    : Arrays.copyOfRange(bytes, offset, offset + length);
+        }
+    }
+
+    enum Utf8Codec implements ValueCodec<String> {
+        INSTANCE;
+
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes, int offset, int length) {
+            return new String(bytes, offset, length, StandardCharsets.UTF_8);
+        }
+    }
+}
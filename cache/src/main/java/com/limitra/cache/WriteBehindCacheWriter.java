@@ -0,0 +1,349 @@
+package com.limitra.cache;
+
+import com.limitra.metrics.WriterMetrics;
+import com.limitra.metrics.WriterMetricsSnapshot;
+import com.limitra.time.TimeProvider;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link CacheWriter} that buffers mutations and flushes them to a delegate store in batches.
+ *
+ * <p>Contracts:
+ *
+ * <ul>
+ *   <li><b>Coalescing:</b> Only the latest pending mutation per key is kept. Repeated writes to a
+ *       hot key between two flushes cost the store a single write.
+ *   <li><b>Batching:</b> A batch is flushed once {@code batchSize} keys are pending, or once the
+ *       oldest pending mutation is older than {@code maxDelayMillis} according to the {@link
+ *       TimeProvider}.
+ *   <li><b>Backpressure:</b> At most {@code bufferCapacity} distinct keys may be pending, plus up
+ *       to {@code batchSize} keys whose flush failed. Producers block when the buffer is full
+ *       until the flusher catches up.
+ *   <li><b>Flushing:</b> Nothing is flushed unless {@link #flushIfDue()}, {@link #flush()} or
+ *       {@link #close()} is called, or a scheduler was attached with {@link #start}. This keeps
+ *       tests deterministic under a fake clock. Without a scheduler, a producer that finds the
+ *       buffer full flushes on its own thread instead of waiting for a flush nobody will run.
+ *   <li><b>Failures:</b> If the store throws, the failed mutations are retried ahead of newer
+ *       keys by the next flush, unless a newer mutation for the same key arrived in the
+ *       meantime. They are kept outside the buffer, so a full buffer never drops
+ *       them; a store that keeps failing eventually blocks producers instead.
+ * </ul>
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class WriteBehindCacheWriter<K, V> implements CacheWriter<K, V>, AutoCloseable {
+
+    private final CacheWriter<K, V> store;
+    private final TimeProvider time;
+    private final int batchSize;
+    private final long maxDelayNanos;
+
+    // keys in arrival order (MPSC: many producers, the flush lock holder is the only consumer)
+    private final ArrayBlockingQueue<K> queue;
+    // latest pending mutation per key; a null value in Op means delete
+    private final ConcurrentHashMap<K, Op<V>> pending;
+    // keys of failed batches, flushed before the queue; at most batchSize, guarded by flushLock
+    private final ArrayDeque<K> retries;
+    private final ReentrantLock flushLock;
+    private final AtomicBoolean flushRequested;
+
+    private volatile long oldestPendingNanos;
+    private volatile boolean retrying;
+    private volatile ScheduledExecutorService scheduler;
+    private volatile ScheduledFuture<?> ticker;
+
+    private final LongAdder queued;
+    private final LongAdder coalesced;
+    private final LongAdder flushedBatches;
+    private final LongAdder flushedEntries;
+    private final LongAdder backpressureWaits;
+    private final LongAdder failures;
+
+    public WriteBehindCacheWriter(
+            CacheWriter<K, V> store,
+            TimeProvider time,
+            int bufferCapacity,
+            int batchSize,
+            long maxDelayMillis) {
+        Objects.requireNonNull(store, "store must not be null");
+        Objects.requireNonNull(time, "time must not be null");
+        if (bufferCapacity <= 0) {
+            throw new IllegalArgumentException("bufferCapacity must be greater than 0");
+        }
+        if (batchSize <= 0 || batchSize > bufferCapacity) {
+            throw new IllegalArgumentException("batchSize must be in (0, bufferCapacity]");
+        }
+        if (maxDelayMillis <= 0) {
+            throw new IllegalArgumentException("maxDelayMillis must be greater than 0");
+        }
+        this.store = store;
+        this.time = time;
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.queue = new ArrayBlockingQueue<>(bufferCapacity);
+        this.pending = new ConcurrentHashMap<>();
+        this.retries = new ArrayDeque<>(batchSize);
+        this.flushLock = new ReentrantLock();
+        this.flushRequested = new AtomicBoolean();
+        this.queued = new LongAdder();
+        this.coalesced = new LongAdder();
+        this.flushedBatches = new LongAdder();
+        this.flushedEntries = new LongAdder();
+        this.backpressureWaits = new LongAdder();
+        this.failures = new LongAdder();
+    }
+
+    @Override
+    public void write(K key, V value) {
+        Objects.requireNonNull(value, "value must not be null");
+        enqueue(key, new Op<>(value));
+    }
+
+    @Override
+    public void delete(K key) {
+        enqueue(key, new Op<>(null));
+    }
+
+    private void enqueue(K key, Op<V> op) {
+        Objects.requireNonNull(key, "key must not be null");
+        queued.increment();
+
+        if (pending.put(key, op) != null) {
+            // the key is already queued; the flusher will pick up the newest op
+            coalesced.increment();
+            return;
+        }
+
+        if (queue.isEmpty()) {
+            oldestPendingNanos = time.nowNanos();
+        }
+        if (!queue.offer(key)) {
+            backpressureWaits.increment();
+            if (scheduler != null) {
+                requestFlush();
+                putUninterruptibly(key);
+            } else {
+                flushUntilQueued(key);
+            }
+        }
+
+        if (queue.size() >= batchSize) {
+            requestFlush();
+        }
+    }
+
+    // other producers may already have coalesced onto this key, so giving up would orphan them
+    private void putUninterruptibly(K key) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(key);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Without a scheduler nobody else drains the buffer, so the producer flushes it itself. If the
+     * store fails, it waits up to {@code maxDelayMillis} for room before trying the store again.
+     */
+    private void flushUntilQueued(K key) {
+        boolean interrupted = false;
+        while (!queue.offer(key)) {
+            if (flushBatch() > 0) {
+                continue;
+            }
+            try {
+                if (queue.offer(key, maxDelayNanos, TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Flushes batches while the size or age threshold is reached.
+     *
+     * @return number of keys written to or deleted from the store
+     */
+    public int flushIfDue() {
+        int flushed = 0;
+        while (isDue()) {
+            int n = flushBatch();
+            if (n == 0) {
+                break;
+            }
+            flushed += n;
+        }
+        return flushed;
+    }
+
+    /**
+     * Flushes everything that is pending, regardless of thresholds.
+     *
+     * @return number of keys written to or deleted from the store
+     */
+    public int flush() {
+        int flushed = 0;
+        int n;
+        while ((n = flushBatch()) > 0) {
+            flushed += n;
+        }
+        return flushed;
+    }
+
+    private boolean isDue() {
+        int size = queue.size();
+        if (size == 0 && !retrying) {
+            return false;
+        }
+        return size >= batchSize || time.nowNanos() - oldestPendingNanos >= maxDelayNanos;
+    }
+
+    private int flushBatch() {
+        flushLock.lock();
+        try {
+            List<K> keys = new ArrayList<>(batchSize);
+            while (!retries.isEmpty() && keys.size() < batchSize) {
+                keys.add(retries.poll());
+            }
+            queue.drainTo(keys, batchSize - keys.size());
+            retrying = !retries.isEmpty();
+            if (keys.isEmpty()) {
+                return 0;
+            }
+            oldestPendingNanos = time.nowNanos();
+
+            Map<K, Op<V>> batch = new HashMap<>();
+            Map<K, V> writes = new HashMap<>();
+            List<K> deletes = new ArrayList<>();
+            for (K key : keys) {
+                Op<V> op = pending.remove(key);
+                if (op == null) {
+                    continue;
+                }
+                batch.put(key, op);
+                if (op.value() != null) {
+                    writes.put(key, op.value());
+                } else {
+                    deletes.add(key);
+                }
+            }
+
+            try {
+                if (!writes.isEmpty()) {
+                    store.writeAll(writes);
+                }
+                if (!deletes.isEmpty()) {
+                    store.deleteAll(deletes);
+                }
+            } catch (RuntimeException e) {
+                failures.increment();
+                requeue(batch);
+                return 0;
+            }
+
+            flushedBatches.increment();
+            flushedEntries.add(batch.size());
+            return batch.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Keeps the failed ops for the next flush. They do not go back into the buffer, which producers
+     * may have filled meanwhile; the batch came from at most {@code batchSize} keys, so neither do
+     * the retries outgrow it.
+     */
+    private void requeue(Map<K, Op<V>> batch) {
+        for (Map.Entry<K, Op<V>> e : batch.entrySet()) {
+            // a newer op for the key is already queued and supersedes the failed one
+            if (pending.putIfAbsent(e.getKey(), e.getValue()) == null) {
+                retries.add(e.getKey());
+            }
+        }
+        retrying = !retries.isEmpty();
+    }
+
+    /**
+     * Starts flushing on the given scheduler: thresholds are checked every {@code tickMillis}, and
+     * a flush is triggered immediately when a producer fills a batch or hits a full buffer.
+     */
+    public void start(ScheduledExecutorService scheduler, long tickMillis) {
+        Objects.requireNonNull(scheduler, "scheduler must not be null");
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be greater than 0");
+        }
+        if (this.scheduler != null) {
+            throw new IllegalStateException("Already started");
+        }
+        this.scheduler = scheduler;
+        this.ticker =
+                scheduler.scheduleWithFixedDelay(
+                        this::flushIfDue, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void requestFlush() {
+        ScheduledExecutorService s = scheduler;
+        if (s != null && flushRequested.compareAndSet(false, true)) {
+            s.execute(
+                    () -> {
+                        flushRequested.set(false);
+                        flushIfDue();
+                    });
+        }
+    }
+
+    /** Stops the scheduled ticker (if any) and flushes everything that is pending. */
+    @Override
+    public void close() {
+        ScheduledFuture<?> t = ticker;
+        if (t != null) {
+            t.cancel(false);
+        }
+        flush();
+    }
+
+    /** Number of distinct keys waiting to be flushed. */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    public WriterMetrics metricsSnapshot() {
+        return new WriterMetricsSnapshot(
+                queued.sum(),
+                coalesced.sum(),
+                flushedBatches.sum(),
+                flushedEntries.sum(),
+                backpressureWaits.sum(),
+                failures.sum(),
+                pending.size());
+    }
+
+    private record Op<V>(V value) {}
+}
@@ -0,0 +1,54 @@
+package com.limitra.cache.invalidation;
+
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Connects {@link InvalidationTransport}s within one JVM, e.g. several caches in one process or
+ * simulated instances in a test. Each message is delivered to every other connected transport on
+ * the hub's executor.
+ */
+public class InMemoryInvalidationHub {
+
+    private final Executor executor;
+    private final CopyOnWriteArrayList<Endpoint> endpoints;
+
+    public InMemoryInvalidationHub(Executor executor) {
+        this.executor = Objects.requireNonNull(executor, "executor must not be null");
+        this.endpoints = new CopyOnWriteArrayList<>();
+    }
+
+    public InvalidationTransport connect() {
+        Endpoint endpoint = new Endpoint();
+        endpoints.add(endpoint);
+        return endpoint;
+    }
+
+    private final class Endpoint implements InvalidationTransport {
+
+        private volatile Consumer<byte[]> receiver;
+
+        @Override
+        public void publish(byte[] message) {
+            Objects.requireNonNull(message, "message must not be null");
+            for (Endpoint peer : endpoints) {
+                Consumer<byte[]> peerReceiver = peer.receiver;
+                if (peer != this && peerReceiver != null) {
+                    executor.execute(() -> peerReceiver.accept(message));
+                }
+            }
+        }
+
+        @Override
+        public void subscribe(Consumer<byte[]> receiver) {
+            this.receiver = Objects.requireNonNull(receiver, "receiver must not be null");
+        }
+
+        @Override
+        public void close() {
+            endpoints.remove(this);
+        }
+    }
+}
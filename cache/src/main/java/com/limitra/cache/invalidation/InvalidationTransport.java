@@ -0,0 +1,27 @@
+package com.limitra.cache.invalidation;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries encoded invalidation messages between cache instances.
+ *
+ * <p>Delivery is best effort: a lost message leaves a peer serving its entry until the entry's TTL
+ * runs out, so TTLs remain the backstop. Messages may arrive in any order; applying them is
+ * idempotent.
+ */
+public interface InvalidationTransport extends AutoCloseable {
+
+    /** Sends {@code message} to every other instance. The array must not be modified afterwards. */
+    void publish(byte[] message);
+
+    /** Largest message {@link #publish} accepts. */
+    default int maxMessageBytes() {
+        return Integer.MAX_VALUE;
+    }
+
+    /** Sets the callback for messages from other instances; it may run on any thread. */
+    void subscribe(Consumer<byte[]> receiver);
+
+    @Override
+    void close();
+}
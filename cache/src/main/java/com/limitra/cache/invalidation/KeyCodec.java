@@ -0,0 +1,29 @@
+package com.limitra.cache.invalidation;
+
+import java.nio.charset.StandardCharsets;
+
+/** Converts cache keys to and from the bytes carried in invalidation messages. */
+public interface KeyCodec<K> {
+
+    byte[] encode(K key);
+
+    K decode(byte[] bytes, int offset, int length);
+
+    static KeyCodec<String> utf8() {
+        return Utf8KeyCodec.INSTANCE;
+    }
+
+    enum Utf8KeyCodec implements KeyCodec<String> {
+        INSTANCE;
+
+        @Override
+        public byte[] encode(String key) {
+            return key.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes, int offset, int length) {
+            return new String(bytes, offset, length, StandardCharsets.UTF_8);
+        }
+    }
+}
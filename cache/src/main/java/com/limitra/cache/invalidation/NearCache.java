@@ -0,0 +1,355 @@
+package com.limitra.cache.invalidation;
+
+import com.limitra.cache.Cache;
+import com.limitra.cache.SimpleTTLCache;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A local {@link SimpleTTLCache} that keeps peer instances from serving stale entries.
+ *
+ * <p>Contracts:
+ *
+ * <ul>
+ *   <li><b>Publishing:</b> Every local {@code put}, {@code remove} and {@code clear} queues an
+ *       invalidation of the affected keys for all peers. Peers drop their copy and reload it from
+ *       the source of truth on their next miss; values are never shipped.
+ *   <li><b>Batching:</b> Queued keys are sent by {@link #flush()}, which {@link #start} runs every
+ *       {@code windowMillis}. A key changed many times within one window is sent once, and each
+ *       message packs as many keys as fit in {@code maxMessageBytes}.
+ *   <li><b>Applying:</b> Messages from peers are applied on the transport's thread with {@link
+ *       SimpleTTLCache#invalidateAll}, which does not call the local cache's writer.
+ *   <li><b>Failures:</b> If the transport throws, the keys of the messages it did not take stay
+ *       queued for the next flush; the scheduled flush counts the failure and keeps running. A
+ *       key the codec cannot encode makes peers clear their caches instead.
+ *   <li><b>Staleness:</b> A peer may serve an old value for up to one window plus transport delay,
+ *       or until its TTL expires if the message is lost.
+ * </ul>
+ *
+ * <p>Message format (big-endian): {@code type:int8 origin:int64 count:int16 (keyLength:int16
+ * keyBytes)*count}. Type 1 invalidates the listed keys, type 2 clears the cache.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public final class NearCache<K, V> implements Cache<K, V>, AutoCloseable {
+
+    static final byte TYPE_KEYS = 1;
+    static final byte TYPE_CLEAR = 2;
+    static final int HEADER_BYTES = 1 + 8 + 2;
+    private static final int MAX_KEYS_PER_MESSAGE = 0xFFFF;
+
+    private final SimpleTTLCache<K, V> local;
+    private final InvalidationTransport transport;
+    private final KeyCodec<K> codec;
+    private final long origin;
+    private final ByteBuffer messageBuffer;
+
+    private final Set<K> pending;
+    private final AtomicBoolean pendingClear;
+    private final ReentrantLock flushLock;
+    private volatile ScheduledFuture<?> ticker;
+
+    private final LongAdder queued;
+    private final LongAdder deduplicated;
+    private final LongAdder messagesSent;
+    private final LongAdder failedFlushes;
+    private final LongAdder keysReceived;
+
+    public NearCache(
+            SimpleTTLCache<K, V> local,
+            InvalidationTransport transport,
+            KeyCodec<K> codec,
+            int maxMessageBytes) {
+        this.local = Objects.requireNonNull(local, "local must not be null");
+        this.transport = Objects.requireNonNull(transport, "transport must not be null");
+        this.codec = Objects.requireNonNull(codec, "codec must not be null");
+        if (maxMessageBytes < HEADER_BYTES + 3) {
+            throw new IllegalArgumentException(
+                    "maxMessageBytes must be at least " + (HEADER_BYTES + 3));
+        }
+        if (maxMessageBytes > transport.maxMessageBytes()) {
+            throw new IllegalArgumentException(
+                    "maxMessageBytes exceeds the transport's " + transport.maxMessageBytes());
+        }
+        this.origin = ThreadLocalRandom.current().nextLong();
+        this.messageBuffer = ByteBuffer.allocate(maxMessageBytes);
+        this.pending = ConcurrentHashMap.newKeySet();
+        this.pendingClear = new AtomicBoolean();
+        this.flushLock = new ReentrantLock();
+        this.queued = new LongAdder();
+        this.deduplicated = new LongAdder();
+        this.messagesSent = new LongAdder();
+        this.failedFlushes = new LongAdder();
+        this.keysReceived = new LongAdder();
+        transport.subscribe(this::receive);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        local.put(key, value);
+        invalidatePeers(key);
+    }
+
+    @Override
+    public void put(K key, V value, long ttlMillis) {
+        local.put(key, value, ttlMillis);
+        invalidatePeers(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        local.putAll(entries);
+        entries.keySet().forEach(this::invalidatePeers);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries, long ttlMillis) {
+        local.putAll(entries, ttlMillis);
+        entries.keySet().forEach(this::invalidatePeers);
+    }
+
+    @Override
+    public Optional<V> get(K key) {
+        return local.get(key);
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        return local.getAll(keys);
+    }
+
+    @Override
+    public boolean remove(K key) {
+        boolean removed = local.remove(key);
+        invalidatePeers(key); // peers may hold the key even if we did not
+        return removed;
+    }
+
+    @Override
+    public int removeAll(Collection<? extends K> keys) {
+        int removed = local.removeAll(keys);
+        keys.forEach(this::invalidatePeers);
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        local.clear();
+        queued.increment();
+        pendingClear.set(true);
+    }
+
+    @Override
+    public long size() {
+        return local.size();
+    }
+
+    private void invalidatePeers(K key) {
+        queued.increment();
+        if (!pending.add(key)) {
+            deduplicated.increment();
+        }
+    }
+
+    /**
+     * Sends all queued invalidations now. If the transport throws, the keys of the unsent messages
+     * stay queued for the next flush and the exception propagates.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (pendingClear.getAndSet(false)) {
+                // a clear supersedes every key queued before it
+                pending.clear();
+                try {
+                    startMessage(TYPE_CLEAR);
+                    send(0);
+                } catch (RuntimeException e) {
+                    pendingClear.set(true);
+                    throw e;
+                }
+            }
+            flushKeys();
+        } catch (RuntimeException e) {
+            failedFlushes.increment();
+            throw e;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushKeys() {
+        // keys taken from pending whose message has not been published yet
+        List<K> unsent = new ArrayList<>();
+        try {
+            startMessage(TYPE_KEYS);
+            int count = 0;
+            Iterator<K> it = pending.iterator();
+            while (it.hasNext()) {
+                K key = it.next();
+                it.remove();
+                unsent.add(key);
+                byte[] bytes = encode(key);
+                int keyBytes = bytes == null ? 0 : 2 + bytes.length;
+                if (bytes == null
+                        || bytes.length > 0xFFFF
+                        || HEADER_BYTES + keyBytes > messageBuffer.capacity()) {
+                    // cannot be named in a message; clearing peers is the safe fallback
+                    startMessage(TYPE_CLEAR);
+                    send(0);
+                    unsent.clear();
+                    startMessage(TYPE_KEYS);
+                    count = 0;
+                    continue;
+                }
+                if (messageBuffer.remaining() < keyBytes || count == MAX_KEYS_PER_MESSAGE) {
+                    send(count);
+                    unsent.subList(0, unsent.size() - 1).clear();
+                    startMessage(TYPE_KEYS);
+                    count = 0;
+                }
+                messageBuffer.putShort((short) bytes.length).put(bytes);
+                ++count;
+            }
+            if (count > 0) {
+                send(count);
+                unsent.clear();
+            }
+        } catch (RuntimeException e) {
+            pending.addAll(unsent);
+            throw e;
+        }
+    }
+
+    /** Returns the key's bytes, or null if the codec cannot encode it. */
+    private byte[] encode(K key) {
+        try {
+            return codec.encode(key);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private void startMessage(byte type) {
+        messageBuffer.clear();
+        messageBuffer.put(type).putLong(origin).putShort((short) 0);
+    }
+
+    private void send(int count) {
+        messageBuffer.putShort(1 + 8, (short) count);
+        byte[] message = new byte[messageBuffer.position()];
+        messageBuffer.get(0, message);
+        transport.publish(message);
+        messagesSent.increment();
+    }
+
+    private void receive(byte[] message) {
+        ByteBuffer in = ByteBuffer.wrap(message);
+        try {
+            byte type = in.get();
+            if (in.getLong() == origin) {
+                return; // our own message, echoed back by the transport
+            }
+            int count = in.getShort() & 0xFFFF;
+            if (type == TYPE_CLEAR) {
+                keysReceived.increment();
+                local.clear();
+                return;
+            }
+            if (type != TYPE_KEYS) {
+                return;
+            }
+            List<K> keys = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int length = in.getShort() & 0xFFFF;
+                if (length > in.remaining()) {
+                    throw new BufferUnderflowException();
+                }
+                keys.add(codec.decode(message, in.position(), length));
+                in.position(in.position() + length);
+            }
+            keysReceived.add(count);
+            local.invalidateAll(keys);
+        } catch (BufferUnderflowException e) {
+            // truncated or foreign datagram; nothing safe to apply
+        }
+    }
+
+    /** Flushes queued invalidations every {@code windowMillis} on {@code scheduler}. */
+    public void start(ScheduledExecutorService scheduler, long windowMillis) {
+        Objects.requireNonNull(scheduler, "scheduler must not be null");
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("windowMillis must be greater than 0");
+        }
+        if (ticker != null) {
+            throw new IllegalStateException("Already started");
+        }
+        this.ticker =
+                scheduler.scheduleWithFixedDelay(
+                        this::flushQuietly, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // an exception would cancel the scheduled task, and with it every later flush
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // counted by flush; the keys stay queued for the next window
+        }
+    }
+
+    /** Stops the scheduled flush (if any) and sends what is queued. The transport stays open. */
+    @Override
+    public void close() {
+        ScheduledFuture<?> t = ticker;
+        if (t != null) {
+            t.cancel(false);
+        }
+        flush();
+    }
+
+    public SimpleTTLCache<K, V> local() {
+        return local;
+    }
+
+    /** Keys queued for invalidation, including repeats. */
+    public long queuedInvalidations() {
+        return queued.sum();
+    }
+
+    /** Queued keys that were already pending and so cost nothing extra. */
+    public long deduplicatedInvalidations() {
+        return deduplicated.sum();
+    }
+
+    public long messagesSent() {
+        return messagesSent.sum();
+    }
+
+    /** Flushes the transport failed; their keys were queued again. */
+    public long failedFlushes() {
+        return failedFlushes.sum();
+    }
+
+    /** Keys (and clears) received from peers. */
+    public long invalidationsReceived() {
+        return keysReceived.sum();
+    }
+}
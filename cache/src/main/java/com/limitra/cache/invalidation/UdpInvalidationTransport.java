@@ -0,0 +1,108 @@
+package com.limitra.cache.invalidation;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Sends each message as one UDP datagram to a fixed list of peers.
+ *
+ * <p>UDP suits invalidations: they are small, idempotent and safe to lose (see {@link
+ * InvalidationTransport}), so there is no connection state to manage or head-of-line blocking. A
+ * message must fit in one datagram, {@value #MAX_MESSAGE_BYTES} bytes; keep the publisher's
+ * message size at or below the path MTU to avoid IP fragmentation off loopback.
+ */
+public class UdpInvalidationTransport implements InvalidationTransport {
+
+    public static final int MAX_MESSAGE_BYTES = 65_507;
+
+    private final DatagramChannel channel;
+    private final CopyOnWriteArrayList<InetSocketAddress> peers;
+    private final LongAdder sendFailures;
+    private Thread receiverThread;
+
+    /** Binds to {@code address}; use port 0 to pick a free port. */
+    public UdpInvalidationTransport(InetSocketAddress address) throws IOException {
+        Objects.requireNonNull(address, "address must not be null");
+        this.channel = DatagramChannel.open().bind(address);
+        this.peers = new CopyOnWriteArrayList<>();
+        this.sendFailures = new LongAdder();
+    }
+
+    public void addPeer(InetSocketAddress peer) {
+        peers.addIfAbsent(Objects.requireNonNull(peer, "peer must not be null"));
+    }
+
+    public InetSocketAddress localAddress() throws IOException {
+        return (InetSocketAddress) channel.getLocalAddress();
+    }
+
+    @Override
+    public int maxMessageBytes() {
+        return MAX_MESSAGE_BYTES;
+    }
+
+    @Override
+    public void publish(byte[] message) {
+        if (message.length > MAX_MESSAGE_BYTES) {
+            throw new IllegalArgumentException("message exceeds " + MAX_MESSAGE_BYTES + " bytes");
+        }
+        for (InetSocketAddress peer : peers) {
+            try {
+                channel.send(ByteBuffer.wrap(message), peer);
+            } catch (IOException e) {
+                sendFailures.increment(); // best effort, like a dropped datagram
+            }
+        }
+    }
+
+    /** Starts a daemon thread that hands every received datagram to {@code receiver}. */
+    @Override
+    public synchronized void subscribe(Consumer<byte[]> receiver) {
+        Objects.requireNonNull(receiver, "receiver must not be null");
+        if (receiverThread != null) {
+            throw new IllegalStateException("already subscribed");
+        }
+        receiverThread =
+                Thread.ofPlatform()
+                        .name("limitra-invalidation-udp")
+                        .daemon()
+                        .start(() -> receiveLoop(receiver));
+    }
+
+    private void receiveLoop(Consumer<byte[]> receiver) {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_MESSAGE_BYTES);
+        while (true) {
+            try {
+                buffer.clear();
+                channel.receive(buffer);
+                receiver.accept(Arrays.copyOf(buffer.array(), buffer.position()));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                // one bad datagram or receiver failure must not stop invalidation
+            }
+        }
+    }
+
+    /** Datagrams that could not be handed to the network stack. */
+    public long sendFailures() {
+        return sendFailures.sum();
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // closing anyway
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.limitra.metrics;
+
+/**
+ * Counters of a compressing value codec: what compression saved in bytes and what it cost in CPU.
+ * The times are thread CPU time where the JVM measures it, and wall time on virtual threads and
+ * on JVMs without thread CPU time.
+ *
+ * @param encoded values encoded
+ * @param compressed encoded values stored compressed; the others were below the threshold or did
+ *     not shrink
+ * @param rawBytes total size of the encoded values before compression
+ * @param storedBytes total size of the encoded values as stored, headers included
+ * @param compressCpuNanos CPU time spent compressing, including attempts that did not shrink
+ * @param decompressed values decompressed
+ * @param decompressCpuNanos CPU time spent decompressing
+ */
+public record CompressionMetrics(
+        long encoded,
+        long compressed,
+        long rawBytes,
+        long storedBytes,
+        long compressCpuNanos,
+        long decompressed,
+        long decompressCpuNanos) {
+
+    /** Raw bytes per stored byte: 2.0 means values take half the memory. 1 if none were stored. */
+    public double compressionRatio() {
+        return storedBytes == 0 ? 1 : (double) rawBytes / storedBytes;
+    }
+}
@@ -0,0 +1,13 @@
+package com.limitra.metrics;
+
+/**
+ * Counters for lookups answered without a value: keys cached as absent, and keys the known-keys
+ * filter turned away. Neither counts as a hit or a miss in {@link CacheMetrics}.
+ *
+ * @param negativeHits lookups that found the key cached as absent
+ * @param filterRejections lookups the known-keys filter rejected before reaching the map
+ * @param loads calls to a {@code getOrLoad} loader
+ * @param coalescedLoads {@code getOrLoad} calls that waited for another caller's load instead
+ */
+public record NegativeCacheMetrics(
+        long negativeHits, long filterRejections, long loads, long coalescedLoads) {}
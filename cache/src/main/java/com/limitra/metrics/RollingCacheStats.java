@@ -0,0 +1,145 @@
+package com.limitra.metrics;
+
+import com.limitra.time.TimeProvider;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache counters over the last few seconds, for dashboards that need to see a hit-rate drop now
+ * rather than in lifetime totals.
+ *
+ * <p>Counts go into a ring of per-second buckets of {@link LongAdder}s. The first write in a new
+ * second reuses the bucket of the second that fell out of the ring: it claims the bucket, resets
+ * it and opens it for that second, while other writers to it spin for those few instructions.
+ * Recording is one clock read and one {@code LongAdder.add}, and allocates nothing. A snapshot
+ * sums one bucket per second of the window and never blocks writers.
+ *
+ * <p>Windows cover whole seconds only; the second in progress is left out so that rates are not
+ * diluted by a partial bucket. A write that races with the ring wrapping onto its bucket, which
+ * takes a thread stalled for the whole ring length, may be counted in the wrong second.
+ */
+public final class RollingCacheStats {
+
+    // marks a bucket being reset; no real second is this far in the past
+    private static final long ROTATING = Long.MIN_VALUE;
+    // older than any second the clock can report
+    private static final long UNUSED = Long.MIN_VALUE + 1;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final TimeProvider time;
+    private final Bucket[] ring;
+    private final int maxWindowSeconds;
+
+    /**
+     * @param maxWindowSeconds the longest window {@link #snapshot(int)} will be asked for
+     */
+    public RollingCacheStats(TimeProvider time, int maxWindowSeconds) {
+        this.time = Objects.requireNonNull(time, "time must not be null");
+        if (maxWindowSeconds <= 0) {
+            throw new IllegalArgumentException("maxWindowSeconds must be greater than 0");
+        }
+        this.maxWindowSeconds = maxWindowSeconds;
+        // one extra bucket for the second in progress
+        this.ring = new Bucket[maxWindowSeconds + 1];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new Bucket(UNUSED);
+        }
+    }
+
+    public void recordHits(long count) {
+        bucket().hits.add(count);
+    }
+
+    public void recordMisses(long count) {
+        bucket().misses.add(count);
+    }
+
+    /** Values written into the cache, by explicit puts and by loads on a miss alike. */
+    public void recordPuts(long count) {
+        bucket().puts.add(count);
+    }
+
+    public void recordEvictionsByTtl(long count) {
+        bucket().evictedByTtl.add(count);
+    }
+
+    public void recordEvictionsByCapacity(long count) {
+        bucket().evictedByCapacity.add(count);
+    }
+
+    public int maxWindowSeconds() {
+        return maxWindowSeconds;
+    }
+
+    /** Totals over the last {@code windowSeconds} whole seconds. */
+    public RollingWindowSnapshot snapshot(int windowSeconds) {
+        if (windowSeconds <= 0 || windowSeconds > maxWindowSeconds) {
+            throw new IllegalArgumentException(
+                    "windowSeconds must be between 1 and " + maxWindowSeconds);
+        }
+        long current = currentSecond();
+        long hits = 0;
+        long misses = 0;
+        long puts = 0;
+        long evictedByTtl = 0;
+        long evictedByCapacity = 0;
+        for (long second = current - windowSeconds; second < current; second++) {
+            Bucket bucket = ring[Math.floorMod(second, ring.length)];
+            if (bucket.second.get() != second) {
+                continue; // nothing was recorded in that second
+            }
+            hits += bucket.hits.sum();
+            misses += bucket.misses.sum();
+            puts += bucket.puts.sum();
+            evictedByTtl += bucket.evictedByTtl.sum();
+            evictedByCapacity += bucket.evictedByCapacity.sum();
+        }
+        return new RollingWindowSnapshot(
+                windowSeconds, hits, misses, puts, evictedByTtl, evictedByCapacity);
+    }
+
+    private long currentSecond() {
+        return Math.floorDiv(time.nowNanos(), NANOS_PER_SECOND);
+    }
+
+    /** The bucket of the current second, rotated into place if this is its first write. */
+    private Bucket bucket() {
+        long current = currentSecond();
+        Bucket bucket = ring[Math.floorMod(current, ring.length)];
+        while (true) {
+            long second = bucket.second.get();
+            if (second == current) {
+                return bucket;
+            }
+            if (second == ROTATING) {
+                Thread.onSpinWait();
+            } else if (second > current) {
+                return bucket; // the ring moved on since this thread read the clock
+            } else if (bucket.second.compareAndSet(second, ROTATING)) {
+                bucket.hits.reset();
+                bucket.misses.reset();
+                bucket.puts.reset();
+                bucket.evictedByTtl.reset();
+                bucket.evictedByCapacity.reset();
+                bucket.second.set(current);
+                return bucket;
+            }
+        }
+    }
+
+    private static final class Bucket {
+
+        final AtomicLong second;
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder puts = new LongAdder();
+        final LongAdder evictedByTtl = new LongAdder();
+        final LongAdder evictedByCapacity = new LongAdder();
+
+        Bucket(long second) {
+            this.second = new AtomicLong(second);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.limitra.metrics;
+
+/**
+ * Cache counters summed over the last {@code windowSeconds} whole seconds, with the rates derived
+ * from them.
+ */
+public record RollingWindowSnapshot(
+        int windowSeconds,
+        long hits,
+        long misses,
+        long puts,
+        long evictedByTtl,
+        long evictedByCapacity)
+        implements CacheMetrics {
+
+    /** Share of lookups that hit; 1.0 when there were no lookups, as nothing was missed. */
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    public double requestsPerSecond() {
+        return perSecond(hits + misses);
+    }
+
+    public double hitsPerSecond() {
+        return perSecond(hits);
+    }
+
+    public double missesPerSecond() {
+        return perSecond(misses);
+    }
+
+    public double putsPerSecond() {
+        return perSecond(puts);
+    }
+
+    public double ttlEvictionsPerSecond() {
+        return perSecond(evictedByTtl);
+    }
+
+    public double capacityEvictionsPerSecond() {
+        return perSecond(evictedByCapacity);
+    }
+
+    private double perSecond(long count) {
+        return (double) count / windowSeconds;
+    }
+}
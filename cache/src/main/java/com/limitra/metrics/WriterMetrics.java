@@ -0,0 +1,28 @@
+package com.limitra.metrics;
+
+/**
+ * Represents an immutable snapshot of a write-behind writer's counters. To observe updated values,
+ * request a new snapshot from the writer.
+ */
+public interface WriterMetrics {
+
+    /** Mutations accepted from the cache, including coalesced ones. */
+    long queued();
+
+    /** Mutations that replaced a still-pending mutation for the same key. */
+    long coalesced();
+
+    long flushedBatches();
+
+    /** Keys written to or deleted from the store. */
+    long flushedEntries();
+
+    /** Times a producer found the buffer full and had to wait. */
+    long backpressureWaits();
+
+    /** Batches the store rejected with an exception. */
+    long failures();
+
+    /** Distinct keys waiting to be flushed when the snapshot was taken. */
+    long pending();
+}
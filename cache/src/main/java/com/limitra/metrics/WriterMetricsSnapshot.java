@@ -0,0 +1,11 @@
+package com.limitra.metrics;
+
+public record WriterMetricsSnapshot(
+        long queued,
+        long coalesced,
+        long flushedBatches,
+        long flushedEntries,
+        long backpressureWaits,
+        long failures,
+        long pending)
+        implements WriterMetrics {}
@@ -0,0 +1,147 @@
+package com.limitra.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.metrics.CacheMetrics;
+import com.limitra.time.FakeTimeProvider;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class CacheBulkTest {
+
+    @Test
+    void putAll_thenGetAll_returnsOnlyPresentKeys() {
+
+        // Given
+        SimpleTTLCache<String, Integer> cache = new SimpleTTLCache<>(new FakeTimeProvider());
+        cache.putAll(Map.of("a", 1, "b", 2));
+
+        // When
+        Map<String, Integer> found = cache.getAll(List.of("a", "b", "missing"));
+
+        // Then
+        assertEquals(Map.of("a", 1, "b", 2), found);
+
+        CacheMetrics afterSnapshot = cache.metricsSnapshot();
+        assertEquals(2, afterSnapshot.hits());
+        assertEquals(1, afterSnapshot.misses());
+    }
+
+    @Test
+    void putAllWithTtl_expiresAllTogether() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        SimpleTTLCache<String, Integer> cache = new SimpleTTLCache<>(time);
+        cache.putAll(Map.of("a", 1, "b", 2), 100);
+        cache.put("eternal", 3);
+
+        // When
+        time.advanceMillis(101);
+        Map<String, Integer> found = cache.getAll(List.of("a", "b", "eternal"));
+
+        // Then
+        assertEquals(Map.of("eternal", 3), found);
+
+        CacheMetrics afterSnapshot = cache.metricsSnapshot();
+        assertEquals(2, afterSnapshot.misses());
+        assertEquals(2, afterSnapshot.evictedByTtl());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void putAll_overCapacity_keepsMostRecentEntries() {
+
+        // Given
+        SimpleTTLCache<String, Integer> cache = new SimpleTTLCache<>(new FakeTimeProvider(), 3);
+        cache.put("evictedByCapacity", 0);
+
+        Map<String, Integer> batch = new LinkedHashMap<>();
+        for (int i = 0; i < 5; i++) {
+            batch.put("k" + i, i);
+        }
+
+        // When
+        cache.putAll(batch);
+
+        // Then
+        assertEquals(3, cache.size());
+        assertEquals(Map.of("k2", 2, "k3", 3, "k4", 4), cache.getAll(batch.keySet()));
+        assertEquals(3, cache.lruList.orderSize());
+
+        CacheMetrics afterSnapshot = cache.metricsSnapshot();
+        assertEquals(3, afterSnapshot.evictedByCapacity());
+    }
+
+    @Test
+    void getAll_countsAsAccess_forLru() {
+
+        // Given
+        SimpleTTLCache<String, Integer> cache = new SimpleTTLCache<>(new FakeTimeProvider(), 3);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("evictedByCapacity", 3);
+
+        // When
+        cache.getAll(List.of("a", "b"));
+        cache.put("d", 4);
+
+        // Then
+        assertTrue(cache.get("evictedByCapacity").isEmpty());
+        assertTrue(cache.get("a").isPresent());
+        assertTrue(cache.get("b").isPresent());
+    }
+
+    @Test
+    void removeAll_removesPresentKeys_andReportsCount() {
+
+        // Given
+        SimpleTTLCache<String, Integer> cache = new SimpleTTLCache<>(new FakeTimeProvider());
+        cache.putAll(Map.of("a", 1, "b", 2, "c", 3));
+
+        // When
+        int removed = cache.removeAll(List.of("a", "b", "missing"));
+
+        // Then
+        assertEquals(2, removed);
+        assertEquals(Map.of("c", 3), cache.getAll(List.of("a", "b", "c")));
+        assertEquals(1, cache.lruList.orderSize());
+    }
+
+    @Test
+    void putAll_nullValue_storesNothing() {
+
+        // Given
+        SimpleTTLCache<String, Integer> cache = new SimpleTTLCache<>(new FakeTimeProvider());
+        Map<String, Integer> batch = new HashMap<>();
+        batch.put("a", 1);
+        batch.put("b", null);
+
+        // When Then
+        assertThrows(NullPointerException.class, () -> cache.putAll(batch));
+        assertEquals(0, cache.size());
+        assertThrows(NullPointerException.class, () -> cache.getAll(Arrays.asList("a", null)));
+        assertThrows(IllegalArgumentException.class, () -> cache.putAll(Map.of("a", 1), 0));
+    }
+
+    @Test
+    void bulkOps_areForwardedToWriterAsBatches() {
+
+        // Given
+        CacheWriterTest.InMemoryStore store = new CacheWriterTest.InMemoryStore();
+        SimpleTTLCache<String, Integer> cache =
+                new SimpleTTLCache<>(new FakeTimeProvider(), 10, store);
+
+        // When
+        cache.putAll(Map.of("a", 1, "b", 2));
+        cache.removeAll(List.of("a"));
+
+        // Then
+        assertEquals(1, store.batches.get());
+        assertEquals(Map.of("b", 2), store.data);
+    }
+}
@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import com.limitra.metrics.CacheMetrics;
 import com.limitra.time.FakeTimeProvider;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ThreadLocalRandom;
 import org.junit.jupiter.api.Test;
@@ -273,4 +275,51 @@ public class CacheLruTest {
         // Then
         assertTrue(cache.size() <= capacity);
     }
+
+    @Test
+    void concurrentWritesAndRemovals_leaveLruListAndMapInStep() throws InterruptedException {
+
+        // Given: few keys, so puts, removals and evictions keep colliding on the same key
+        int capacity = 8;
+        FakeTimeProvider time = new FakeTimeProvider();
+        SimpleTTLCache<String, Integer> cache = new SimpleTTLCache<>(time, capacity);
+        Runnable task =
+                () -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 50_000; i++) {
+                        String key = "k" + random.nextInt(16);
+                        switch (random.nextInt(5)) {
+                            case 0 -> cache.put(key, i);
+                            case 1 -> cache.put(key, i, 1);
+                            case 2 -> cache.remove(key);
+                            case 3 -> cache.invalidateAll(List.of(key));
+                            default -> cache.get(key);
+                        }
+                        if (i % 1_000 == 0) {
+                            time.advanceMillis(1);
+                        }
+                    }
+                };
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(task));
+        }
+
+        // When
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Then: every cached key has exactly one LRU node, so capacity eviction can find it
+        assertEquals(cache.map.size(), cache.lruList.orderSize());
+        for (String key : cache.map.keySet()) {
+            assertTrue(cache.lruList.contains(key), key);
+        }
+        assertTrue(cache.map.size() <= capacity);
+        cache.clear();
+        assertEquals(0, cache.lruList.orderSize());
+    }
 }
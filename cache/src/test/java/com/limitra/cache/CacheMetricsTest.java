@@ -2,8 +2,12 @@ package com.limitra.cache;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.limitra.hotkeys.HeavyHitters;
+import com.limitra.hotkeys.HotKey;
 import com.limitra.metrics.CacheMetrics;
+import com.limitra.metrics.RollingWindowSnapshot;
 import com.limitra.time.FakeTimeProvider;
+import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
 
@@ -147,4 +151,69 @@ class CacheMetricsTest {
         assertEquals(0, snapshotBefore.hits());
         assertTrue(snapshotAfter.hits() > snapshotBefore.hits());
     }
+
+    @Test
+    void rollingStats_showARecentDropInHitRate() {
+
+        // Given: a warm second of hits
+        FakeTimeProvider time = new FakeTimeProvider();
+        SimpleTTLCache<String, Integer> cache =
+                SimpleTTLCache.<String, Integer>builder(time)
+                        .maxEntries(1)
+                        .rollingStats(60)
+                        .build();
+        cache.put("a", 1);
+        for (int i = 0; i < 6; i++) {
+            cache.get("a");
+        }
+        time.advanceSeconds(1);
+
+        // When: a second of misses and evictions
+        cache.put("b", 2);
+        cache.get("a");
+        cache.get("a");
+        time.advanceSeconds(1);
+
+        // Then
+        RollingWindowSnapshot lastSecond = cache.metricsSnapshot(1);
+        assertEquals(0.0, lastSecond.hitRate());
+        assertEquals(1, lastSecond.evictedByCapacity());
+        assertEquals(1, lastSecond.puts());
+        assertEquals(0.75, cache.metricsSnapshot(2).hitRate(), 1e-9);
+        assertEquals(6, cache.metricsSnapshot().hits());
+    }
+
+    @Test
+    void rollingStats_areOptIn() {
+
+        // Given
+        SimpleTTLCache<String, Integer> cache = new SimpleTTLCache<>(new FakeTimeProvider());
+
+        // When Then
+        assertThrows(IllegalStateException.class, () -> cache.metricsSnapshot(10));
+    }
+
+    @Test
+    void hotKeys_rankKeysByReads() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        SimpleTTLCache<String, Integer> cache =
+                SimpleTTLCache.<String, Integer>builder(time)
+                        .hotKeys(new HeavyHitters<>(time, 16, 60_000, 6, 1))
+                        .build();
+        cache.put("popular", 1);
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            cache.get("popular");
+        }
+        cache.getAll(List.of("popular", "absent"));
+        cache.get("absent");
+
+        // Then
+        List<HotKey<String>> top = cache.hotKeys(2);
+        assertEquals(new HotKey<>("popular", 21, 0), top.get(0));
+        assertEquals(new HotKey<>("absent", 2, 0), top.get(1));
+    }
 }
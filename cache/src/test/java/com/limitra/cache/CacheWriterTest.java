@@ -0,0 +1,279 @@
+package com.limitra.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.metrics.WriterMetrics;
+import com.limitra.time.FakeTimeProvider;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class CacheWriterTest {
+
+    /** Fake backing store that records how it was called. */
+    static class InMemoryStore implements CacheWriter<String, Integer> {
+
+        final Map<String, Integer> data = new ConcurrentHashMap<>();
+        final AtomicInteger writes = new AtomicInteger();
+        final AtomicInteger batches = new AtomicInteger();
+        final AtomicBoolean failing = new AtomicBoolean();
+
+        @Override
+        public void write(String key, Integer value) {
+            writes.incrementAndGet();
+            data.put(key, value);
+        }
+
+        @Override
+        public void delete(String key) {
+            data.remove(key);
+        }
+
+        @Override
+        public void writeAll(Map<String, Integer> entries) {
+            if (failing.get()) {
+                throw new IllegalStateException("store unavailable");
+            }
+            batches.incrementAndGet();
+            CacheWriter.super.writeAll(entries);
+        }
+    }
+
+    @Test
+    void writeThrough_putAndRemove_reachStoreImmediately() {
+
+        // Given
+        InMemoryStore store = new InMemoryStore();
+        SimpleTTLCache<String, Integer> cache =
+                new SimpleTTLCache<>(new FakeTimeProvider(), 10, store);
+
+        // When
+        cache.put("a", 1);
+        cache.put("b", 2, 100);
+        cache.remove("a");
+
+        // Then
+        assertNull(store.data.get("a"));
+        assertEquals(2, store.data.get("b"));
+    }
+
+    @Test
+    void writeThrough_writerFailure_leavesCacheUnchanged() {
+
+        // Given
+        CacheWriter<String, Integer> broken =
+                new CacheWriter<>() {
+                    @Override
+                    public void write(String key, Integer value) {
+                        throw new IllegalStateException("store unavailable");
+                    }
+
+                    @Override
+                    public void delete(String key) {}
+                };
+        SimpleTTLCache<String, Integer> cache =
+                new SimpleTTLCache<>(new FakeTimeProvider(), 10, broken);
+
+        // When Then
+        assertThrows(IllegalStateException.class, () -> cache.put("a", 1));
+        assertTrue(cache.get("a").isEmpty());
+    }
+
+    @Test
+    void evictions_areNotPropagatedToStore() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        InMemoryStore store = new InMemoryStore();
+        SimpleTTLCache<String, Integer> cache = new SimpleTTLCache<>(time, 1, store);
+        cache.put("expiring", 1, 50);
+
+        // When
+        time.advanceMillis(60);
+        cache.get("expiring");
+        cache.put("a", 2);
+        cache.put("evictedByCapacity", 3);
+        cache.put("b", 4);
+
+        // Then
+        assertEquals(4, store.data.size());
+        assertEquals(1, store.data.get("expiring"));
+    }
+
+    @Test
+    void writeBehind_coalescesRepeatedWrites_andFlushesOnDelay() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        InMemoryStore store = new InMemoryStore();
+        WriteBehindCacheWriter<String, Integer> writer =
+                new WriteBehindCacheWriter<>(store, time, 100, 10, 50);
+        SimpleTTLCache<String, Integer> cache = new SimpleTTLCache<>(time, 10, writer);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            cache.put("hot", i);
+        }
+        cache.put("other", 42);
+
+        // Then
+        assertEquals(0, writer.flushIfDue());
+        assertTrue(store.data.isEmpty());
+
+        time.advanceMillis(50);
+        assertEquals(2, writer.flushIfDue());
+        assertEquals(4, store.data.get("hot"));
+        assertEquals(42, store.data.get("other"));
+        assertEquals(2, store.writes.get());
+
+        WriterMetrics metrics = writer.metricsSnapshot();
+        assertEquals(6, metrics.queued());
+        assertEquals(4, metrics.coalesced());
+        assertEquals(1, metrics.flushedBatches());
+        assertEquals(0, metrics.pending());
+    }
+
+    @Test
+    void writeBehind_flushesFullBatches_withoutWaitingForDelay() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        InMemoryStore store = new InMemoryStore();
+        WriteBehindCacheWriter<String, Integer> writer =
+                new WriteBehindCacheWriter<>(store, time, 100, 3, 1_000);
+
+        // When
+        for (int i = 0; i < 7; i++) {
+            writer.write("k" + i, i);
+        }
+
+        // Then
+        assertEquals(6, writer.flushIfDue());
+        assertEquals(2, store.batches.get());
+        assertEquals(1, writer.pendingCount());
+
+        assertEquals(1, writer.flush());
+        assertEquals(7, store.data.size());
+    }
+
+    @Test
+    void writeBehind_deleteSupersedesPendingWrite() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        InMemoryStore store = new InMemoryStore();
+        store.data.put("a", 0);
+        WriteBehindCacheWriter<String, Integer> writer =
+                new WriteBehindCacheWriter<>(store, time, 100, 10, 50);
+        SimpleTTLCache<String, Integer> cache = new SimpleTTLCache<>(time, 10, writer);
+
+        // When
+        cache.put("a", 1);
+        cache.remove("a");
+        writer.close();
+
+        // Then
+        assertFalse(store.data.containsKey("a"));
+        assertEquals(0, store.writes.get());
+    }
+
+    @Test
+    void writeBehind_storeFailure_requeuesBatch() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        InMemoryStore store = new InMemoryStore();
+        WriteBehindCacheWriter<String, Integer> writer =
+                new WriteBehindCacheWriter<>(store, time, 100, 10, 50);
+        writer.write("a", 1);
+        store.failing.set(true);
+
+        // When
+        assertEquals(0, writer.flush());
+        store.failing.set(false);
+
+        // Then
+        assertEquals(1, writer.pendingCount());
+        assertEquals(1, writer.flush());
+        assertEquals(1, store.data.get("a"));
+        assertEquals(1, writer.metricsSnapshot().failures());
+    }
+
+    @Test
+    void writeBehind_storeFailure_withABufferRefilledMeanwhile_losesNothing() {
+
+        // Given: producers fill the buffer again while the failing batch is with the store
+        FakeTimeProvider time = new FakeTimeProvider();
+        AtomicReference<WriteBehindCacheWriter<String, Integer>> writerRef =
+                new AtomicReference<>();
+        InMemoryStore store =
+                new InMemoryStore() {
+                    @Override
+                    public void writeAll(Map<String, Integer> entries) {
+                        if (failing.getAndSet(false)) {
+                            writerRef.get().write("c", 3);
+                            writerRef.get().write("d", 4);
+                            throw new IllegalStateException("store unavailable");
+                        }
+                        super.writeAll(entries);
+                    }
+                };
+        WriteBehindCacheWriter<String, Integer> writer =
+                new WriteBehindCacheWriter<>(store, time, 2, 2, 50);
+        writerRef.set(writer);
+        writer.write("a", 1);
+        writer.write("b", 2);
+        store.failing.set(true);
+
+        // When
+        assertEquals(0, writer.flush());
+        int flushed = writer.flush();
+
+        // Then
+        assertEquals(4, flushed);
+        assertEquals(Map.of("a", 1, "b", 2, "c", 3, "d", 4), store.data);
+        assertEquals(0, writer.pendingCount());
+    }
+
+    @Test
+    void writeBehind_fullBuffer_withoutScheduler_flushesOnTheProducer() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        InMemoryStore store = new InMemoryStore();
+        WriteBehindCacheWriter<String, Integer> writer =
+                new WriteBehindCacheWriter<>(store, time, 2, 2, 50);
+        writer.write("a", 1);
+        writer.write("b", 2);
+
+        // When: nobody else would ever drain the buffer
+        writer.write("c", 3);
+
+        // Then
+        assertEquals(Map.of("a", 1, "b", 2), store.data);
+        assertEquals(1, writer.pendingCount());
+        assertEquals(1, writer.metricsSnapshot().backpressureWaits());
+        writer.flush();
+        assertEquals(3, store.data.size());
+    }
+
+    @Test
+    void writeBehind_invalidArgs_throw() {
+
+        InMemoryStore store = new InMemoryStore();
+        FakeTimeProvider time = new FakeTimeProvider();
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new WriteBehindCacheWriter<>(store, time, 0, 1, 50));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new WriteBehindCacheWriter<>(store, time, 10, 11, 50));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new WriteBehindCacheWriter<>(store, time, 10, 5, 0));
+    }
+}
@@ -0,0 +1,158 @@
+package com.limitra.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.metrics.CompressionMetrics;
+import com.limitra.time.FakeTimeProvider;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class CompressingCodecTest {
+
+    @Test
+    void largeValues_areDeflated_smallAndIncompressibleOnesStoredAsTheyAre() {
+
+        // Given
+        CompressingCodec<byte[]> codec = new CompressingCodec<>(ValueCodec.bytes(), 1_024);
+        byte[] json = json(50_000);
+        byte[] small = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        byte[] noise = new byte[4_096];
+        new SplittableRandom(7).nextBytes(noise);
+
+        // When
+        byte[] storedJson = codec.encode(json);
+        byte[] storedSmall = codec.encode(small);
+        byte[] storedNoise = codec.encode(noise);
+
+        // Then
+        assertTrue(storedJson.length < json.length / 5, "stored " + storedJson.length);
+        assertEquals(small.length + 1, storedSmall.length);
+        assertEquals(noise.length + 1, storedNoise.length);
+        assertArrayEquals(json, codec.decode(storedJson, 0, storedJson.length));
+        assertArrayEquals(small, codec.decode(storedSmall, 0, storedSmall.length));
+        assertArrayEquals(noise, codec.decode(storedNoise, 0, storedNoise.length));
+        CompressionMetrics metrics = codec.metricsSnapshot();
+        assertEquals(3, metrics.encoded());
+        assertEquals(1, metrics.compressed());
+        assertEquals(1, metrics.decompressed());
+        assertEquals(json.length + small.length + noise.length, metrics.rawBytes());
+        assertTrue(metrics.compressionRatio() > 3, "ratio " + metrics.compressionRatio());
+    }
+
+    @Test
+    void codecCache_keepsValuesCompressed_inTheUnderlyingCache() {
+
+        // Given
+        SimpleTTLCache<String, byte[]> store = new SimpleTTLCache<>(new FakeTimeProvider());
+        CompressingCodec<String> codec = new CompressingCodec<>(ValueCodec.utf8(), 256);
+        CodecCache<String, String> cache = new CodecCache<>(store, codec);
+        String blob = new String(json(20_000), StandardCharsets.UTF_8);
+
+        // When
+        cache.put("blob", blob);
+        cache.putAll(Map.of("a", "A", "b", "B"));
+
+        // Then
+        assertEquals(blob, cache.get("blob").orElseThrow());
+        assertEquals(Map.of("a", "A", "b", "B"), cache.getAll(List.of("a", "b", "c")));
+        assertTrue(store.get("blob").orElseThrow().length < blob.length() / 5);
+        assertEquals(3, cache.size());
+        assertThrows(NullPointerException.class, () -> cache.put("x", null));
+    }
+
+    @Test
+    void concurrentCalls_shareThePool_withoutMixingUpValues() throws Exception {
+
+        // Given
+        CompressingCodec<String> codec = new CompressingCodec<>(ValueCodec.utf8(), 0);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+
+        try {
+            // When
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                results.add(
+                        pool.submit(
+                                () -> {
+                                    for (int i = 0; i < 200; i++) {
+                                        String value = "value-" + seed + "-" + i + "-".repeat(i);
+                                        byte[] stored = codec.encode(value);
+                                        String back = codec.decode(stored, 0, stored.length);
+                                        if (!value.equals(back)) {
+                                            return false;
+                                        }
+                                    }
+                                    return true;
+                                }));
+            }
+
+            // Then
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+            assertEquals(1_600, codec.metricsSnapshot().encoded());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void virtualThreads_areTimedInWallTime() throws Exception {
+
+        // Given
+        CompressingCodec<byte[]> codec = new CompressingCodec<>(ValueCodec.bytes(), 0);
+        byte[] json = json(200_000);
+
+        // When
+        Thread.startVirtualThread(
+                        () -> {
+                            byte[] stored = codec.encode(json);
+                            codec.decode(stored, 0, stored.length);
+                        })
+                .join();
+
+        // Then: the thread CPU clock reads -1 on virtual threads, which would leave these at 0
+        CompressionMetrics metrics = codec.metricsSnapshot();
+        assertTrue(metrics.compressCpuNanos() > 0);
+        assertTrue(metrics.decompressCpuNanos() > 0);
+    }
+
+    @Test
+    void corruptLengths_areRejected_beforeAllocating() {
+
+        // Given
+        CompressingCodec<byte[]> codec = new CompressingCodec<>(ValueCodec.bytes(), 0);
+        byte[] stored = codec.encode(json(10_000));
+        byte[] negative = stored.clone();
+        negative[1] = (byte) 0x80;
+        byte[] huge = stored.clone();
+        huge[1] = 0x7F;
+
+        // When Then
+        IllegalArgumentException e =
+                assertThrows(
+                        IllegalArgumentException.class,
+                        () -> codec.decode(negative, 0, negative.length));
+        assertTrue(e.getMessage().startsWith("Corrupt compressed value"), e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(huge, 0, huge.length));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(stored, 0, 4));
+    }
+
+    private static byte[] json(int size) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; json.length() < size; i++) {
+            json.append("{\"id\":").append(i).append(",\"name\":\"user").append(i % 97);
+            json.append("\",\"active\":true,\"tags\":[\"a\",\"b\"]},");
+        }
+        json.setLength(json.length() - 1);
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
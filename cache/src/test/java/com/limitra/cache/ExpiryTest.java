@@ -0,0 +1,152 @@
+package com.limitra.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.time.FakeTimeProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class ExpiryTest {
+
+    private final FakeTimeProvider time = new FakeTimeProvider();
+
+    private <V> SimpleTTLCache<String, V> cache(Expiry<String, V> expiry) {
+        return SimpleTTLCache.<String, V>builder(time).expiry(expiry).build();
+    }
+
+    @Test
+    void afterAccess_readsExtendTheDeadline() {
+
+        // Given
+        SimpleTTLCache<String, String> cache = cache(Expiry.afterAccess(100));
+        cache.put("session", "s1");
+
+        // When: read every 60 ms, well past the original deadline
+        for (int i = 0; i < 5; i++) {
+            time.advanceMillis(60);
+            assertEquals("s1", cache.get("session").orElseThrow());
+        }
+        cache.cleanUp();
+
+        // Then
+        assertEquals(1, cache.size());
+        time.advanceMillis(100);
+        assertTrue(cache.get("session").isEmpty());
+    }
+
+    @Test
+    void afterWrite_takesTheTtlFromTheValue() {
+
+        // Given: values carry their own max-age in milliseconds
+        SimpleTTLCache<String, Long> cache = cache(Expiry.afterWrite((key, maxAge) -> maxAge));
+        cache.putAll(Map.of("short", 50L, "long", 500L));
+
+        // When
+        time.advanceMillis(60);
+
+        // Then
+        assertTrue(cache.get("short").isEmpty());
+        assertEquals(500L, cache.get("long").orElseThrow());
+        time.advanceMillis(440);
+        assertTrue(cache.get("long").isEmpty());
+    }
+
+    @Test
+    void expireAfterUpdate_canKeepTheOriginalDeadline() {
+
+        // Given: updates keep whatever time the entry had left
+        Expiry<String, String> keepDeadline =
+                new Expiry<>() {
+                    @Override
+                    public long expireAfterCreate(String key, String value, long nowNanos) {
+                        return 100_000_000L;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(
+                            String key, String value, long nowNanos, long remainingNanos) {
+                        return remainingNanos;
+                    }
+                };
+        SimpleTTLCache<String, String> cache = cache(keepDeadline);
+        cache.put("k", "v1");
+        time.advanceMillis(80);
+
+        // When
+        cache.put("k", "v2");
+        time.advanceMillis(30);
+
+        // Then
+        assertTrue(cache.get("k").isEmpty());
+    }
+
+    @Test
+    void explicitTtl_overridesThePolicyForThatWrite() {
+
+        // Given
+        SimpleTTLCache<String, String> cache = cache(Expiry.afterAccess(1_000));
+
+        // When
+        cache.put("k", "v", 10);
+        time.advanceMillis(20);
+
+        // Then
+        assertTrue(cache.get("k").isEmpty());
+    }
+
+    @Test
+    void timingWheel_removesExpiredEntriesThatAreNeverRead() {
+
+        // Given
+        List<RemovalCause> causes = new ArrayList<>();
+        SimpleTTLCache<String, String> cache =
+                SimpleTTLCache.<String, String>builder(time)
+                        .expiry(Expiry.afterAccess(10_000))
+                        .removalListener((k, v, cause) -> causes.add(cause))
+                        .listenerExecutor(Runnable::run)
+                        .build();
+        for (int i = 0; i < 1_000; i++) {
+            cache.put("k" + i, "v");
+        }
+        cache.put("survivor", "v", 60_000);
+
+        // When: far enough to cascade through the coarser wheel levels
+        time.advanceMillis(20_000);
+        cache.put("trigger", "v");
+
+        // Then
+        assertEquals(1_000, cache.metricsSnapshot().evictedByTtl());
+        assertEquals(2, cache.map.size());
+        assertEquals(1_000, causes.stream().filter(c -> c == RemovalCause.EXPIRED).count());
+        assertEquals("v", cache.get("survivor").orElseThrow());
+    }
+
+    @Test
+    void timingWheel_isDeterministicUnderFakeTime() {
+
+        // Given: the same schedule of writes, reads and clock moves, twice
+        long[] evicted = new long[2];
+        for (int run = 0; run < 2; run++) {
+            FakeTimeProvider clock = new FakeTimeProvider();
+            SimpleTTLCache<String, Integer> cache =
+                    SimpleTTLCache.<String, Integer>builder(clock)
+                            .expiry(Expiry.afterAccess(250))
+                            .build();
+
+            // When
+            for (int step = 0; step < 200; step++) {
+                cache.put("k" + (step % 37), step);
+                cache.get("k" + (step * 7 % 37));
+                clock.advanceMillis(step % 3 == 0 ? 40 : 5);
+                cache.cleanUp();
+            }
+            evicted[run] = cache.metricsSnapshot().evictedByTtl();
+        }
+
+        // Then
+        assertTrue(evicted[0] > 0);
+        assertEquals(evicted[0], evicted[1]);
+    }
+}
@@ -0,0 +1,239 @@
+package com.limitra.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.metrics.NegativeCacheMetrics;
+import com.limitra.time.FakeTimeProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class NegativeCachingTest {
+
+    private final FakeTimeProvider time = new FakeTimeProvider();
+
+    @Test
+    void emptyLoad_isCachedAsAbsent_untilTheNegativeTtlPasses() {
+
+        // Given
+        SimpleTTLCache<String, String> cache =
+                SimpleTTLCache.<String, String>builder(time).negativeTtl(100).build();
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            assertTrue(
+                    cache.getOrLoad(
+                                    "ghost",
+                                    key -> {
+                                        loads.incrementAndGet();
+                                        return Optional.empty();
+                                    })
+                            .isEmpty());
+        }
+
+        // Then
+        assertEquals(1, loads.get());
+        assertEquals(0, cache.size());
+        NegativeCacheMetrics metrics = cache.negativeMetricsSnapshot();
+        assertEquals(2, metrics.negativeHits());
+        assertEquals(1, metrics.loads());
+        assertEquals(1, cache.metricsSnapshot().misses());
+        assertEquals(0, cache.metricsSnapshot().hits());
+        time.advanceMillis(100);
+        assertEquals("now", cache.getOrLoad("ghost", key -> Optional.of("now")).orElseThrow());
+        assertEquals("now", cache.get("ghost").orElseThrow());
+    }
+
+    @Test
+    void markAbsent_isReplacedByAPut_andRequiresANegativeTtl() {
+
+        // Given
+        SimpleTTLCache<String, String> cache =
+                SimpleTTLCache.<String, String>builder(time).negativeTtl(1_000).build();
+        cache.put("a", "A");
+
+        // When
+        cache.markAbsent("a");
+        cache.markAbsent("b");
+
+        // Then
+        assertTrue(cache.get("a").isEmpty());
+        assertFalse(cache.remove("b")); // there was no value to remove
+        cache.put("a", "A2");
+        assertEquals("A2", cache.get("a").orElseThrow());
+        SimpleTTLCache<String, String> plain = new SimpleTTLCache<>(time);
+        assertThrows(IllegalStateException.class, () -> plain.markAbsent("a"));
+    }
+
+    @Test
+    void absentMarkers_areEvictedSilently_firstInLruOrder() {
+
+        // Given
+        List<String> removed = new ArrayList<>();
+        SimpleTTLCache<String, String> cache =
+                SimpleTTLCache.<String, String>builder(time)
+                        .maxEntries(2)
+                        .negativeTtl(1_000)
+                        .removalListener((key, value, cause) -> removed.add(key))
+                        .listenerExecutor(Runnable::run)
+                        .build();
+        cache.markAbsent("x");
+        cache.put("a", "A");
+
+        // When
+        cache.get("x"); // a negative hit does not refresh the marker
+        cache.put("b", "B");
+
+        // Then
+        assertEquals("A", cache.get("a").orElseThrow());
+        assertEquals("B", cache.get("b").orElseThrow());
+        assertTrue(removed.isEmpty());
+        assertEquals(0, cache.metricsSnapshot().evictedByCapacity());
+    }
+
+    @Test
+    void knownKeysFilter_rejectsUnknownKeys_withoutCallingTheLoader() {
+
+        // Given
+        BloomFilter<String> filter = BloomFilter.create(1_000, 0.01);
+        filter.add("user:1");
+        SimpleTTLCache<String, String> cache =
+                SimpleTTLCache.<String, String>builder(time).knownKeys(filter).build();
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        Optional<String> known =
+                cache.getOrLoad(
+                        "user:1",
+                        key -> {
+                            loads.incrementAndGet();
+                            return Optional.of("Ada");
+                        });
+        Optional<String> unknown =
+                cache.getOrLoad(
+                        "user:404",
+                        key -> {
+                            loads.incrementAndGet();
+                            return Optional.of("never");
+                        });
+        cache.put("user:2", "Bob");
+
+        // Then
+        assertEquals("Ada", known.orElseThrow());
+        assertTrue(unknown.isEmpty());
+        assertEquals(1, loads.get());
+        assertEquals("Bob", cache.get("user:2").orElseThrow());
+        assertEquals(1, cache.negativeMetricsSnapshot().filterRejections());
+        assertEquals(1, cache.metricsSnapshot().misses()); // only "user:1"
+    }
+
+    @Test
+    void bloomFilter_hasNoFalseNegatives_andFewFalsePositives() {
+
+        // Given
+        BloomFilter<Integer> filter = BloomFilter.create(10_000, 0.01);
+
+        // When
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(i);
+        }
+
+        // Then
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(i));
+            if (filter.mightContain(-1 - i)) {
+                ++falsePositives;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+        assertThrows(IllegalArgumentException.class, () -> BloomFilter.create(10, 1.0));
+    }
+
+    @Test
+    void concurrentMisses_shareOneLoad() throws Exception {
+
+        // Given
+        SimpleTTLCache<String, String> cache = new SimpleTTLCache<>(time);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+
+        try {
+            // When: one caller is inside the loader while three more ask for the same key
+            Future<Optional<String>> leader =
+                    pool.submit(
+                            () ->
+                                    cache.getOrLoad(
+                                            "k",
+                                            key -> {
+                                                loads.incrementAndGet();
+                                                loading.countDown();
+                                                await(release);
+                                                return Optional.of("V");
+                                            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            List<Future<Optional<String>>> followers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                followers.add(
+                        pool.submit(
+                                () ->
+                                        cache.getOrLoad(
+                                                "k",
+                                                key -> {
+                                                    loads.incrementAndGet();
+                                                    return Optional.of("other");
+                                                })));
+            }
+            while (cache.negativeMetricsSnapshot().coalescedLoads() < 3) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            // Then
+            assertEquals("V", leader.get(5, TimeUnit.SECONDS).orElseThrow());
+            for (Future<Optional<String>> follower : followers) {
+                assertEquals("V", follower.get(5, TimeUnit.SECONDS).orElseThrow());
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void loaderFailure_propagates_andIsNotCached() {
+
+        // Given
+        SimpleTTLCache<String, String> cache =
+                SimpleTTLCache.<String, String>builder(time).negativeTtl(1_000).build();
+
+        // When Then
+        assertThrows(
+                IllegalStateException.class,
+                () ->
+                        cache.getOrLoad(
+                                "k",
+                                key -> {
+                                    throw new IllegalStateException("store down");
+                                }));
+        assertEquals("V", cache.getOrLoad("k", key -> Optional.of("V")).orElseThrow());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
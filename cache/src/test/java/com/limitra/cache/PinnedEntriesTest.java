@@ -0,0 +1,102 @@
+package com.limitra.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.time.FakeTimeProvider;
+import org.junit.jupiter.api.Test;
+
+class PinnedEntriesTest {
+
+    private final FakeTimeProvider time = new FakeTimeProvider();
+
+    @Test
+    void pinnedEntries_surviveCapacityPressure_withinTheirOwnBudget() {
+
+        // Given
+        SimpleTTLCache<String, String> cache =
+                SimpleTTLCache.<String, String>builder(time).maxEntries(2).maxPinned(2).build();
+        assertTrue(cache.putPinned("flags", "on"));
+        assertTrue(cache.putPinned("tenant", "acme"));
+
+        // When
+        boolean third = cache.putPinned("extra", "x"); // over budget: stored unpinned
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, "v" + i);
+        }
+
+        // Then
+        assertFalse(third);
+        assertEquals("on", cache.get("flags").orElseThrow());
+        assertEquals("acme", cache.get("tenant").orElseThrow());
+        assertTrue(cache.get("extra").isEmpty());
+        assertEquals(4, cache.size());
+        assertEquals(2, cache.pinnedCount());
+        assertEquals(2, cache.lruList.orderSize()); // pinned keys have no LRU node
+        assertFalse(cache.lruList.contains("flags"));
+        assertEquals(99, cache.metricsSnapshot().evictedByCapacity());
+    }
+
+    @Test
+    void pinnedEntries_stillExpire_andFreeTheirBudget() {
+
+        // Given
+        SimpleTTLCache<String, String> cache =
+                SimpleTTLCache.<String, String>builder(time).maxEntries(1).maxPinned(1).build();
+        assertTrue(cache.putPinned("config", "v1", 1_000));
+
+        // When
+        time.advanceMillis(1_000);
+
+        // Then
+        assertTrue(cache.get("config").isEmpty());
+        assertEquals(0, cache.pinnedCount());
+        assertEquals(1, cache.metricsSnapshot().evictedByTtl());
+        assertTrue(cache.putPinned("other", "v"));
+    }
+
+    @Test
+    void putKeepsThePin_unpinReleasesIt_andPinningMustBeEnabled() {
+
+        // Given
+        SimpleTTLCache<String, String> cache =
+                SimpleTTLCache.<String, String>builder(time).maxEntries(1).maxPinned(1).build();
+        cache.putPinned("flags", "v1");
+
+        // When
+        cache.put("flags", "v2"); // a refresh stays pinned
+        cache.put("a", "A");
+        cache.put("b", "B");
+        boolean unpinned = cache.unpin("flags");
+        cache.put("c", "C");
+
+        // Then
+        assertTrue(unpinned);
+        assertFalse(cache.unpin("flags"));
+        assertTrue(cache.get("flags").isEmpty()); // evictable again, and the eldest
+        assertEquals("C", cache.get("c").orElseThrow());
+        assertEquals(0, cache.pinnedCount());
+        assertEquals(cache.map.size(), cache.lruList.orderSize());
+        SimpleTTLCache<String, String> plain = new SimpleTTLCache<>(time);
+        assertThrows(IllegalStateException.class, () -> plain.putPinned("k", "v"));
+    }
+
+    @Test
+    void removingAPinnedEntry_freesItsBudget() {
+
+        // Given
+        SimpleTTLCache<String, String> cache =
+                SimpleTTLCache.<String, String>builder(time).maxPinned(1).build();
+        cache.putPinned("a", "A");
+
+        // When
+        assertFalse(cache.putPinned("b", "B"));
+        assertTrue(cache.remove("a"));
+
+        // Then
+        assertTrue(cache.putPinned("c", "C"));
+        assertEquals(1, cache.pinnedCount());
+        cache.clear();
+        assertEquals(0, cache.pinnedCount());
+        assertEquals(0, cache.lruList.orderSize());
+    }
+}
@@ -0,0 +1,171 @@
+package com.limitra.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.time.FakeTimeProvider;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class RemovalListenerTest {
+
+    record Removal(String key, Integer value, RemovalCause cause) {}
+
+    private static SimpleTTLCache<String, Integer> newCache(
+            FakeTimeProvider time, int maxEntries, List<Removal> removals) {
+        return SimpleTTLCache.<String, Integer>builder(time)
+                .maxEntries(maxEntries)
+                .removalListener((k, v, cause) -> removals.add(new Removal(k, v, cause)))
+                .listenerExecutor(Runnable::run)
+                .build();
+    }
+
+    @Test
+    void explicitRemove_andReplace_reportTheirCauses() {
+
+        // Given
+        List<Removal> removals = new ArrayList<>();
+        SimpleTTLCache<String, Integer> cache = newCache(new FakeTimeProvider(), 10, removals);
+        cache.put("a", 1);
+
+        // When
+        cache.put("a", 2);
+        cache.remove("a");
+        cache.remove("missing");
+
+        // Then
+        assertEquals(
+                List.of(
+                        new Removal("a", 1, RemovalCause.REPLACED),
+                        new Removal("a", 2, RemovalCause.EXPLICIT)),
+                removals);
+    }
+
+    @Test
+    void capacityAndTtlEvictions_reportSizeAndExpired() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        List<Removal> removals = new ArrayList<>();
+        SimpleTTLCache<String, Integer> cache = newCache(time, 2, removals);
+        cache.put("expired", 1, 50);
+        cache.put("evictedBySize", 2);
+
+        // When
+        time.advanceMillis(60);
+        cache.get("expired");
+        cache.put("c", 3);
+        cache.put("d", 4);
+
+        // Then
+        assertEquals(
+                List.of(
+                        new Removal("expired", 1, RemovalCause.EXPIRED),
+                        new Removal("evictedBySize", 2, RemovalCause.SIZE)),
+                removals);
+        assertTrue(RemovalCause.SIZE.wasEvicted());
+        assertFalse(RemovalCause.REPLACED.wasEvicted());
+    }
+
+    @Test
+    void clearAndRemoveAll_reportExplicit() {
+
+        // Given
+        List<Removal> removals = new ArrayList<>();
+        SimpleTTLCache<String, Integer> cache = newCache(new FakeTimeProvider(), 10, removals);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+
+        // When
+        cache.removeAll(List.of("a"));
+        cache.clear();
+
+        // Then
+        assertEquals(3, removals.size());
+        assertTrue(removals.stream().allMatch(r -> r.cause() == RemovalCause.EXPLICIT));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void slowListener_slowsTheCallerDown_andNothingIsDropped() throws InterruptedException {
+
+        // Given: the first delivery blocks until released, and two more fit in the queue
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+        SimpleTTLCache<String, Integer> cache =
+                SimpleTTLCache.<String, Integer>builder(new FakeTimeProvider())
+                        .maxEntries(1)
+                        .removalListener(
+                                (k, v, cause) -> {
+                                    try {
+                                        release.await();
+                                    } catch (InterruptedException e) {
+                                        Thread.currentThread().interrupt();
+                                    }
+                                    delivered.add(k);
+                                })
+                        .listenerExecutor(executor)
+                        .listenerQueueCapacity(2)
+                        .build();
+
+        try {
+            // When: nine evictions overflow the queue
+            Thread producer =
+                    Thread.ofPlatform()
+                            .start(
+                                    () -> {
+                                        for (int i = 0; i < 10; i++) {
+                                            cache.put("k" + i, i);
+                                        }
+                                    });
+            while (producer.getState() != Thread.State.WAITING) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            producer.join();
+
+            // Then
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (delivered.size() < 9 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 9; i++) {
+                expected.add("k" + i);
+            }
+            assertEquals(expected, delivered);
+            assertTrue(cache.removalNotificationsDeliveredByCaller() > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failingListener_doesNotAffectCache() {
+
+        // Given
+        SimpleTTLCache<String, Integer> cache =
+                SimpleTTLCache.<String, Integer>builder(new FakeTimeProvider())
+                        .removalListener(
+                                (k, v, cause) -> {
+                                    throw new IllegalStateException("listener bug");
+                                })
+                        .listenerExecutor(Runnable::run)
+                        .build();
+        cache.put("a", 1);
+
+        // When
+        boolean removed = cache.remove("a");
+
+        // Then
+        assertTrue(removed);
+        assertEquals(1, cache.removalListenerFailures());
+    }
+}
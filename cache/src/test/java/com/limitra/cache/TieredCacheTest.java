@@ -0,0 +1,226 @@
+package com.limitra.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.time.FakeTimeProvider;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class TieredCacheTest {
+
+    private final FakeTimeProvider time = new FakeTimeProvider();
+
+    private TieredCache<String, String> cache(int l1Entries, int l2Bytes) {
+        return new TieredCache<>(time, l1Entries, OffHeapStore.direct(l2Bytes, ValueCodec.utf8()));
+    }
+
+    @Test
+    void l1Eviction_demotesToL2_andL2Hit_promotesBack() {
+
+        // Given
+        TieredCache<String, String> cache = cache(2, 1024);
+        cache.put("a", "A");
+        cache.put("b", "B");
+
+        // When
+        cache.put("c", "C");
+
+        // Then
+        assertEquals(1, cache.demotions());
+        assertEquals("A", cache.get("a").orElseThrow());
+        assertEquals(1, cache.promotions());
+        assertEquals(2, cache.demotions()); // promoting "a" pushed "b" down
+        assertEquals("B", cache.get("b").orElseThrow());
+        assertEquals(3, cache.size());
+
+        assertEquals(2, cache.l2Metrics().hits());
+        assertEquals(0, cache.l2Metrics().misses());
+        assertEquals(2, cache.l1Metrics().misses());
+    }
+
+    @Test
+    void ttl_isPreservedAcrossTiers() {
+
+        // Given
+        TieredCache<String, String> cache = cache(1, 1024);
+        cache.put("a", "A", 100);
+        cache.put("b", "B", 100);
+        time.advanceMillis(60);
+
+        // When Then: "a" comes back from L2 with its original deadline
+        assertEquals("A", cache.get("a").orElseThrow());
+        time.advanceMillis(40);
+        assertTrue(cache.get("a").isEmpty());
+
+        // "b" expired while in L2
+        assertTrue(cache.get("b").isEmpty());
+        assertEquals(1, cache.l2Metrics().evictedByTtl());
+    }
+
+    @Test
+    void writes_replaceTheL2Copy_andRemoveClearsBothTiers() {
+
+        // Given
+        TieredCache<String, String> cache = cache(1, 1024);
+        cache.put("a", "old");
+        cache.put("b", "B"); // demotes "a"
+
+        // When
+        cache.put("a", "new"); // demotes "b"
+
+        // Then
+        assertEquals("new", cache.get("a").orElseThrow());
+        assertTrue(cache.remove("b"));
+        assertTrue(cache.remove("a"));
+        assertFalse(cache.remove("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void remove_racingAnL1Eviction_neverBringsTheKeyBack() throws Exception {
+
+        for (int round = 0; round < 2_000; round++) {
+
+            // Given: "a" fills L1, so the next put evicts it
+            TieredCache<String, String> cache = cache(1, 1024);
+            cache.put("a", "A");
+            CountDownLatch start = new CountDownLatch(1);
+            Thread evictor =
+                    Thread.ofPlatform()
+                            .start(
+                                    () -> {
+                                        await(start);
+                                        cache.put("b", "B");
+                                    });
+
+            // When
+            start.countDown();
+            boolean removed = cache.remove("a");
+            evictor.join();
+
+            // Then
+            assertTrue(removed, "round " + round);
+            assertTrue(cache.get("a").isEmpty(), "round " + round);
+            assertEquals("B", cache.get("b").orElseThrow());
+        }
+    }
+
+    @Test
+    void put_racingAnL1EvictionOfTheOldValue_neverBringsTheOldValueBack() throws Exception {
+
+        // Given: "a" fills L1; the clock read at the start of L1's put is where "b" cuts in
+        AtomicReference<Runnable> onNextRead = new AtomicReference<>();
+        FakeTimeProvider hooked =
+                new FakeTimeProvider() {
+                    @Override
+                    public long nowNanos() {
+                        Runnable hook = onNextRead.getAndSet(null);
+                        if (hook != null) {
+                            hook.run();
+                        }
+                        return super.nowNanos();
+                    }
+                };
+        TieredCache<String, String> cache =
+                new TieredCache<>(hooked, 1, OffHeapStore.direct(1024, ValueCodec.utf8()));
+        cache.put("a", "old");
+        Thread[] evictor = new Thread[1];
+        onNextRead.set(
+                () -> {
+                    // "a" is no longer pending, and "new" is not in L1 yet: evict "old" now
+                    evictor[0] = Thread.ofPlatform().start(() -> cache.put("b", "B"));
+                    while (cache.l1Metrics().evictedByCapacity() == 0) {
+                        Thread.onSpinWait();
+                    }
+                });
+
+        // When
+        cache.put("a", "new", 1_000);
+        evictor[0].join();
+        hooked.advanceMillis(1_001);
+
+        // Then: "new" expired, and "old" must not resurface from L2
+        assertTrue(cache.get("a").isEmpty());
+        assertEquals("B", cache.get("b").orElseThrow());
+    }
+
+    @Test
+    void l2Log_evictsOldestRecords_whenItWraps() {
+
+        // Given: 100 bytes of L2 hold three 30-byte values
+        TieredCache<String, String> cache = cache(1, 100);
+        for (int i = 0; i < 5; i++) {
+            cache.put("k" + i, String.valueOf(i).repeat(30));
+        }
+
+        // Then: k0..k3 were demoted, k0 was written over by k3
+        assertEquals(4, cache.demotions());
+        assertEquals(1, cache.l2Metrics().evictedByCapacity());
+        assertTrue(cache.get("k0").isEmpty());
+        assertEquals("1".repeat(30), cache.get("k1").orElseThrow());
+    }
+
+    @Test
+    void offHeapStore_rejectsValuesLargerThanItself() {
+
+        // Given
+        OffHeapStore<String, String> store = OffHeapStore.direct(8, ValueCodec.utf8());
+        store.put("k", "small", Long.MAX_VALUE);
+
+        // When
+        boolean stored = store.put("k", "much too large", Long.MAX_VALUE);
+
+        // Then
+        assertFalse(stored);
+        assertNull(store.get("k"));
+        assertEquals(1, store.rejected());
+    }
+
+    @Test
+    void offHeapStore_emptyValues_areReclaimedLikeAnyOther() {
+
+        // Given
+        OffHeapStore<String, String> store = OffHeapStore.direct(8, ValueCodec.utf8());
+
+        // When
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(store.put("k" + (i % 2), "", Long.MAX_VALUE));
+        }
+
+        // Then: each empty record takes one byte of the ring, so the log stays bounded
+        assertEquals("", store.get("k1").value);
+        assertTrue(store.logRecords() <= 8, "log records " + store.logRecords());
+    }
+
+    @Test
+    void mappedFileStore_roundTripsValues() throws Exception {
+
+        // Given
+        Path file = Files.createTempFile("limitra-l2", ".bin");
+        try (TieredCache<String, String> cache =
+                new TieredCache<>(
+                        time, 1, OffHeapStore.mapped(file, 4096, ValueCodec.utf8()))) {
+
+            // When
+            cache.put("a", "on disk");
+            cache.put("b", "on heap");
+
+            // Then
+            assertEquals(4096, Files.size(file));
+            assertEquals("on disk", cache.get("a").orElseThrow());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.limitra.cache.invalidation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.cache.SimpleTTLCache;
+import com.limitra.time.FakeTimeProvider;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+
+class NearCacheTest {
+
+    private final FakeTimeProvider time = new FakeTimeProvider();
+
+    private NearCache<String, String> nearCache(InvalidationTransport transport, int maxBytes) {
+        return new NearCache<>(
+                new SimpleTTLCache<>(time, 1_000), transport, KeyCodec.utf8(), maxBytes);
+    }
+
+    @Test
+    void localWrite_invalidatesPeers_afterFlush() {
+
+        // Given
+        InMemoryInvalidationHub hub = new InMemoryInvalidationHub(Runnable::run);
+        NearCache<String, String> a = nearCache(hub.connect(), 1_400);
+        NearCache<String, String> b = nearCache(hub.connect(), 1_400);
+        a.put("k", "old");
+        b.put("k", "old");
+        a.flush();
+        b.flush();
+        b.put("k", "old");
+
+        // When
+        a.put("k", "new");
+
+        // Then
+        assertEquals("old", b.get("k").orElseThrow());
+        a.flush();
+        assertTrue(b.get("k").isEmpty());
+        assertEquals("new", a.get("k").orElseThrow());
+    }
+
+    @Test
+    void repeatedChangesWithinAWindow_areSentOnce() {
+
+        // Given
+        InMemoryInvalidationHub hub = new InMemoryInvalidationHub(Runnable::run);
+        NearCache<String, String> a = nearCache(hub.connect(), 1_400);
+        NearCache<String, String> b = nearCache(hub.connect(), 1_400);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            a.put("hot", "v" + i);
+        }
+        a.remove("hot");
+        a.put("cold", "v");
+        a.flush();
+
+        // Then
+        assertEquals(7, a.queuedInvalidations());
+        assertEquals(5, a.deduplicatedInvalidations());
+        assertEquals(1, a.messagesSent());
+        assertEquals(2, b.invalidationsReceived());
+    }
+
+    @Test
+    void largeBatch_isSplitAcrossMessages() {
+
+        // Given
+        InMemoryInvalidationHub hub = new InMemoryInvalidationHub(Runnable::run);
+        NearCache<String, String> a = nearCache(hub.connect(), 64);
+        NearCache<String, String> b = nearCache(hub.connect(), 64);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            keys.add("key-" + i);
+            b.put("key-" + i, "v");
+        }
+
+        // When
+        a.removeAll(keys);
+        a.flush();
+
+        // Then: 11 header bytes + 7 bytes per key leaves room for 7 keys per message
+        assertEquals(3, a.messagesSent());
+        assertEquals(20, b.invalidationsReceived());
+        assertTrue(b.getAll(keys).isEmpty());
+    }
+
+    @Test
+    void clear_clearsPeers() {
+
+        // Given
+        InMemoryInvalidationHub hub = new InMemoryInvalidationHub(Runnable::run);
+        NearCache<String, String> a = nearCache(hub.connect(), 1_400);
+        NearCache<String, String> b = nearCache(hub.connect(), 1_400);
+        b.local().putAll(Map.of("x", "1", "y", "2"));
+
+        // When
+        a.put("z", "3");
+        a.clear();
+        a.flush();
+
+        // Then
+        assertEquals(0, b.size());
+        assertEquals(1, a.messagesSent());
+    }
+
+    @Test
+    void failedPublish_keepsTheKeysQueued_andTheTickerRunning() throws Exception {
+
+        // Given: a transport that fails its first two messages
+        InMemoryInvalidationHub hub = new InMemoryInvalidationHub(Runnable::run);
+        AtomicInteger failuresLeft = new AtomicInteger(2);
+        InvalidationTransport flaky = failing(hub.connect(), failuresLeft);
+        NearCache<String, String> a = nearCache(flaky, 1_400);
+        NearCache<String, String> b = nearCache(hub.connect(), 1_400);
+        b.put("k", "stale");
+
+        // When
+        a.put("k", "fresh");
+        assertThrows(IllegalStateException.class, a::flush);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            a.start(scheduler, 1);
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (b.get("k").isPresent() && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+        } finally {
+            scheduler.shutdownNow();
+        }
+
+        // Then
+        assertTrue(b.get("k").isEmpty());
+        assertEquals(2, a.failedFlushes());
+        assertEquals(1, a.messagesSent());
+    }
+
+    @Test
+    void maxMessageBytes_mustFitTheTransport() throws Exception {
+
+        // Given
+        InetSocketAddress any = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (UdpInvalidationTransport udp = new UdpInvalidationTransport(any)) {
+
+            // When Then
+            int max = UdpInvalidationTransport.MAX_MESSAGE_BYTES;
+            assertThrows(IllegalArgumentException.class, () -> nearCache(udp, max + 1));
+            assertEquals(0, nearCache(udp, max).messagesSent());
+        }
+    }
+
+    @Test
+    void udpTransport_deliversInvalidationsOverLoopback() throws Exception {
+
+        // Given
+        InetSocketAddress any = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (UdpInvalidationTransport ta = new UdpInvalidationTransport(any);
+                UdpInvalidationTransport tb = new UdpInvalidationTransport(any)) {
+            ta.addPeer(tb.localAddress());
+            tb.addPeer(ta.localAddress());
+            ta.addPeer(ta.localAddress()); // own messages must be ignored
+            NearCache<String, String> a = nearCache(ta, 1_400);
+            NearCache<String, String> b = nearCache(tb, 1_400);
+            b.local().put("k", "stale");
+
+            // When
+            a.put("k", "fresh");
+            a.flush();
+
+            // Then
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (b.local().get("k").isPresent() && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(b.local().get("k").isEmpty());
+            assertEquals("fresh", a.get("k").orElseThrow());
+        }
+    }
+
+    private static InvalidationTransport failing(
+            InvalidationTransport delegate, AtomicInteger failuresLeft) {
+        return new InvalidationTransport() {
+            @Override
+            public void publish(byte[] message) {
+                if (failuresLeft.getAndDecrement() > 0) {
+                    throw new IllegalStateException("transport down");
+                }
+                delegate.publish(message);
+            }
+
+            @Override
+            public void subscribe(Consumer<byte[]> receiver) {
+                delegate.subscribe(receiver);
+            }
+
+            @Override
+            public void close() {
+                delegate.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,70 @@
+package com.limitra.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.time.FakeTimeProvider;
+import org.junit.jupiter.api.Test;
+
+class RollingCacheStatsTest {
+
+    private final FakeTimeProvider time = new FakeTimeProvider();
+
+    @Test
+    void snapshot_sumsWholeSeconds_andLeavesOutTheCurrentOne() {
+
+        // Given
+        RollingCacheStats stats = new RollingCacheStats(time, 10);
+        stats.recordHits(8);
+        stats.recordMisses(2);
+        time.advanceSeconds(1);
+        stats.recordHits(1);
+        stats.recordMisses(9);
+
+        // When
+        RollingWindowSnapshot lastSecond = stats.snapshot(1);
+        time.advanceSeconds(1);
+        RollingWindowSnapshot lastTwo = stats.snapshot(2);
+
+        // Then
+        assertEquals(8, lastSecond.hits());
+        assertEquals(0.8, lastSecond.hitRate(), 1e-9);
+        assertEquals(9, lastTwo.hits());
+        assertEquals(11, lastTwo.misses());
+        assertEquals(0.45, lastTwo.hitRate(), 1e-9);
+        assertEquals(10.0, lastTwo.requestsPerSecond(), 1e-9);
+    }
+
+    @Test
+    void oldSeconds_rollOut_andReusedBucketsStartFromZero() {
+
+        // Given
+        RollingCacheStats stats = new RollingCacheStats(time, 3);
+        stats.recordPuts(100);
+        stats.recordEvictionsByTtl(4);
+
+        // When: the ring of 4 buckets wraps onto the first one
+        time.advanceSeconds(4);
+        stats.recordPuts(1);
+        stats.recordEvictionsByCapacity(6);
+        time.advanceSeconds(1);
+
+        // Then
+        RollingWindowSnapshot window = stats.snapshot(3);
+        assertEquals(1, window.puts());
+        assertEquals(0, window.evictedByTtl());
+        assertEquals(6, window.evictedByCapacity());
+        assertEquals(2.0, window.capacityEvictionsPerSecond(), 1e-9);
+        assertEquals(1.0, window.hitRate()); // no lookups, nothing missed
+    }
+
+    @Test
+    void snapshot_rejectsWindowsLongerThanTheRing() {
+
+        // Given
+        RollingCacheStats stats = new RollingCacheStats(time, 5);
+
+        // When Then
+        assertThrows(IllegalArgumentException.class, () -> stats.snapshot(6));
+        assertThrows(IllegalArgumentException.class, () -> stats.snapshot(0));
+    }
+}
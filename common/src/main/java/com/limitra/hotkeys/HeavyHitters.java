@@ -0,0 +1,239 @@
+package com.limitra.hotkeys;
+
+import com.limitra.time.TimeProvider;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Finds the most frequent keys of a stream over a sliding window, in bounded memory, e.g. to spot
+ * a key that went viral before it saturates a cache bin or a limiter bucket.
+ *
+ * <p>Each pane of the window is a Space-Saving summary of at most {@code capacity} counters: a new
+ * key takes over the smallest counter, inheriting its count as error. Any key whose frequency in
+ * the pane exceeds {@code 1/capacity} of the pane's samples is guaranteed to be tracked. {@link
+ * #topK(int)} adds up the panes still inside the window; the pane in progress is included, so the
+ * window covers between {@code panes - 1} and {@code panes} pane lengths.
+ *
+ * <p>The hot path is cheap by construction. With a sampling rate of {@code n}, all but one in
+ * {@code n} calls return after one thread-local random number. Sampled calls read the clock and
+ * update the summary under a lock they only try to take: a sample that finds it held is dropped
+ * rather than waited for. Counts are scaled back up by {@code n}, so with sampling they are
+ * estimates and the error bounds hold for the sampled stream only.
+ *
+ * <p>Panes rotate when a sample or a read finds that the clock moved into a new pane; there is no
+ * background thread, so under a fake clock the sketch is deterministic when {@code n} is 1.
+ *
+ * @param <K> the type of keys
+ */
+public final class HeavyHitters<K> {
+
+    private final TimeProvider time;
+    private final int capacity;
+    private final long paneNanos;
+    private final int sampleRate;
+    private final LongAdder dropped;
+    private final ReentrantLock lock;
+    // guarded by lock
+    private final Pane<K>[] panes;
+
+    /**
+     * @param capacity counters per pane; bounds memory and sets the frequency threshold
+     * @param windowMillis length of the sliding window
+     * @param panes number of panes the window is split into; more panes slide more smoothly
+     * @param sampleRate record one call in this many; 1 records every call
+     */
+    @SuppressWarnings("unchecked")
+    public HeavyHitters(
+            TimeProvider time, int capacity, long windowMillis, int panes, int sampleRate) {
+        this.time = Objects.requireNonNull(time, "time must not be null");
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        if (panes <= 0) {
+            throw new IllegalArgumentException("panes must be greater than 0");
+        }
+        if (windowMillis < panes) {
+            throw new IllegalArgumentException("windowMillis must be at least 1 ms per pane");
+        }
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sampleRate must be greater than 0");
+        }
+        this.capacity = capacity;
+        this.paneNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis) / panes;
+        this.sampleRate = sampleRate;
+        this.lock = new ReentrantLock();
+        this.panes = (Pane<K>[]) new Pane<?>[panes];
+        for (int i = 0; i < panes; i++) {
+            this.panes[i] = new Pane<>(capacity);
+        }
+        this.dropped = new LongAdder();
+    }
+
+    public void record(K key) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        Objects.requireNonNull(key, "key must not be null");
+        long epoch = Math.floorDiv(time.nowNanos(), paneNanos);
+        if (!lock.tryLock()) {
+            dropped.increment();
+            return;
+        }
+        try {
+            pane(epoch).add(key, sampleRate);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code k} keys with the highest estimated counts in the window, highest first.
+     * Allocates; meant for dashboards and alerts, not for the request path.
+     */
+    public List<HotKey<K>> topK(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be greater than 0");
+        }
+        Map<K, long[]> merged = new HashMap<>();
+        long current = Math.floorDiv(time.nowNanos(), paneNanos);
+        lock.lock();
+        try {
+            for (Pane<K> pane : panes) {
+                if (pane.epoch <= current - panes.length || pane.epoch > current) {
+                    continue;
+                }
+                for (int i = 0; i < pane.size; i++) {
+                    Counter<K> counter = pane.heap[i];
+                    long[] sums = merged.computeIfAbsent(counter.key, ignored -> new long[2]);
+                    sums[0] += counter.count;
+                    sums[1] += counter.error;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        List<HotKey<K>> hot = new ArrayList<>(merged.size());
+        merged.forEach((key, sums) -> hot.add(new HotKey<>(key, sums[0], sums[1])));
+        hot.sort((a, b) -> Long.compare(b.count(), a.count()));
+        return hot.size() > k ? List.copyOf(hot.subList(0, k)) : hot;
+    }
+
+    /** Sampled calls dropped because another thread held the summary. */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /** The pane for {@code epoch}, cleared first if it still holds an older one. */
+    private Pane<K> pane(long epoch) {
+        Pane<K> pane = panes[(int) Math.floorMod(epoch, (long) panes.length)];
+        if (pane.epoch != epoch) {
+            pane.reset(epoch);
+        }
+        return pane;
+    }
+
+    /** One Space-Saving summary: counters in a min-heap on count, indexed by key. */
+    private static final class Pane<K> {
+
+        final HashMap<K, Counter<K>> counters;
+        final Counter<K>[] heap;
+        int size;
+        long epoch = Long.MIN_VALUE;
+
+        @SuppressWarnings("unchecked")
+        Pane(int capacity) {
+            this.counters = new HashMap<>();
+            this.heap = (Counter<K>[]) new Counter<?>[capacity];
+        }
+
+        void add(K key, long weight) {
+            Counter<K> counter = counters.get(key);
+            if (counter == null && size < heap.length) {
+                counter = new Counter<>(key);
+                counter.count = weight;
+                counters.put(key, counter);
+                heap[size] = counter;
+                siftUp(size++);
+                return;
+            }
+            if (counter == null) {
+                // take over the smallest counter; its count becomes our error
+                counter = heap[0];
+                counters.remove(counter.key);
+                counter.key = key;
+                counter.error = counter.count;
+                counters.put(key, counter);
+            }
+            counter.count += weight;
+            siftDown(counter.index);
+        }
+
+        void reset(long epoch) {
+            counters.clear();
+            for (int i = 0; i < size; i++) {
+                heap[i] = null;
+            }
+            size = 0;
+            this.epoch = epoch;
+        }
+
+        private void siftUp(int index) {
+            Counter<K> counter = heap[index];
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (heap[parent].count <= counter.count) {
+                    break;
+                }
+                heap[index] = heap[parent];
+                heap[index].index = index;
+                index = parent;
+            }
+            heap[index] = counter;
+            counter.index = index;
+        }
+
+        private void siftDown(int index) {
+            Counter<K> counter = heap[index];
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                    ++child;
+                }
+                if (heap[child].count >= counter.count) {
+                    break;
+                }
+                heap[index] = heap[child];
+                heap[index].index = index;
+                index = child;
+            }
+            heap[index] = counter;
+            counter.index = index;
+        }
+    }
+
+    private static final class Counter<K> {
+
+        K key;
+        long count;
+        long error;
+        int index;
+
+        Counter(K key) {
+            this.key = key;
+        }
+    }
+}
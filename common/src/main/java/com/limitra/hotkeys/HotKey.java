@@ -0,0 +1,9 @@
+package com.limitra.hotkeys;
+
+/**
+ * A key reported by {@link HeavyHitters}, with its estimated count over the window.
+ *
+ * @param count an upper bound on the key's true count, scaled up by the sampling rate
+ * @param error how much {@code count} may overestimate; {@code count - error} is a lower bound
+ */
+public record HotKey<K>(K key, long count, long error) {}
@@ -0,0 +1,90 @@
+package com.limitra.time;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A coarse {@link TimeProvider} that returns a periodically refreshed reading of another provider.
+ *
+ * <p>{@link #nowNanos()} is a single volatile read, which is cheaper than {@link System#nanoTime()}
+ * on hot paths that run many times per millisecond. The price is precision: readings lag the source
+ * by up to one resolution period (plus scheduling jitter), so use it only where that error is
+ * acceptable, e.g. TTLs of seconds or rate limits of a few hundred permits per second.
+ *
+ * <p>The value is refreshed by a daemon ticker thread started with {@link #start()}, or manually
+ * with {@link #refresh()}, which keeps tests driven by {@link FakeTimeProvider} deterministic.
+ * Readings never go backwards, even if refreshes race.
+ */
+public class CachedTimeProvider implements TimeProvider, AutoCloseable {
+
+    private final TimeProvider source;
+    private final long resolutionNanos;
+    private final AtomicLong cached;
+    private volatile Thread ticker;
+
+    public CachedTimeProvider(TimeProvider source, long resolution, TimeUnit unit) {
+        Objects.requireNonNull(source, "source must not be null");
+        Objects.requireNonNull(unit, "unit must not be null");
+        if (resolution <= 0) {
+            throw new IllegalArgumentException("resolution must be greater than 0");
+        }
+        this.source = source;
+        this.resolutionNanos = unit.toNanos(resolution);
+        this.cached = new AtomicLong(source.nowNanos());
+    }
+
+    /** Ticks {@link System#nanoTime()} every millisecond on a background thread. */
+    public static CachedTimeProvider millisecondTicker() {
+        return new CachedTimeProvider(new SystemTimeProvider(), 1, TimeUnit.MILLISECONDS).start();
+    }
+
+    @Override
+    public long nowNanos() {
+        return cached.get();
+    }
+
+    /** Reads the source and publishes it if it is newer than the cached value. */
+    public long refresh() {
+        long now = source.nowNanos();
+        return cached.accumulateAndGet(now, Math::max);
+    }
+
+    /** Starts a daemon thread that refreshes the value once per resolution period. */
+    public synchronized CachedTimeProvider start() {
+        if (ticker != null) {
+            throw new IllegalStateException("Already started");
+        }
+        // published before it starts, or the thread could see a null ticker and exit at once
+        Thread t =
+                Thread.ofPlatform()
+                        .daemon()
+                        .name("limitra-cached-clock")
+                        .unstarted(
+                                () -> {
+                                    Thread self = Thread.currentThread();
+                                    while (ticker == self) {
+                                        refresh();
+                                        LockSupport.parkNanos(this, resolutionNanos);
+                                    }
+                                });
+        ticker = t;
+        t.start();
+        return this;
+    }
+
+    public long resolutionNanos() {
+        return resolutionNanos;
+    }
+
+    /** Stops the ticker thread, if any. The last published value stays readable. */
+    @Override
+    public synchronized void close() {
+        Thread t = ticker;
+        ticker = null;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.limitra.hotkeys;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.time.FakeTimeProvider;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class HeavyHittersTest {
+
+    private final FakeTimeProvider time = new FakeTimeProvider();
+
+    @Test
+    void topK_findsTheHeavyKeys_withinTheirErrorBounds() {
+
+        // Given: "hot" is 30% of the stream, "warm-*" 10% each, the rest spread over 1000 keys
+        HeavyHitters<String> sketch = new HeavyHitters<>(time, 20, 60_000, 6, 1);
+        int cold = 0;
+        for (int i = 0; i < 10_000; i++) {
+            int slot = i % 10;
+            if (slot < 3) {
+                sketch.record("hot");
+            } else if (slot == 3) {
+                sketch.record("warm-1");
+            } else if (slot == 4) {
+                sketch.record("warm-2");
+            } else {
+                sketch.record("cold-" + cold++ % 1000);
+            }
+        }
+
+        // When
+        List<HotKey<String>> top = sketch.topK(3);
+
+        // Then
+        assertEquals("hot", top.get(0).key());
+        assertEquals(
+                List.of("warm-1", "warm-2"),
+                top.subList(1, 3).stream().map(HotKey::key).sorted().toList());
+        HotKey<String> hot = top.get(0);
+        assertTrue(hot.count() >= 3_000 && hot.count() - hot.error() <= 3_000);
+    }
+
+    @Test
+    void keysFallOutOfTheWindow_asItSlides() {
+
+        // Given: a 10 s window in 5 panes
+        HeavyHitters<String> sketch = new HeavyHitters<>(time, 8, 10_000, 5, 1);
+        for (int i = 0; i < 100; i++) {
+            sketch.record("yesterday");
+        }
+
+        // When
+        time.advanceSeconds(10);
+        for (int i = 0; i < 10; i++) {
+            sketch.record("today");
+        }
+
+        // Then
+        List<HotKey<String>> top = sketch.topK(5);
+        assertEquals(1, top.size());
+        assertEquals(new HotKey<>("today", 10, 0), top.get(0));
+    }
+
+    @Test
+    void memory_isBoundedByCapacityPerPane() {
+
+        // Given
+        HeavyHitters<Integer> sketch = new HeavyHitters<>(time, 16, 4_000, 4, 1);
+
+        // When: 100k distinct keys spread over the whole window
+        for (int i = 0; i < 100_000; i++) {
+            sketch.record(i);
+            if (i % 25_000 == 24_999) {
+                time.advanceSeconds(1);
+            }
+        }
+
+        // Then
+        assertTrue(sketch.topK(1_000).size() <= 16 * 4);
+    }
+
+    @Test
+    void sampling_scalesCountsBackUp() {
+
+        // Given
+        HeavyHitters<String> sketch = new HeavyHitters<>(time, 4, 60_000, 1, 16);
+
+        // When
+        for (int i = 0; i < 160_000; i++) {
+            sketch.record("viral");
+        }
+
+        // Then: about one call in 16 was recorded, each worth 16
+        long count = sketch.topK(1).get(0).count();
+        assertEquals(0, count % 16);
+        assertTrue(count > 140_000 && count < 180_000, "count was " + count);
+    }
+}
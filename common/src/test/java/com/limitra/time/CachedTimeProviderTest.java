@@ -0,0 +1,90 @@
+package com.limitra.time;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class CachedTimeProviderTest {
+
+    @Test
+    void nowNanos_returnsLastRefresh_untilRefreshedAgain() {
+
+        // Given
+        FakeTimeProvider source = new FakeTimeProvider(1_000);
+        CachedTimeProvider time = new CachedTimeProvider(source, 1, TimeUnit.MILLISECONDS);
+
+        // When
+        source.advanceMillis(5);
+
+        // Then
+        assertEquals(1_000, time.nowNanos());
+        assertEquals(1_000 + TimeUnit.MILLISECONDS.toNanos(5), time.refresh());
+        assertEquals(1_000 + TimeUnit.MILLISECONDS.toNanos(5), time.nowNanos());
+    }
+
+    @Test
+    void refresh_neverMovesBackwards() {
+
+        // Given
+        TimeProvider jittery =
+                new TimeProvider() {
+                    long[] readings = {100, 500, 300, 600};
+                    int i;
+
+                    @Override
+                    public long nowNanos() {
+                        return readings[Math.min(i++, readings.length - 1)];
+                    }
+                };
+        CachedTimeProvider time = new CachedTimeProvider(jittery, 1, TimeUnit.MILLISECONDS);
+
+        // When Then
+        assertEquals(500, time.refresh());
+        assertEquals(500, time.refresh());
+        assertEquals(600, time.refresh());
+    }
+
+    @Test
+    void ticker_advancesWithSource_andStopsOnClose() throws InterruptedException {
+
+        // Given
+        FakeTimeProvider source = new FakeTimeProvider();
+        CachedTimeProvider time =
+                new CachedTimeProvider(source, 1, TimeUnit.MILLISECONDS).start();
+
+        // When
+        source.advanceSeconds(1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (time.nowNanos() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        time.close();
+
+        // Then
+        assertEquals(TimeUnit.SECONDS.toNanos(1), time.nowNanos());
+    }
+
+    @Test
+    void start_twice_throws() {
+
+        // Given
+        CachedTimeProvider time =
+                new CachedTimeProvider(new FakeTimeProvider(), 1, TimeUnit.MILLISECONDS).start();
+
+        // When Then
+        try {
+            assertThrows(IllegalStateException.class, time::start);
+        } finally {
+            time.close();
+        }
+    }
+
+    @Test
+    void constructor_invalidResolution_throws() {
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new CachedTimeProvider(new FakeTimeProvider(), 0, TimeUnit.MILLISECONDS));
+    }
+}
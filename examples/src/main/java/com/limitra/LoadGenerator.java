@@ -0,0 +1,242 @@
+package com.limitra;
+
+import com.limitra.cache.SimpleTTLCache;
+import com.limitra.limiter.TokenBucketRateLimiter;
+import com.limitra.time.SystemTimeProvider;
+import com.limitra.time.TimeProvider;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntSupplier;
+
+/**
+ * Open-loop load generator for sizing: drives a {@link SimpleTTLCache} behind a {@link
+ * TokenBucketRateLimiter} at a constant arrival rate and prints latency percentiles and throughput.
+ *
+ * <p>Requests are issued on a fixed schedule, one every {@code 1/rate} seconds, each on its own
+ * virtual thread, whether or not earlier requests have finished. Latency is measured from the time
+ * a request was scheduled to start, not from when it actually started, so a stall delays the
+ * requests queued behind it and shows up in their latencies rather than being hidden by a slower
+ * send rate (coordinated omission).
+ *
+ * <p>Each request takes a permit from the limiter and, if granted, reads or writes one key.
+ * Options, as {@code name=value}:
+ *
+ * <ul>
+ *   <li>{@code rate} requests per second (50000), {@code seconds} to run (10), {@code warmup}
+ *       seconds left out of the statistics (2)
+ *   <li>{@code keys} (100000) and {@code dist}: {@code uniform}, {@code zipf} (exponent {@code
+ *       zipfExponent}, 0.99) or {@code hotspot} (80% of requests on 20% of the keys)
+ *   <li>{@code reads}: fraction of cache requests that are reads (0.9); a missed read fills the key
+ *   <li>{@code maxEntries} (50000), {@code valueBytes} (256), {@code limitRate} permits per second
+ *       (the arrival rate) and {@code limitBurst} (a tenth of that)
+ * </ul>
+ */
+public class LoadGenerator {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        double rate = Double.parseDouble(options.getOrDefault("rate", "50000"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "10"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "2"));
+        int keyCount = Integer.parseInt(options.getOrDefault("keys", "100000"));
+        String dist = options.getOrDefault("dist", "zipf");
+        double zipfExponent = Double.parseDouble(options.getOrDefault("zipfExponent", "0.99"));
+        double reads = Double.parseDouble(options.getOrDefault("reads", "0.9"));
+        int maxEntries = Integer.parseInt(options.getOrDefault("maxEntries", "50000"));
+        int valueBytes = Integer.parseInt(options.getOrDefault("valueBytes", "256"));
+        double limitRate =
+                Double.parseDouble(options.getOrDefault("limitRate", Double.toString(rate)));
+        long limitBurst =
+                Long.parseLong(
+                        options.getOrDefault(
+                                "limitBurst", Long.toString(Math.max(1, (long) limitRate / 10))));
+        if (rate <= 0 || seconds <= 0 || warmup < 0 || keyCount <= 0) {
+            throw new IllegalArgumentException("rate, seconds and keys must be positive");
+        }
+
+        SplittableRandom random = new SplittableRandom(42);
+        IntSupplier keyChooser =
+                switch (dist) {
+                    case "uniform" -> () -> random.nextInt(keyCount);
+                    case "zipf" -> zipf(random, keyCount, zipfExponent);
+                    case "hotspot" -> hotspot(random, keyCount, 0.2, 0.8);
+                    default -> throw new IllegalArgumentException("Unknown dist: " + dist);
+                };
+        String[] keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "key:" + i;
+        }
+
+        TimeProvider time = new SystemTimeProvider();
+        SimpleTTLCache<String, byte[]> cache = new SimpleTTLCache<>(time, maxEntries);
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(time, limitBurst, limitRate);
+        Stats stats = new Stats();
+        byte[] value = new byte[valueBytes];
+
+        System.out.printf(
+                "rate=%.0f/s seconds=%d warmup=%d keys=%d dist=%s reads=%.2f maxEntries=%d%n",
+                rate, seconds, warmup, keyCount, dist, reads, maxEntries);
+        double intervalNanos = 1e9 / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmup);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        long issued = 0;
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long intended = start + (long) (i * intervalNanos);
+                if (intended >= end) {
+                    break;
+                }
+                awaitNanoTime(intended);
+                String key = keys[keyChooser.getAsInt()];
+                boolean read = random.nextDouble() < reads;
+                boolean measured = intended >= measureFrom;
+                workers.execute(
+                        () -> {
+                            runRequest(cache, limiter, key, read, value, stats, measured);
+                            if (measured) {
+                                stats.latency.record(System.nanoTime() - intended);
+                            }
+                        });
+                if (measured) {
+                    ++issued;
+                }
+            }
+        } // waits for the stragglers
+        long finished = System.nanoTime();
+
+        stats.print(issued, seconds, (finished - measureFrom) / 1e9);
+    }
+
+    private static void runRequest(
+            SimpleTTLCache<String, byte[]> cache,
+            TokenBucketRateLimiter limiter,
+            String key,
+            boolean read,
+            byte[] value,
+            Stats stats,
+            boolean measured) {
+        if (!limiter.tryAcquire()) {
+            if (measured) {
+                stats.denied.increment();
+            }
+            return;
+        }
+        if (!read) {
+            cache.put(key, value);
+            if (measured) {
+                stats.writes.increment();
+            }
+            return;
+        }
+        boolean hit = cache.get(key).isPresent();
+        if (!hit) {
+            cache.put(key, value);
+        }
+        if (measured) {
+            (hit ? stats.hits : stats.misses).increment();
+        }
+    }
+
+    /** Sleeps until {@code deadline}, spinning for the last stretch that parking overshoots. */
+    private static void awaitNanoTime(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > 50_000) {
+                LockSupport.parkNanos(remaining - 50_000);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /** Key ranks with probability proportional to {@code 1/rank^exponent}, by CDF lookup. */
+    private static IntSupplier zipf(SplittableRandom random, int n, double exponent) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        double total = sum;
+        return () -> {
+            double u = random.nextDouble() * total;
+            int lo = 0;
+            int hi = n - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cdf[mid] < u) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        };
+    }
+
+    /** {@code hotOps} of the requests go uniformly to the first {@code hotKeys} of the keys. */
+    private static IntSupplier hotspot(
+            SplittableRandom random, int n, double hotKeys, double hotOps) {
+        int hot = Math.max(1, (int) (n * hotKeys));
+        return () ->
+                random.nextDouble() < hotOps || hot == n
+                        ? random.nextInt(hot)
+                        : hot + random.nextInt(n - hot);
+    }
+
+    private static final class Stats {
+
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder writes = new LongAdder();
+        final LongAdder denied = new LongAdder();
+
+        void print(long issued, int seconds, double elapsedSeconds) {
+            long completed = latency.count();
+            long lookups = hits.sum() + misses.sum();
+            System.out.printf(
+                    "issued=%d (%.0f/s) completed=%d (%.0f/s over %.2fs)%n",
+                    issued,
+                    issued / (double) seconds,
+                    completed,
+                    completed / elapsedSeconds,
+                    elapsedSeconds);
+            System.out.printf(
+                    "hits=%d misses=%d hitRate=%.4f writes=%d denied=%d (%.4f)%n",
+                    hits.sum(),
+                    misses.sum(),
+                    lookups == 0 ? 0 : (double) hits.sum() / lookups,
+                    writes.sum(),
+                    denied.sum(),
+                    completed == 0 ? 0 : (double) denied.sum() / completed);
+            System.out.printf("latency (us): mean=%.1f", latency.mean() / 1e3);
+            for (double p : PERCENTILES) {
+                System.out.printf(" p%s=%.1f", format(p), latency.percentile(p) / 1e3);
+            }
+            System.out.printf(" max=%.1f%n", latency.max() / 1e3);
+        }
+
+        private static String format(double percentile) {
+            return percentile == Math.rint(percentile)
+                    ? Long.toString((long) percentile)
+                    : Double.toString(percentile);
+        }
+    }
+}
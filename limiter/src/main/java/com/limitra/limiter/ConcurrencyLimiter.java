@@ -0,0 +1,208 @@
+package com.limitra.limiter;
+
+import com.limitra.time.TimeProvider;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bulkhead: bounds the total cost of operations in flight, where a rate limiter would bound how
+ * many start per second. A slow dependency then ties up at most {@code maxInFlight} worth of
+ * callers instead of all of them.
+ *
+ * <p>Contracts:
+ *
+ * <ul>
+ *   <li><b>Costs:</b> Each permit carries a cost, e.g. 1 for a point read and 10 for a scan. The
+ *       sum of the costs of unreleased permits never exceeds {@code maxInFlight}.
+ *   <li><b>Hot path:</b> {@link #tryAcquire(long)} is a CAS on a single {@link AtomicLong}; it
+ *       takes no lock. A single counter keeps the bound exact; striping it would need per-stripe
+ *       budgets that strand capacity on idle stripes.
+ *   <li><b>Queueing:</b> With {@code maxQueued > 0}, {@link #acquire(long, long)} waits in FIFO
+ *       order for up to its timeout. Waiting parks the thread, which costs a virtual thread next
+ *       to nothing. While anyone is queued, {@code tryAcquire} does not overtake them.
+ * </ul>
+ */
+public class ConcurrencyLimiter {
+
+    // longest single park, so that timeouts follow any TimeProvider, not just System.nanoTime
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final TimeProvider time;
+    private final long maxInFlight;
+    private final int maxQueued;
+    private final AtomicLong inFlight;
+    private final ConcurrentLinkedQueue<Thread> waiters;
+    private final AtomicInteger waiting;
+    private final LongAdder acquired;
+    private final LongAdder rejected;
+    private final LongAdder timedOut;
+    private final LongAdder queuedAcquires;
+    private final LongAdder queueWaitNanos;
+    private final AtomicLong maxQueueWaitNanos;
+
+    /** Creates a limiter without a queue: requests that do not fit are rejected at once. */
+    public ConcurrencyLimiter(TimeProvider time, long maxInFlight) {
+        this(time, maxInFlight, 0);
+    }
+
+    /**
+     * @param time clock for queue waits and timeouts
+     * @param maxInFlight largest total cost of unreleased permits
+     * @param maxQueued most requests that may wait at once; 0 to reject instead of queueing
+     */
+    public ConcurrencyLimiter(TimeProvider time, long maxInFlight, int maxQueued) {
+        this.time = Objects.requireNonNull(time, "time must not be null");
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be greater than 0");
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("maxQueued must not be negative");
+        }
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.inFlight = new AtomicLong();
+        this.waiters = new ConcurrentLinkedQueue<>();
+        this.waiting = new AtomicInteger();
+        this.acquired = new LongAdder();
+        this.rejected = new LongAdder();
+        this.timedOut = new LongAdder();
+        this.queuedAcquires = new LongAdder();
+        this.queueWaitNanos = new LongAdder();
+        this.maxQueueWaitNanos = new AtomicLong();
+    }
+
+    /** Takes a permit of cost 1 if there is room now. */
+    public Optional<Permit> tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * Takes a permit of the given cost if there is room now and nobody is queued.
+     *
+     * @throws IllegalArgumentException if {@code cost} is not in {@code [1, maxInFlight]}
+     */
+    public Optional<Permit> tryAcquire(long cost) {
+        checkCost(cost);
+        if (waiters.isEmpty() && tryTake(cost)) {
+            acquired.increment();
+            return Optional.of(new Permit(cost, this::release));
+        }
+        rejected.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Takes a permit of the given cost, queueing for up to {@code timeoutMillis} if there is no
+     * room now. Without queue space the request is rejected at once.
+     *
+     * @return the permit, or empty if rejected or timed out
+     * @throws IllegalArgumentException if {@code cost} is not in {@code [1, maxInFlight]} or the
+     *     timeout is negative
+     * @throws InterruptedException if interrupted while queued; no permit is taken
+     */
+    public Optional<Permit> acquire(long cost, long timeoutMillis) throws InterruptedException {
+        checkCost(cost);
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("timeoutMillis must not be negative");
+        }
+        if (waiters.isEmpty() && tryTake(cost)) {
+            acquired.increment();
+            return Optional.of(new Permit(cost, this::release));
+        }
+        if (waiting.incrementAndGet() > maxQueued) {
+            waiting.decrementAndGet();
+            rejected.increment();
+            return Optional.empty();
+        }
+        Thread waiter = Thread.currentThread();
+        waiters.add(waiter);
+        long start = time.nowNanos();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            while (true) {
+                if (waiters.peek() == waiter && tryTake(cost)) {
+                    recordQueueWait(time.nowNanos() - start);
+                    return Optional.of(new Permit(cost, this::release));
+                }
+                long remaining = deadline - time.nowNanos();
+                if (remaining <= 0) {
+                    timedOut.increment();
+                    return Optional.empty();
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                LockSupport.parkNanos(this, Math.min(remaining, MAX_PARK_NANOS));
+            }
+        } finally {
+            waiters.remove(waiter);
+            waiting.decrementAndGet();
+            // the next in line may fit in what is left
+            wakeHead();
+        }
+    }
+
+    /** Cost currently held by unreleased permits. */
+    public long inFlight() {
+        return inFlight.get();
+    }
+
+    public long maxInFlight() {
+        return maxInFlight;
+    }
+
+    public ConcurrencyMetrics metricsSnapshot() {
+        return new ConcurrencyMetrics(
+                inFlight.get(),
+                acquired.sum(),
+                rejected.sum(),
+                timedOut.sum(),
+                waiting.get(),
+                queuedAcquires.sum(),
+                queueWaitNanos.sum(),
+                maxQueueWaitNanos.get());
+    }
+
+    private void checkCost(long cost) {
+        if (cost <= 0 || cost > maxInFlight) {
+            throw new IllegalArgumentException("Requires 0 < cost <= maxInFlight");
+        }
+    }
+
+    private boolean tryTake(long cost) {
+        while (true) {
+            long current = inFlight.get();
+            if (current + cost > maxInFlight) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + cost)) {
+                return true;
+            }
+        }
+    }
+
+    private void release(long cost) {
+        inFlight.addAndGet(-cost);
+        wakeHead();
+    }
+
+    private void wakeHead() {
+        Thread head = waiters.peek();
+        if (head != null) {
+            LockSupport.unpark(head);
+        }
+    }
+
+    private void recordQueueWait(long nanos) {
+        acquired.increment();
+        queuedAcquires.increment();
+        queueWaitNanos.add(nanos);
+        maxQueueWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+}
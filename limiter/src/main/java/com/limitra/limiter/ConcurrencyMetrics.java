@@ -0,0 +1,30 @@
+package com.limitra.limiter;
+
+/**
+ * Counters of a {@link ConcurrencyLimiter}. {@code inFlight} and {@code waiting} are current
+ * values; the others count since creation.
+ *
+ * @param inFlight cost currently held by unreleased permits
+ * @param acquired permits granted, with or without queueing
+ * @param rejected requests turned away at once: no room and no queue space
+ * @param timedOut queued requests that gave up at their timeout
+ * @param waiting requests queued right now
+ * @param queuedAcquires permits granted after queueing
+ * @param queueWaitNanos total time the {@code queuedAcquires} spent queued
+ * @param maxQueueWaitNanos longest time one of them spent queued
+ */
+public record ConcurrencyMetrics(
+        long inFlight,
+        long acquired,
+        long rejected,
+        long timedOut,
+        long waiting,
+        long queuedAcquires,
+        long queueWaitNanos,
+        long maxQueueWaitNanos) {
+
+    /** Mean queue wait of the requests that queued and were granted, 0 if none were. */
+    public double meanQueueWaitNanos() {
+        return queuedAcquires == 0 ? 0 : (double) queueWaitNanos / queuedAcquires;
+    }
+}
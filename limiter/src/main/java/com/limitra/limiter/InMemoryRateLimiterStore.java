@@ -0,0 +1,76 @@
+package com.limitra.limiter;
+
+import com.limitra.time.TimeProvider;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reference {@link RateLimiterStore} that keeps the state in this JVM, for tests and single-process
+ * deployments. Each request is applied inside {@link ConcurrentHashMap#compute}, which plays the
+ * part of the store-side atomic script.
+ */
+public class InMemoryRateLimiterStore implements RateLimiterStore {
+
+    private final TimeProvider time;
+    private final ConcurrentHashMap<String, Long> arrivals;
+    private final LongAdder roundTrips;
+
+    public InMemoryRateLimiterStore(TimeProvider time) {
+        this.time = Objects.requireNonNull(time, "time must not be null");
+        this.arrivals = new ConcurrentHashMap<>();
+        this.roundTrips = new LongAdder();
+    }
+
+    @Override
+    public int[] tryAcquire(List<Request> requests) {
+        roundTrips.increment();
+        long now = time.nowNanos();
+        int[] granted = new int[requests.size()];
+        for (int i = 0; i < granted.length; i++) {
+            Request request = requests.get(i);
+            int index = i;
+            arrivals.compute(
+                    request.key(),
+                    (key, arrival) -> {
+                        long base = arrival == null ? now : Math.max(arrival, now);
+                        int grants = grants(request, base - now);
+                        granted[index] = grants;
+                        if (grants == 0) {
+                            return arrival;
+                        }
+                        double cost = request.permits() * request.limit().emissionIntervalNanos();
+                        return base + (long) Math.ceil(grants * cost);
+                    });
+        }
+        return granted;
+    }
+
+    /**
+     * GCRA: a grant is allowed while the arrival time it pushes to stays within {@code capacity}
+     * emission intervals of now. {@code backlogNanos} is how far the arrival time already is ahead.
+     */
+    static int grants(Request request, long backlogNanos) {
+        double interval = request.limit().emissionIntervalNanos();
+        double headroom = request.limit().capacity() * interval - backlogNanos;
+        double fits = Math.floor(headroom / (request.permits() * interval));
+        return (int) Math.max(0, Math.min(request.count(), fits));
+    }
+
+    /** Drops keys whose budget has fully refilled; they behave exactly like unknown keys. */
+    public void removeExpired() {
+        long now = time.nowNanos();
+        arrivals.values().removeIf(arrival -> arrival <= now);
+    }
+
+    /** Number of keys with state. */
+    public int size() {
+        return arrivals.size();
+    }
+
+    /** Number of {@link #tryAcquire(List)} calls served. */
+    public long roundTrips() {
+        return roundTrips.sum();
+    }
+}
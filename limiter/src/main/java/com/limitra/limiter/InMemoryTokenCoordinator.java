@@ -0,0 +1,45 @@
+package com.limitra.limiter;
+
+import com.limitra.time.TimeProvider;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link TokenCoordinator} backed by one global token bucket per key, for running several
+ * leasing limiters in one JVM and for tests.
+ */
+public class InMemoryTokenCoordinator implements TokenCoordinator {
+
+    private final KeyedRateLimiter<String> buckets;
+    private final LongAdder leaseCalls = new LongAdder();
+    private final LongAdder releaseCalls = new LongAdder();
+
+    public InMemoryTokenCoordinator(
+            TimeProvider time, long capacity, double refillRatePerSecond, int maxKeys) {
+        this.buckets = new KeyedRateLimiter<>(time, capacity, refillRatePerSecond, maxKeys);
+    }
+
+    @Override
+    public long lease(String key, long min, long max) {
+        leaseCalls.increment();
+        return buckets.limiterFor(key).tryAcquireUpTo(min, max);
+    }
+
+    @Override
+    public void release(String key, long permits) {
+        releaseCalls.increment();
+        buckets.limiterFor(key).release(permits);
+    }
+
+    /** Permits of {@code key}'s global budget that are not leased out. */
+    public long availablePermits(String key) {
+        return buckets.limiterFor(key).availablePermits();
+    }
+
+    public long leaseCalls() {
+        return leaseCalls.sum();
+    }
+
+    public long releaseCalls() {
+        return releaseCalls.sum();
+    }
+}
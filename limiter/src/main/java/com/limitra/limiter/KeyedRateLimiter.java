@@ -0,0 +1,201 @@
+package com.limitra.limiter;
+
+import com.limitra.hotkeys.HeavyHitters;
+import com.limitra.hotkeys.HotKey;
+import com.limitra.time.TimeProvider;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * One {@link TokenBucketRateLimiter} per key, all with the same capacity and refill rate.
+ *
+ * <p>Buckets are created on first use. Once more than {@code maxKeys} buckets exist, buckets that
+ * have refilled to capacity are dropped: a full bucket behaves exactly like a new one, so this
+ * loses no state. Keys that are still draining are kept, so the map may temporarily exceed {@code
+ * maxKeys} under heavy key churn. A sweep visits every bucket, so the next one waits until the map
+ * has doubled from what the last one kept: a stream of new keys costs each request amortized
+ * O(1) sweeping, and the map stays below twice {@code maxKeys} while most buckets refill between
+ * sweeps. A request racing with the removal of its key's bucket may be
+ * served by the dropped bucket, which can over-grant by at most that request's permits.
+ *
+ * @param <K> the type of keys
+ */
+public class KeyedRateLimiter<K> {
+
+    private final TimeProvider time;
+    private final long capacity;
+    private final double refillRatePerSecond;
+    private final int maxKeys;
+    private final ConcurrentHashMap<K, TokenBucketRateLimiter> limiters;
+    private final ReentrantLock sweepLock;
+    // size above which a new key triggers a sweep; written under sweepLock
+    private volatile int sweepAbove;
+    private volatile int sweeps;
+    private final LongAdder granted;
+    private final LongAdder denied;
+    // both null unless hot-key detection was asked for
+    private final HeavyHitters<K> accessedKeys;
+    private final HeavyHitters<K> deniedKeys;
+
+    public KeyedRateLimiter(
+            TimeProvider time, long capacity, double refillRatePerSecond, int maxKeys) {
+        this(time, capacity, refillRatePerSecond, maxKeys, null, null);
+    }
+
+    /**
+     * Creates a limiter that also feeds every {@code tryAcquire} key into {@code accessedKeys}
+     * and every denied one into {@code deniedKeys}, read back with {@link #hotKeys(int)} and
+     * {@link #hotDeniedKeys(int)}.
+     */
+    public KeyedRateLimiter(
+            TimeProvider time,
+            long capacity,
+            double refillRatePerSecond,
+            int maxKeys,
+            HeavyHitters<K> accessedKeys,
+            HeavyHitters<K> deniedKeys) {
+        Objects.requireNonNull(time);
+        if ((accessedKeys == null) != (deniedKeys == null)) {
+            throw new IllegalArgumentException("accessedKeys and deniedKeys go together");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (refillRatePerSecond < 0) {
+            throw new IllegalArgumentException("RefillRatePerSecond must not be negative");
+        }
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("maxKeys must be greater than 0");
+        }
+        this.time = time;
+        this.capacity = capacity;
+        this.refillRatePerSecond = refillRatePerSecond;
+        this.maxKeys = maxKeys;
+        this.limiters = new ConcurrentHashMap<>();
+        this.sweepLock = new ReentrantLock();
+        this.sweepAbove = maxKeys;
+        this.granted = new LongAdder();
+        this.denied = new LongAdder();
+        this.accessedKeys = accessedKeys;
+        this.deniedKeys = deniedKeys;
+    }
+
+    public boolean tryAcquire(K key) {
+        return tryAcquire(key, 1);
+    }
+
+    /**
+     * @throws NullPointerException for null key
+     * @throws IllegalArgumentException if {@code permits <= 0}
+     */
+    public boolean tryAcquire(K key, int permits) {
+        boolean allowed = limiterFor(key).tryAcquire(permits);
+        (allowed ? granted : denied).increment();
+        if (accessedKeys != null) {
+            accessedKeys.record(key);
+            if (!allowed) {
+                deniedKeys.record(key);
+            }
+        }
+        return allowed;
+    }
+
+    /** Returns the key's bucket, creating it if needed. */
+    public TokenBucketRateLimiter limiterFor(K key) {
+        Objects.requireNonNull(key, "key must not be null");
+        TokenBucketRateLimiter limiter = limiters.get(key);
+        if (limiter != null) {
+            return limiter;
+        }
+        limiter =
+                limiters.computeIfAbsent(
+                        key, k -> new TokenBucketRateLimiter(time, capacity, refillRatePerSecond));
+        if (limiters.size() > sweepAbove) {
+            sweepFullBuckets(limiter);
+        }
+        return limiter;
+    }
+
+    // spares the bucket just created, which is full but about to serve its first request
+    private void sweepFullBuckets(TokenBucketRateLimiter created) {
+        if (!sweepLock.tryLock()) {
+            return; // someone else is already sweeping
+        }
+        try {
+            if (limiters.size() <= sweepAbove) {
+                return; // swept while we were checking
+            }
+            limiters.values().removeIf(l -> l != created && l.availablePermits() >= capacity);
+            sweepAbove = (int) Math.min(Integer.MAX_VALUE, Math.max(maxKeys, 2L * limiters.size()));
+            sweeps++;
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    /** Number of sweeps for full buckets so far. */
+    int sweeps() {
+        return sweeps;
+    }
+
+    /** Calls to {@code tryAcquire} that were granted, over the limiter's lifetime. */
+    public long grantedRequests() {
+        return granted.sum();
+    }
+
+    /** Calls to {@code tryAcquire} that were denied, over the limiter's lifetime. */
+    public long deniedRequests() {
+        return denied.sum();
+    }
+
+    /**
+     * The {@code k} keys with the most {@code tryAcquire} calls over the sketch's window.
+     *
+     * @throws IllegalStateException if the limiter was created without hot-key detection
+     */
+    public List<HotKey<K>> hotKeys(int k) {
+        if (accessedKeys == null) {
+            throw new IllegalStateException("hot-key detection is not enabled");
+        }
+        return accessedKeys.topK(k);
+    }
+
+    /**
+     * The {@code k} keys denied most often over the sketch's window; divide by the window length
+     * for a denial rate.
+     *
+     * @throws IllegalStateException if the limiter was created without hot-key detection
+     */
+    public List<HotKey<K>> hotDeniedKeys(int k) {
+        if (deniedKeys == null) {
+            throw new IllegalStateException("hot-key detection is not enabled");
+        }
+        return deniedKeys.topK(k);
+    }
+
+    /**
+     * Visits every bucket currently held, without locking the map, e.g. to export how full they
+     * are. Buckets created or dropped during the walk may or may not be seen.
+     */
+    public void forEachLimiter(Consumer<? super TokenBucketRateLimiter> action) {
+        Objects.requireNonNull(action, "action must not be null");
+        limiters.values().forEach(action);
+    }
+
+    /** Number of buckets currently held. */
+    public int size() {
+        return limiters.size();
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public double refillRatePerSecond() {
+        return refillRatePerSecond;
+    }
+}
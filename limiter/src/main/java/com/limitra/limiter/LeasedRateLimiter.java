@@ -0,0 +1,227 @@
+package com.limitra.limiter;
+
+import com.limitra.time.TimeProvider;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A node-local limiter that spends permits leased from a shared {@link TokenCoordinator}, so that
+ * N nodes together enforce one global rate instead of N times that rate.
+ *
+ * <p>Contracts:
+ *
+ * <ul>
+ *   <li><b>Hot path:</b> While the local lease covers a request, {@code tryAcquire} is a single CAS
+ *       on a local counter; it does no I/O and takes no lock.
+ *   <li><b>Refills:</b> When the lease runs out, one thread (under a lock) leases the next batch
+ *       while the others wait for it. Outside a backoff, a request is denied only if the
+ *       coordinator cannot cover it.
+ *   <li><b>Batch size:</b> The next batch is sized to cover {@code targetLeaseMillis} of local
+ *       consumption, measured as a moving average over past leases and clamped to {@code [minBatch,
+ *       maxBatch]}. Each denial from the coordinator halves it, so that nodes competing for a
+ *       nearly exhausted budget do not hoard permits.
+ *   <li><b>Backoff:</b> After the coordinator denies a lease or grants less than asked, requests
+ *       that the local lease cannot cover are denied locally, without the lock or a coordinator
+ *       call, for a backoff period. It starts at an eighth of {@code targetLeaseMillis}, doubles
+ *       with each further denied or short lease up to {@code targetLeaseMillis}, and resets after
+ *       a full lease. An exhausted global budget therefore costs each node one coordinator call per
+ *       backoff period instead of one per request.
+ *   <li><b>Unused permits:</b> Permits held locally are unavailable to other nodes until spent or
+ *       returned with {@link #releaseUnused()} or {@link #close()}. Smaller batches and targets
+ *       bound how much one idle node can hold.
+ * </ul>
+ */
+public class LeasedRateLimiter implements RateLimiter, AutoCloseable {
+
+    private static final double RATE_SMOOTHING = 0.5;
+
+    private final TokenCoordinator coordinator;
+    private final String key;
+    private final TimeProvider time;
+    private final long minBatch;
+    private final long maxBatch;
+    private final long targetLeaseNanos;
+    private final AtomicLong local;
+    private final ReentrantLock leaseLock;
+    private final LongAdder coordinatorCalls;
+    private final LongAdder backoffDenials;
+
+    // guarded by leaseLock; batch is volatile only so that batchSize() can read it
+    private volatile long batch;
+    private double permitsPerNano;
+    private long lastLeaseNanos;
+    private long localAfterLease;
+    private long backoffNanos;
+    // written under leaseLock, read without it on the denial path
+    private volatile long backoffUntilNanos;
+
+    /**
+     * @param coordinator source of the global budget
+     * @param key the coordinator key whose budget this limiter spends
+     * @param time clock used to measure the local consumption rate
+     * @param minBatch smallest batch to lease; also the initial batch
+     * @param maxBatch largest batch to lease
+     * @param targetLeaseMillis how long a batch should last at the measured consumption rate
+     */
+    public LeasedRateLimiter(
+            TokenCoordinator coordinator,
+            String key,
+            TimeProvider time,
+            long minBatch,
+            long maxBatch,
+            long targetLeaseMillis) {
+        this.coordinator = Objects.requireNonNull(coordinator, "coordinator must not be null");
+        this.key = Objects.requireNonNull(key, "key must not be null");
+        this.time = Objects.requireNonNull(time, "time must not be null");
+        if (minBatch <= 0 || maxBatch < minBatch) {
+            throw new IllegalArgumentException("Requires 0 < minBatch <= maxBatch");
+        }
+        if (targetLeaseMillis <= 0) {
+            throw new IllegalArgumentException("targetLeaseMillis must be greater than 0");
+        }
+        this.minBatch = minBatch;
+        this.maxBatch = maxBatch;
+        this.targetLeaseNanos = targetLeaseMillis * 1_000_000L;
+        this.local = new AtomicLong();
+        this.leaseLock = new ReentrantLock();
+        this.coordinatorCalls = new LongAdder();
+        this.backoffDenials = new LongAdder();
+        this.batch = minBatch;
+        this.lastLeaseNanos = time.nowNanos();
+        this.backoffNanos = initialBackoffNanos();
+        this.backoffUntilNanos = lastLeaseNanos;
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    @Override
+    public boolean tryAcquire(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive");
+        }
+        if (tryTakeLocal(permits)) {
+            return true;
+        }
+        if (inBackoff(time.nowNanos())) {
+            backoffDenials.increment();
+            return false;
+        }
+        leaseLock.lock();
+        try {
+            if (tryTakeLocal(permits)) {
+                return true; // another thread leased while we waited
+            }
+            long now = time.nowNanos();
+            if (inBackoff(now)) {
+                backoffDenials.increment();
+                return false; // another thread was denied while we waited
+            }
+            long held = local.get();
+            adaptBatch(now, held);
+            long deficit = permits - held;
+            long wanted = Math.max(batch, deficit);
+            coordinatorCalls.increment();
+            long granted = coordinator.lease(key, deficit, wanted);
+            if (granted < wanted) {
+                backOff(now);
+            } else {
+                backoffNanos = initialBackoffNanos();
+            }
+            if (granted == 0) {
+                batch = Math.max(minBatch, batch / 2);
+                return false;
+            }
+            localAfterLease = local.addAndGet(granted);
+            lastLeaseNanos = now;
+            return tryTakeLocal(permits);
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+
+    private boolean tryTakeLocal(int permits) {
+        while (true) {
+            long current = local.get();
+            if (current < permits) {
+                return false;
+            }
+            if (local.compareAndSet(current, current - permits)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean inBackoff(long now) {
+        return now - backoffUntilNanos < 0;
+    }
+
+    private void backOff(long now) {
+        backoffUntilNanos = now + backoffNanos;
+        backoffNanos = Math.min(targetLeaseNanos, backoffNanos * 2);
+    }
+
+    private long initialBackoffNanos() {
+        return Math.max(1, targetLeaseNanos / 8);
+    }
+
+    /** Updates the consumption estimate from the permits spent since the previous lease. */
+    private void adaptBatch(long now, long held) {
+        long consumed = localAfterLease - held;
+        if (consumed <= 0) {
+            return;
+        }
+        double sample = (double) consumed / Math.max(1, now - lastLeaseNanos);
+        permitsPerNano =
+                permitsPerNano == 0
+                        ? sample
+                        : RATE_SMOOTHING * sample + (1 - RATE_SMOOTHING) * permitsPerNano;
+        double wanted = Math.ceil(permitsPerNano * targetLeaseNanos);
+        batch = (long) Math.max(minBatch, Math.min(maxBatch, wanted));
+    }
+
+    /** Returns all locally held permits to the coordinator. */
+    public void releaseUnused() {
+        leaseLock.lock();
+        try {
+            long unused = local.getAndSet(0);
+            localAfterLease = 0;
+            if (unused > 0) {
+                coordinatorCalls.increment();
+                coordinator.release(key, unused);
+            }
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+
+    /** Returns unused permits; the limiter stays usable and leases again on demand. */
+    @Override
+    public void close() {
+        releaseUnused();
+    }
+
+    /** Permits leased but not yet spent. */
+    public long localPermits() {
+        return local.get();
+    }
+
+    /** Size of the next lease request. */
+    public long batchSize() {
+        return batch;
+    }
+
+    /** Number of lease and release calls made to the coordinator. */
+    public long coordinatorCalls() {
+        return coordinatorCalls.sum();
+    }
+
+    /** Requests denied locally during a backoff, without asking the coordinator. */
+    public long backoffDenials() {
+        return backoffDenials.sum();
+    }
+}
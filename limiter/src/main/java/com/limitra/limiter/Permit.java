@@ -0,0 +1,37 @@
+package com.limitra.limiter;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+
+/**
+ * A share of a {@link ConcurrencyLimiter}'s in-flight budget, held for the duration of one
+ * operation. Closing it gives the share back, so it is meant for try-with-resources.
+ */
+public final class Permit implements AutoCloseable {
+
+    private final long cost;
+    private final LongConsumer release;
+    private final AtomicBoolean released;
+
+    Permit(long cost, LongConsumer release) {
+        this.cost = cost;
+        this.release = release;
+        this.released = new AtomicBoolean();
+    }
+
+    public long cost() {
+        return cost;
+    }
+
+    /** Gives the share back; calls after the first do nothing. */
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            release.accept(cost);
+        }
+    }
+
+    public boolean isReleased() {
+        return released.get();
+    }
+}
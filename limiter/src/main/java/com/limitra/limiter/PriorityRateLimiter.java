@@ -0,0 +1,330 @@
+package com.limitra.limiter;
+
+import com.limitra.time.TimeProvider;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A token bucket shared by several priority classes, where each class may only take permits above
+ * its own reserve, so that when the bucket runs low the permits left go to the more important
+ * classes: health checks and paid traffic keep getting through while batch crawlers are denied.
+ *
+ * <p>Contracts:
+ *
+ * <ul>
+ *   <li><b>Priorities:</b> Classes are numbered from 0. A class with reserve {@code r} is granted
+ *       permits only if at least {@code r} remain in the bucket afterwards; typically class 0 has
+ *       reserve 0 and later classes larger reserves. {@link #tryAcquire(int)} uses the last class.
+ *   <li><b>Hot path:</b> {@link #tryAcquire(int, int)} is GCRA on a single {@link AtomicLong}: one
+ *       CAS, no lock, the same cost for any number of classes. The emission interval is rounded to
+ *       whole nanoseconds.
+ *   <li><b>Blocking:</b> {@link #acquire(int, int)} waits until the class may take the permits.
+ *       Without weights, waiters race like {@code tryAcquire} callers. With weights, waiters are
+ *       served in start-time fair queueing order, so that under contention each class gets permits
+ *       in proportion to its weight and a flood of low-priority waiters cannot starve the others.
+ *       {@code tryAcquire} callers do not queue.
+ * </ul>
+ */
+public class PriorityRateLimiter implements RateLimiter {
+
+    // longest single wait, so that waiters follow any TimeProvider, not just System.nanoTime
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // a backlog plus a grant of at most the capacity each must still fit in a long
+    private static final long MAX_CAPACITY_NANOS = Long.MAX_VALUE / 2;
+
+    private final TimeProvider time;
+    private final long intervalNanos;
+    private final long capacityNanos;
+    // more permits than this cost more than Long.MAX_VALUE nanoseconds
+    private final long maxExactPermits;
+    // per class: how far the arrival time may run ahead of now after a grant
+    private final long[] allowedBacklogNanos;
+    private final LongAdder[] denials;
+    // GCRA theoretical arrival time: the bucket is full when it is at or before now
+    private final AtomicLong arrivalNanos;
+    // null unless created with weights
+    private final FairQueue fairQueue;
+
+    /**
+     * @param time clock for the refill
+     * @param capacity permits the bucket holds
+     * @param refillRatePerSecond permits added per second; must be greater than 0
+     * @param reserves for each priority class, the permits it must leave in the bucket
+     * @throws IllegalArgumentException if an argument is out of range, or refilling the whole
+     *     capacity would take longer than about 146 years
+     */
+    public PriorityRateLimiter(
+            TimeProvider time, long capacity, double refillRatePerSecond, long[] reserves) {
+        this(time, capacity, refillRatePerSecond, reserves, null);
+    }
+
+    /**
+     * @param weights for each priority class, its share of permits when blocked waiters queue, or
+     *     null to let waiters race
+     * @see #PriorityRateLimiter(TimeProvider, long, double, long[])
+     */
+    public PriorityRateLimiter(
+            TimeProvider time,
+            long capacity,
+            double refillRatePerSecond,
+            long[] reserves,
+            double[] weights) {
+        this.time = Objects.requireNonNull(time, "time must not be null");
+        Objects.requireNonNull(reserves, "reserves must not be null");
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (!(refillRatePerSecond > 0)) {
+            throw new IllegalArgumentException("RefillRatePerSecond must be greater than 0");
+        }
+        if (reserves.length == 0) {
+            throw new IllegalArgumentException("At least one priority class is required");
+        }
+        if (weights != null && weights.length != reserves.length) {
+            throw new IllegalArgumentException("Requires one weight per priority class");
+        }
+        // Math.round saturates, so a tiny rate gives Long.MAX_VALUE rather than overflowing
+        this.intervalNanos = Math.max(1, Math.round(1e9 / refillRatePerSecond));
+        if (capacity > MAX_CAPACITY_NANOS / intervalNanos) {
+            throw new IllegalArgumentException("Capacity takes too long to refill at this rate");
+        }
+        this.capacityNanos = capacity * intervalNanos;
+        this.maxExactPermits = Long.MAX_VALUE / intervalNanos;
+        this.allowedBacklogNanos = new long[reserves.length];
+        this.denials = new LongAdder[reserves.length];
+        for (int i = 0; i < reserves.length; i++) {
+            if (reserves[i] < 0 || reserves[i] >= capacity) {
+                throw new IllegalArgumentException("Requires 0 <= reserve < capacity");
+            }
+            allowedBacklogNanos[i] = (capacity - reserves[i]) * intervalNanos;
+            denials[i] = new LongAdder();
+        }
+        this.arrivalNanos = new AtomicLong(time.nowNanos());
+        this.fairQueue = weights == null ? null : new FairQueue(weights);
+    }
+
+    @Override
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /** Acquires as the lowest priority class. */
+    @Override
+    public boolean tryAcquire(int permits) {
+        return tryAcquire(permits, denials.length - 1);
+    }
+
+    /**
+     * Attempts to acquire permits for the given priority class, leaving its reserve in the bucket.
+     *
+     * @return {@code true} if the permits were acquired
+     * @throws IllegalArgumentException if {@code permits <= 0} or the class does not exist
+     */
+    public boolean tryAcquire(int permits, int priority) {
+        checkArguments(permits, priority);
+        if (tryGrant(permits, priority)) {
+            return true;
+        }
+        denials[priority].increment();
+        return false;
+    }
+
+    /**
+     * Acquires permits for the given priority class, waiting as long as it takes.
+     *
+     * @throws IllegalArgumentException if {@code permits <= 0}, the class does not exist, or its
+     *     reserve leaves too little of the capacity for the permits ever to be granted
+     * @throws InterruptedException if interrupted while waiting; no permits are taken
+     */
+    public void acquire(int permits, int priority) throws InterruptedException {
+        checkArguments(permits, priority);
+        if (costNanos(permits) > allowedBacklogNanos[priority]) {
+            throw new IllegalArgumentException("Permits exceed what the class may ever take");
+        }
+        if (fairQueue != null) {
+            fairQueue.acquire(permits, priority);
+            return;
+        }
+        while (!tryGrant(permits, priority)) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos(permits, priority));
+        }
+    }
+
+    /** Whole permits in the bucket, including those held back as reserves. */
+    public long availablePermits() {
+        long backlog = Math.max(0, arrivalNanos.get() - time.nowNanos());
+        return (capacityNanos - backlog) / intervalNanos;
+    }
+
+    /** Number of priority classes. */
+    public int priorities() {
+        return denials.length;
+    }
+
+    /** Number of {@code tryAcquire} calls denied for the given class. */
+    public long denials(int priority) {
+        checkArguments(1, priority);
+        return denials[priority].sum();
+    }
+
+    /** Number of threads blocked in {@link #acquire} waiting their fair-queueing turn. */
+    int queued() {
+        return fairQueue == null ? 0 : fairQueue.queued();
+    }
+
+    private void checkArguments(int permits, int priority) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive");
+        }
+        if (priority < 0 || priority >= denials.length) {
+            throw new IllegalArgumentException("Unknown priority class: " + priority);
+        }
+    }
+
+    /** The permits' emission time, saturating at {@code Long.MAX_VALUE}. */
+    private long costNanos(int permits) {
+        return permits > maxExactPermits ? Long.MAX_VALUE : permits * intervalNanos;
+    }
+
+    private boolean tryGrant(int permits, int priority) {
+        long cost = costNanos(permits);
+        if (cost > allowedBacklogNanos[priority]) {
+            return false; // also keeps the sums below from overflowing
+        }
+        while (true) {
+            long now = time.nowNanos();
+            long current = arrivalNanos.get();
+            long next = Math.max(current, now) + cost;
+            if (next - now > allowedBacklogNanos[priority]) {
+                return false;
+            }
+            if (arrivalNanos.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * How long until the class may take the permits, at most {@link #MAX_WAIT_NANOS}. Only for
+     * permits that {@link #acquire} has checked against the class's backlog.
+     */
+    private long waitNanos(int permits, int priority) {
+        long now = time.nowNanos();
+        long next = Math.max(arrivalNanos.get(), now) + costNanos(permits);
+        long wait = next - now - allowedBacklogNanos[priority];
+        return Math.max(1, Math.min(MAX_WAIT_NANOS, wait));
+    }
+
+    /**
+     * Start-time fair queueing over the blocked waiters: each waiter is tagged with a start and a
+     * finish in virtual time, the finish being the start plus its permits divided by its class
+     * weight. Of the queue heads whose class may take permits now, the one with the smallest
+     * finish tag goes next, and virtual time advances to its start tag.
+     */
+    private final class FairQueue {
+
+        private final double[] weights;
+        private final double[] lastFinish;
+        private final List<ArrayDeque<Waiter>> queues;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition served = lock.newCondition();
+        private double virtualTime;
+        private int queued;
+
+        FairQueue(double[] weights) {
+            for (double weight : weights) {
+                if (!(weight > 0)) {
+                    throw new IllegalArgumentException("Weights must be greater than 0");
+                }
+            }
+            this.weights = weights.clone();
+            this.lastFinish = new double[weights.length];
+            this.queues = new ArrayList<>(weights.length);
+            for (int i = 0; i < weights.length; i++) {
+                queues.add(new ArrayDeque<>());
+            }
+        }
+
+        void acquire(int permits, int priority) throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                double start = Math.max(virtualTime, lastFinish[priority]);
+                Waiter waiter = new Waiter(permits, priority, start, weights[priority]);
+                lastFinish[priority] = waiter.finish;
+                queues.get(priority).addLast(waiter);
+                ++queued;
+                try {
+                    while (true) {
+                        Waiter next = next();
+                        if (next == waiter && tryGrant(permits, priority)) {
+                            break;
+                        }
+                        // another waiter's turn ends with a signal; otherwise wait for the refill
+                        served.awaitNanos(
+                                next == null || next == waiter
+                                        ? waitNanos(permits, priority)
+                                        : MAX_WAIT_NANOS);
+                    }
+                    virtualTime = waiter.start;
+                } finally {
+                    queues.get(priority).remove(waiter);
+                    --queued;
+                    served.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** The eligible queue head with the smallest finish tag, or null if none is eligible. */
+        private Waiter next() {
+            Waiter best = null;
+            for (ArrayDeque<Waiter> queue : queues) {
+                Waiter head = queue.peekFirst();
+                if (head != null
+                        && (best == null || head.finish < best.finish)
+                        && isEligible(head)) {
+                    best = head;
+                }
+            }
+            return best;
+        }
+
+        private boolean isEligible(Waiter waiter) {
+            long now = time.nowNanos();
+            long next = Math.max(arrivalNanos.get(), now) + costNanos(waiter.permits);
+            return next - now <= allowedBacklogNanos[waiter.priority];
+        }
+
+        int queued() {
+            lock.lock();
+            try {
+                return queued;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Waiter {
+
+        final int permits;
+        final int priority;
+        final double start;
+        final double finish;
+
+        Waiter(int permits, int priority, double start, double weight) {
+            this.permits = permits;
+            this.priority = priority;
+            this.start = start;
+            this.finish = start + permits / weight;
+        }
+    }
+}
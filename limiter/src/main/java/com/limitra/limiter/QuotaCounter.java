@@ -0,0 +1,331 @@
+package com.limitra.limiter;
+
+import com.limitra.time.TimeProvider;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Fixed-window quotas ("N permits per day") for a large number of keys, such as tenant IDs.
+ *
+ * <p>Contracts:
+ *
+ * <ul>
+ *   <li><b>Windows:</b> All keys share windows of {@code windowMillis}, aligned to the {@link
+ *       TimeProvider} time at construction. A key's usage resets lazily on its first acquire in a
+ *       new window.
+ *   <li><b>Exactness:</b> Each key has a single counter, so a check-and-increment is exact and
+ *       never needs to sum partial counts.
+ *   <li><b>Hot path:</b> {@code tryAcquire} does not allocate once the key is known, and takes no
+ *       exclusive lock. The first acquire for a new key may grow its stripe's table.
+ *   <li><b>Keys:</b> Keys are {@code long}s; {@link Long#MIN_VALUE} is reserved.
+ * </ul>
+ *
+ * <p>Keys are spread across independent stripes, each an open-addressing table of primitive keys
+ * and packed states. A state holds the window number in its upper 24 bits and the usage in the
+ * lower 40 bits, so a reset and an increment are a single CAS. Stripe headers are padded to their
+ * own cache lines so that contention on one stripe does not slow down its neighbours.
+ */
+public final class QuotaCounter {
+
+    static final long EMPTY = Long.MIN_VALUE;
+    static final int COUNT_BITS = 40;
+    static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    static final long MAX_LIMIT = COUNT_MASK;
+    private static final long WINDOW_MASK = (1L << (Long.SIZE - COUNT_BITS)) - 1;
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final TimeProvider time;
+    private final long defaultLimit;
+    private final long windowNanos;
+    private final long originNanos;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    /**
+     * @param time clock that drives window rotation
+     * @param defaultLimit permits per key per window, used by the overloads without a limit
+     * @param windowMillis window length, e.g. one day
+     * @param expectedKeys number of keys to pre-size the tables for
+     */
+    public QuotaCounter(TimeProvider time, long defaultLimit, long windowMillis, int expectedKeys) {
+        Objects.requireNonNull(time, "time must not be null");
+        if (defaultLimit <= 0 || defaultLimit > MAX_LIMIT) {
+            throw new IllegalArgumentException("defaultLimit must be in (0, 2^40)");
+        }
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("windowMillis must be greater than 0");
+        }
+        if (expectedKeys < 0) {
+            throw new IllegalArgumentException("expectedKeys must not be negative");
+        }
+        this.time = time;
+        this.defaultLimit = defaultLimit;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.originNanos = time.nowNanos();
+
+        int stripeCount = ceilPowerOfTwo(Runtime.getRuntime().availableProcessors() * 4);
+        this.stripes = new Stripe[stripeCount];
+        this.stripeMask = stripeCount - 1;
+        int perStripe = Math.max(16, ceilPowerOfTwo(expectedKeys / stripeCount * 4 / 3 + 1));
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    public boolean tryAcquire(long key) {
+        return tryAcquire(key, 1, defaultLimit);
+    }
+
+    public boolean tryAcquire(long key, int permits) {
+        return tryAcquire(key, permits, defaultLimit);
+    }
+
+    /**
+     * Consumes {@code permits} from the key's quota for the current window if that keeps its usage
+     * within {@code limit}.
+     *
+     * @param limit per-key limit for this call, e.g. the tenant's plan
+     * @return {@code true} if the permits were granted
+     * @throws IllegalArgumentException if {@code permits <= 0}, the limit is out of range, or the
+     *     key is reserved
+     */
+    public boolean tryAcquire(long key, int permits, long limit) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive");
+        }
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be in (0, 2^40)");
+        }
+        checkKey(key);
+        if (permits > limit) {
+            return false;
+        }
+
+        long window = currentWindow();
+        long hash = mix(key);
+        Stripe stripe = stripeFor(hash);
+        while (true) {
+            long stamp = stripe.lock.readLock();
+            try {
+                int slot = stripe.findOrInsert(key, hash);
+                if (slot >= 0) {
+                    return add(stripe.states, slot, window, permits, limit);
+                }
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+            stripe.grow();
+        }
+    }
+
+    /** Permits consumed by the key in the current window. */
+    public long used(long key) {
+        checkKey(key);
+        long hash = mix(key);
+        Stripe stripe = stripeFor(hash);
+        long stamp = stripe.lock.readLock();
+        try {
+            int slot = stripe.find(key, hash);
+            if (slot < 0) {
+                return 0;
+            }
+            long state = (long) LONGS.getVolatile(stripe.states, slot);
+            return windowOf(state) == currentWindow() ? state & COUNT_MASK : 0;
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    /** Permits left for the key in the current window under the default limit. */
+    public long remaining(long key) {
+        return Math.max(0, defaultLimit - used(key));
+    }
+
+    /** Time until every key's usage resets. */
+    public long nanosUntilReset() {
+        return windowNanos - Math.floorMod(time.nowNanos() - originNanos, windowNanos);
+    }
+
+    /** Number of keys that have been seen. Iterates over stripes; not meant for the hot path. */
+    public int trackedKeys() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            total += stripe.size.get();
+        }
+        return total;
+    }
+
+    /**
+     * Adds to the slot's count, resetting it if it belongs to another window. The window the
+     * caller read may predate a boundary that another thread has already crossed, so the clock
+     * is read again before a reset: writing an older window over a newer one would erase the
+     * newer window's usage.
+     */
+    private boolean add(long[] states, int slot, long window, int permits, long limit) {
+        while (true) {
+            long state = (long) LONGS.getVolatile(states, slot);
+            if (windowOf(state) != window) {
+                long now = currentWindow();
+                if (now != window) {
+                    window = now;
+                    continue;
+                }
+            }
+            long used = window == windowOf(state) ? state & COUNT_MASK : 0;
+            if (used + permits > limit) {
+                return false;
+            }
+            long next = (window << COUNT_BITS) | (used + permits);
+            if (LONGS.compareAndSet(states, slot, state, next)) {
+                return true;
+            }
+        }
+    }
+
+    // stripes use the upper half of the hash, slots within a stripe the lower half
+    private Stripe stripeFor(long hash) {
+        return stripes[(int) (hash >>> 32) & stripeMask];
+    }
+
+    private long currentWindow() {
+        return ((time.nowNanos() - originNanos) / windowNanos) & WINDOW_MASK;
+    }
+
+    private static long windowOf(long state) {
+        return state >>> COUNT_BITS;
+    }
+
+    private static void checkKey(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Long.MIN_VALUE is reserved");
+        }
+    }
+
+    private static long mix(long key) {
+        // murmur3 fmix64: spreads sequential IDs over stripes and slots
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static int ceilPowerOfTwo(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    abstract static class StripePadBefore {
+        long p01, p02, p03, p04, p05, p06, p07;
+    }
+
+    abstract static class StripeFields extends StripePadBefore {
+        final StampedLock lock = new StampedLock();
+        final AtomicInteger size = new AtomicInteger();
+        // replaced only under the write lock
+        long[] keys;
+        long[] states;
+    }
+
+    /** One independently locked table. Read lock: lookups, inserts, CAS. Write lock: resize. */
+    static final class Stripe extends StripeFields {
+        long q01, q02, q03, q04, q05, q06, q07;
+
+        Stripe(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            states = new long[capacity];
+        }
+
+        int find(long key, long hash) {
+            long[] k = keys;
+            int mask = k.length - 1;
+            for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+                long current = (long) LONGS.getVolatile(k, i);
+                if (current == key) {
+                    return i;
+                }
+                if (current == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        /** Returns the key's slot, or -1 if inserting would exceed the load factor. */
+        int findOrInsert(long key, long hash) {
+            long[] k = keys;
+            int mask = k.length - 1;
+            for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+                long current = (long) LONGS.getVolatile(k, i);
+                if (current == key) {
+                    return i;
+                }
+                if (current == EMPTY) {
+                    if (!reserve(k.length)) {
+                        return -1;
+                    }
+                    if (LONGS.compareAndSet(k, i, EMPTY, key)) {
+                        return i;
+                    }
+                    // lost the slot; it now holds some key, re-check it
+                    size.decrementAndGet();
+                    i = (i - 1) & mask;
+                }
+            }
+        }
+
+        /**
+         * Counts a key in before claiming its slot, so that concurrent inserts cannot together
+         * push the table past its load factor; a full table would make {@link #find} loop.
+         */
+        private boolean reserve(int capacity) {
+            int limit = capacity - (capacity >>> 2);
+            while (true) {
+                int n = size.get();
+                if (n >= limit) {
+                    return false;
+                }
+                if (size.compareAndSet(n, n + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void grow() {
+            long stamp = lock.writeLock();
+            try {
+                long[] oldKeys = keys;
+                if (size.get() < oldKeys.length - (oldKeys.length >>> 2)) {
+                    return; // another thread already grew the table
+                }
+                long[] oldStates = states;
+                long[] newKeys = new long[oldKeys.length << 1];
+                Arrays.fill(newKeys, EMPTY);
+                long[] newStates = new long[newKeys.length];
+                int mask = newKeys.length - 1;
+                for (int j = 0; j < oldKeys.length; j++) {
+                    long key = oldKeys[j];
+                    if (key == EMPTY) {
+                        continue;
+                    }
+                    int i = (int) mix(key) & mask;
+                    while (newKeys[i] != EMPTY) {
+                        i = (i + 1) & mask;
+                    }
+                    newKeys[i] = key;
+                    newStates[i] = oldStates[j];
+                }
+                keys = newKeys;
+                states = newStates;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.limitra.limiter;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Shared storage for rate-limiter state, e.g. a Redis-style store that several processes talk to.
+ *
+ * <p>State is kept per key as a GCRA "theoretical arrival time": a single number that is updated
+ * atomically, in the store, in the same round trip as the check (the way a Lua script would do it
+ * in Redis). A {@link Request} asks for up to {@code count} grants of {@code permits} each, so
+ * callers can fold many concurrent acquires of one key into one request. One call carries any
+ * number of requests, for any number of keys, so a remote implementation can pipeline them.
+ *
+ * <p>The store's own clock decides refills, so nodes with skewed clocks still share one budget.
+ * Implementations must apply each request atomically; requests in one call need not be atomic
+ * with each other.
+ */
+public interface RateLimiterStore {
+
+    /**
+     * Applies the requests in order.
+     *
+     * @return for each request, the number of grants made, in {@code [0, count]}
+     */
+    int[] tryAcquire(List<Request> requests);
+
+    /**
+     * The limit for a key: bursts of up to {@code capacity} permits, refilled at {@code
+     * refillRatePerSecond}. Equivalent to a {@link TokenBucketRateLimiter} with the same settings.
+     */
+    record BucketLimit(long capacity, double refillRatePerSecond) {
+
+        public BucketLimit {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("Capacity must be positive");
+            }
+            if (!(refillRatePerSecond > 0)) {
+                throw new IllegalArgumentException("RefillRatePerSecond must be positive");
+            }
+        }
+
+        /** Nanoseconds it takes to refill one permit. */
+        public double emissionIntervalNanos() {
+            return 1_000_000_000d / refillRatePerSecond;
+        }
+    }
+
+    /** Up to {@code count} grants of {@code permits} each for {@code key}. */
+    record Request(String key, BucketLimit limit, int permits, int count) {
+
+        public Request {
+            Objects.requireNonNull(key, "key must not be null");
+            Objects.requireNonNull(limit, "limit must not be null");
+            if (permits <= 0) {
+                throw new IllegalArgumentException("Permits must be positive");
+            }
+            if (count <= 0) {
+                throw new IllegalArgumentException("count must be greater than 0");
+            }
+        }
+    }
+}
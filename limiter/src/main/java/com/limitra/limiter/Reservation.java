@@ -0,0 +1,61 @@
+package com.limitra.limiter;
+
+import com.limitra.time.TimeProvider;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+
+/**
+ * Permits taken from a {@link RateLimiter} ahead of time, usable from {@link #readyAtNanos()}.
+ * Returned by {@link ReservingRateLimiter#reserve(int)}.
+ */
+public final class Reservation {
+
+    private final TimeProvider time;
+    private final int permits;
+    private final long readyAtNanos;
+    private final LongConsumer refund;
+    private final AtomicBoolean cancelled;
+
+    Reservation(TimeProvider time, int permits, long readyAtNanos, LongConsumer refund) {
+        this.time = time;
+        this.permits = permits;
+        this.readyAtNanos = readyAtNanos;
+        this.refund = refund;
+        this.cancelled = new AtomicBoolean();
+    }
+
+    /** Nanoseconds until the permits may be used; 0 once they may. */
+    public long delayNanos() {
+        return Math.max(0, readyAtNanos - time.nowNanos());
+    }
+
+    /** The {@link TimeProvider} reading at which the permits may be used. */
+    public long readyAtNanos() {
+        return readyAtNanos;
+    }
+
+    public int permits() {
+        return permits;
+    }
+
+    /**
+     * Gives the permits back to the limiter, for whoever asks next, if they are not usable yet.
+     * Reservations made after this one keep their ready times. Once the ready time has passed the
+     * caller may have spent the permits, so a refund would grant them twice; cancelling then does
+     * nothing, which makes {@code cancel()} safe in a {@code finally} block.
+     *
+     * @return {@code true} if this call cancelled the reservation, {@code false} if it already was
+     *     or its permits are already usable
+     */
+    public boolean cancel() {
+        if (delayNanos() == 0 || !cancelled.compareAndSet(false, true)) {
+            return false;
+        }
+        refund.accept(permits);
+        return true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+}
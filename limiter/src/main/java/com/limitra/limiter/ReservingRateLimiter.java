@@ -0,0 +1,21 @@
+package com.limitra.limiter;
+
+/**
+ * A {@link RateLimiter} that can also hand out permits ahead of time. Not every limiter can: one
+ * with priority reserves or leased budgets has no single debt to borrow against, so reservations
+ * are a capability of their own rather than a method every limiter would have to refuse.
+ */
+public interface ReservingRateLimiter extends RateLimiter {
+
+    /**
+     * Takes the given number of permits now, whether or not they are available, and says when
+     * they may be used. Permits not yet available are borrowed against future refill: the limiter
+     * goes into debt, and {@code tryAcquire} fails until the debt is paid off. A job scheduler can
+     * thus space work at exactly the allowed rate instead of polling {@code tryAcquire}.
+     *
+     * @param permits number of permits to reserve; must be greater than 0
+     * @return the reservation, with the delay before the permits may be used
+     * @throws IllegalArgumentException if {@code permits <= 0}
+     */
+    Reservation reserve(int permits);
+}
@@ -0,0 +1,170 @@
+package com.limitra.limiter;
+
+import com.limitra.limiter.RateLimiterStore.BucketLimit;
+import com.limitra.limiter.RateLimiterStore.Request;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-key limits whose state lives in a shared {@link RateLimiterStore}.
+ *
+ * <p>Concurrent calls for the same key and permit count are combined: while one store call for a
+ * key is in flight, later callers join a batch, and the first of them sends the whole batch as one
+ * request when the previous call returns. Under load this makes store traffic proportional to the
+ * number of hot keys rather than the number of callers, and it needs no timer: an idle key's first
+ * caller goes straight to the store. Grants within a batch go to callers in arrival order.
+ *
+ * <p>Store failures are not swallowed: every caller in the failed batch gets the exception.
+ */
+public class StoreBackedRateLimiter {
+
+    private final RateLimiterStore store;
+    private final BucketLimit limit;
+    private final ConcurrentHashMap<GroupKey, Group> groups;
+    private final LongAdder calls;
+    private final LongAdder storeCalls;
+
+    public StoreBackedRateLimiter(
+            RateLimiterStore store, long capacity, double refillRatePerSecond) {
+        this.store = Objects.requireNonNull(store, "store must not be null");
+        this.limit = new BucketLimit(capacity, refillRatePerSecond);
+        this.groups = new ConcurrentHashMap<>();
+        this.calls = new LongAdder();
+        this.storeCalls = new LongAdder();
+    }
+
+    public boolean tryAcquire(String key) {
+        return tryAcquire(key, 1);
+    }
+
+    /**
+     * @throws NullPointerException for null key
+     * @throws IllegalArgumentException if {@code permits <= 0}
+     */
+    public boolean tryAcquire(String key, int permits) {
+        Objects.requireNonNull(key, "key must not be null");
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive");
+        }
+        calls.increment();
+        GroupKey groupKey = new GroupKey(key, permits);
+        while (true) {
+            Group group = groups.computeIfAbsent(groupKey, k -> new Group());
+            Batch batch = group.open.get();
+            if (batch == null) {
+                batch = new Batch();
+                if (!group.open.compareAndSet(null, batch)) {
+                    continue;
+                }
+            }
+            int ticket = batch.join();
+            if (ticket < 0) {
+                continue; // closed by its leader just now
+            }
+            if (ticket == 0) {
+                lead(groupKey, group, batch);
+            }
+            try {
+                return ticket < batch.granted.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException r ? r : e;
+            }
+        }
+    }
+
+    /**
+     * Acquires {@code permits} for each key in a single store round trip, without combining.
+     *
+     * @return element {@code i} is true if key {@code i} was granted
+     */
+    public boolean[] tryAcquireAll(List<String> keys, int permits) {
+        List<Request> requests = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            requests.add(new Request(key, limit, permits, 1));
+        }
+        calls.add(keys.size());
+        storeCalls.increment();
+        int[] grants = store.tryAcquire(requests);
+        boolean[] granted = new boolean[grants.length];
+        for (int i = 0; i < grants.length; i++) {
+            granted[i] = grants[i] > 0;
+        }
+        return granted;
+    }
+
+    /** Waits for the key's previous store call, then sends everyone who joined meanwhile. */
+    private void lead(GroupKey groupKey, Group group, Batch batch) {
+        group.inFlight.lock();
+        try {
+            group.open.compareAndSet(batch, null);
+            int count = batch.close();
+            storeCalls.increment();
+            Request request = new Request(groupKey.key(), limit, groupKey.permits(), count);
+            batch.granted.complete(store.tryAcquire(List.of(request))[0]);
+        } catch (RuntimeException e) {
+            batch.granted.completeExceptionally(e);
+        } finally {
+            group.inFlight.unlock();
+        }
+        if (group.open.get() == null) {
+            // a caller racing with this still works: its group is simply no longer shared
+            groups.remove(groupKey, group);
+        }
+    }
+
+    /** Number of acquire calls made on this limiter. */
+    public long calls() {
+        return calls.sum();
+    }
+
+    /** Number of store round trips made; lower than {@link #calls()} when calls were combined. */
+    public long storeCalls() {
+        return storeCalls.sum();
+    }
+
+    public long capacity() {
+        return limit.capacity();
+    }
+
+    public double refillRatePerSecond() {
+        return limit.refillRatePerSecond();
+    }
+
+    private record GroupKey(String key, int permits) {}
+
+    private static final class Group {
+        final ReentrantLock inFlight = new ReentrantLock();
+        final AtomicReference<Batch> open = new AtomicReference<>();
+    }
+
+    private static final class Batch {
+        // number of callers joined so far; -1 once the leader has taken the batch
+        final AtomicInteger joined = new AtomicInteger();
+        final CompletableFuture<Integer> granted = new CompletableFuture<>();
+
+        /** Returns this caller's position in the batch, or -1 if the batch is closed. */
+        int join() {
+            while (true) {
+                int current = joined.get();
+                if (current < 0) {
+                    return -1;
+                }
+                if (joined.compareAndSet(current, current + 1)) {
+                    return current;
+                }
+            }
+        }
+
+        int close() {
+            return joined.getAndSet(-1);
+        }
+    }
+}
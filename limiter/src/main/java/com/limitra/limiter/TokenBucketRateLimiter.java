@@ -3,15 +3,32 @@ package com.limitra.limiter;
 import com.limitra.time.TimeProvider;
 import java.util.Objects;
 
-public class TokenBucketRateLimiter implements RateLimiter {
+public class TokenBucketRateLimiter implements ReservingRateLimiter {
 
     private final TimeProvider timeProvider;
     private final long capacity;
     private final double refillRatePerSecond;
+    // null unless created with a warm-up
+    private final WarmUp warmUp;
+    // negative while reservations have borrowed against future refill
     private double availableTokens;
     private long lastRefillNanos;
+    // start of the current warm-up, and the last time permits were granted or reserved for
+    private long warmSinceNanos;
+    private long lastGrantNanos;
 
     public TokenBucketRateLimiter(TimeProvider time, long capacity, double refillRatePerSecond) {
+        this(time, capacity, refillRatePerSecond, null);
+    }
+
+    /**
+     * Creates a limiter that starts cold and ramps up to {@code refillRatePerSecond} as {@code
+     * warmUp} describes, or a plain one that starts full if {@code warmUp} is null.
+     *
+     * @throws IllegalArgumentException if the warm-up's cold rate exceeds the refill rate
+     */
+    public TokenBucketRateLimiter(
+            TimeProvider time, long capacity, double refillRatePerSecond, WarmUp warmUp) {
         Objects.requireNonNull(time);
         if (capacity <= 0) {
             throw new IllegalArgumentException("Capacity must be positive");
@@ -19,11 +36,17 @@ public class TokenBucketRateLimiter implements RateLimiter {
         if (refillRatePerSecond < 0) {
             throw new IllegalArgumentException("RefillRatePerSecond must not be negative");
         }
+        if (warmUp != null && warmUp.coldRatePerSecond() > refillRatePerSecond) {
+            throw new IllegalArgumentException("Cold rate must not exceed RefillRatePerSecond");
+        }
         this.timeProvider = time;
         this.capacity = capacity;
         this.refillRatePerSecond = refillRatePerSecond;
-        this.availableTokens = capacity;
+        this.warmUp = warmUp;
+        this.availableTokens = warmUp == null ? capacity : warmUp.coldBurst(capacity);
         this.lastRefillNanos = time.nowNanos();
+        this.warmSinceNanos = lastRefillNanos;
+        this.lastGrantNanos = lastRefillNanos;
     }
 
     @Override
@@ -45,21 +68,125 @@ public class TokenBucketRateLimiter implements RateLimiter {
             return false;
         }
 
+        refill();
+
+        if (availableTokens >= permits) {
+            availableTokens -= permits;
+            if (availableTokens < 0d) availableTokens = 0d;
+            lastGrantNanos = lastRefillNanos;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Acquires as many whole permits as are available, at most {@code max}, or none if fewer than
+     * {@code min} are available.
+     *
+     * @return the number of permits acquired: 0 or a value in {@code [min, max]}
+     * @throws IllegalArgumentException if {@code min <= 0} or {@code max < min}
+     */
+    public synchronized long tryAcquireUpTo(long min, long max) {
+        if (min <= 0 || max < min) {
+            throw new IllegalArgumentException("Requires 0 < min <= max");
+        }
+        refill();
+        long granted = Math.min(max, (long) availableTokens);
+        if (granted < min) {
+            return 0;
+        }
+        availableTokens -= granted;
+        lastGrantNanos = lastRefillNanos;
+        return granted;
+    }
+
+    /**
+     * Takes {@code permits} now, going into debt for those not yet available; the reservation's
+     * delay is the time the refill needs to pay the debt back. A reservation may exceed the
+     * capacity, in which case the bucket stays in debt until enough has refilled.
+     *
+     * @throws IllegalStateException if the refill rate is 0 and there are too few permits, as the
+     *     reservation could then never become ready
+     */
+    @Override
+    public synchronized Reservation reserve(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Permits must be positive");
+        }
+        refill();
+        if (refillRatePerSecond == 0 && availableTokens < permits) {
+            throw new IllegalStateException("Not enough permits, and the refill rate is 0");
+        }
+        availableTokens -= permits;
+        long delayNanos = availableTokens >= 0 ? 0 : (long) Math.ceil(repayNanos(-availableTokens));
+        long readyAtNanos = lastRefillNanos + delayNanos;
+        // waiting on a reservation is not idleness: the warm-up must not restart while repaying
+        lastGrantNanos = Math.max(lastGrantNanos, readyAtNanos);
+        return new Reservation(timeProvider, permits, readyAtNanos, this::release);
+    }
+
+    /** Nanoseconds from now until refill has produced {@code debt} permits. */
+    private double repayNanos(double debt) {
+        if (warmUp == null) {
+            return debt / refillRatePerSecond * 1e9;
+        }
+        double warmNanos = lastRefillNanos - warmSinceNanos;
+        double target = warmUp.refilled(warmNanos, refillRatePerSecond) + debt;
+        return warmUp.warmNanosFor(target, refillRatePerSecond) - warmNanos;
+    }
+
+    /** Returns unused permits to the bucket; the bucket never exceeds its capacity. */
+    public synchronized void release(long permits) {
+        if (permits < 0) {
+            throw new IllegalArgumentException("Permits must not be negative");
+        }
+        refill();
+        availableTokens = Math.min(capacity, availableTokens + permits);
+    }
+
+    /** Whole permits that could be acquired right now; 0 while reservations are in debt. */
+    public synchronized long availablePermits() {
+        refill();
+        return Math.max(0, (long) availableTokens);
+    }
+
+    private void refill() {
         long now = timeProvider.nowNanos();
         long elapsedNanos = now - lastRefillNanos;
-        if (elapsedNanos > 0) {
+        if (elapsedNanos > 0 && warmUp != null) {
+            warmUpRefill(now);
+        } else if (elapsedNanos > 0) {
             double elapsedSeconds = (double) elapsedNanos / 1_000_000_000;
             availableTokens =
                     Math.min(capacity, availableTokens + elapsedSeconds * refillRatePerSecond);
         }
         lastRefillNanos = now;
+    }
 
-        if (availableTokens >= permits) {
-            availableTokens -= permits;
-            if (availableTokens < 0d) availableTokens = 0d;
-            return true;
+    /**
+     * Refills by the integral of the warm-up ramp since the last refill, capped at the burst the
+     * ramp allows by now, then goes cold if nothing was granted for the warm-up's idle time.
+     */
+    private void warmUpRefill(long now) {
+        double from = lastRefillNanos - warmSinceNanos;
+        double to = now - warmSinceNanos;
+        double refilled =
+                warmUp.refilled(to, refillRatePerSecond)
+                        - warmUp.refilled(from, refillRatePerSecond);
+        availableTokens =
+                Math.min(
+                        warmUp.burst(to, capacity, refillRatePerSecond),
+                        availableTokens + refilled);
+        if (now - lastGrantNanos >= warmUp.coldAfterIdleNanos()) {
+            // once per idle spell: denied calls during the new ramp must not restart it
+            warmSinceNanos = now;
+            lastGrantNanos = now;
+            availableTokens = Math.min(availableTokens, warmUp.coldBurst(capacity));
         }
+    }
 
-        return false;
+    public long capacity() {
+        return capacity;
     }
 }
@@ -0,0 +1,24 @@
+package com.limitra.limiter;
+
+/**
+ * The shared source of permits behind {@link LeasedRateLimiter}s on many nodes.
+ *
+ * <p>A coordinator owns the global budget for each key; nodes lease batches of permits from it and
+ * spend them locally. Implementations must be safe for concurrent use. {@link
+ * InMemoryTokenCoordinator} is the in-process reference implementation; a networked store (for
+ * example a script-based atomic decrement in Redis) can implement the same two calls.
+ */
+public interface TokenCoordinator {
+
+    /**
+     * Leases up to {@code max} permits of {@code key}'s global budget.
+     *
+     * @param min the fewest permits worth granting; if fewer are available, none are taken
+     * @return 0, or the number of permits granted, in {@code [min, max]}
+     * @throws IllegalArgumentException if {@code min <= 0} or {@code max < min}
+     */
+    long lease(String key, long min, long max);
+
+    /** Returns permits that were leased but not used. */
+    void release(String key, long permits);
+}
@@ -0,0 +1,138 @@
+package com.limitra.limiter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Slow start for a {@link TokenBucketRateLimiter}: after creation, and again after a long idle
+ * spell, the refill rate ramps from a cold rate up to the configured rate over a warm-up period,
+ * so a freshly deployed or long-idle backend sees load grow gradually instead of a full burst.
+ *
+ * <p>The burst allowance warms with the rate: the bucket holds at most one second of cold-rate
+ * permits when cold, and its full capacity once warm. Refills integrate the ramp in closed form
+ * on each call, so there is no background thread.
+ */
+public final class WarmUp {
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final boolean exponential;
+    private final double coldRatePerSecond;
+    private final long periodNanos;
+    private final long coldAfterIdleNanos;
+
+    private WarmUp(
+            boolean exponential, double coldRatePerSecond, long periodMillis, long idleMillis) {
+        if (!(coldRatePerSecond > 0)) {
+            throw new IllegalArgumentException("coldRatePerSecond must be greater than 0");
+        }
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("periodMillis must be greater than 0");
+        }
+        if (idleMillis <= 0) {
+            throw new IllegalArgumentException("coldAfterIdleMillis must be greater than 0");
+        }
+        this.exponential = exponential;
+        this.coldRatePerSecond = coldRatePerSecond;
+        this.periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+        this.coldAfterIdleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+    }
+
+    /**
+     * The rate grows by the same number of permits per second every second.
+     *
+     * @param coldRatePerSecond the rate when cold
+     * @param periodMillis time from cold to the configured rate
+     * @param coldAfterIdleMillis time without a granted permit after which the limiter is cold
+     */
+    public static WarmUp linear(
+            double coldRatePerSecond, long periodMillis, long coldAfterIdleMillis) {
+        return new WarmUp(false, coldRatePerSecond, periodMillis, coldAfterIdleMillis);
+    }
+
+    /**
+     * The rate grows by the same factor every second, like TCP slow start: gentle at first, and
+     * most of the increase near the end of the period.
+     *
+     * @see #linear(double, long, long)
+     */
+    public static WarmUp exponential(
+            double coldRatePerSecond, long periodMillis, long coldAfterIdleMillis) {
+        return new WarmUp(true, coldRatePerSecond, periodMillis, coldAfterIdleMillis);
+    }
+
+    double coldRatePerSecond() {
+        return coldRatePerSecond;
+    }
+
+    long coldAfterIdleNanos() {
+        return coldAfterIdleNanos;
+    }
+
+    /** Permits the bucket holds when cold: one second at the cold rate, at least one. */
+    double coldBurst(long capacity) {
+        return Math.min(capacity, Math.max(1, coldRatePerSecond));
+    }
+
+    /** Permits per second {@code warmNanos} into the warm-up. */
+    double rate(double warmNanos, double targetRate) {
+        if (warmNanos >= periodNanos) {
+            return targetRate;
+        }
+        double progress = Math.max(0, warmNanos) / periodNanos;
+        return exponential
+                ? coldRatePerSecond * Math.pow(targetRate / coldRatePerSecond, progress)
+                : coldRatePerSecond + (targetRate - coldRatePerSecond) * progress;
+    }
+
+    /** The most permits the bucket holds {@code warmNanos} into the warm-up. */
+    double burst(double warmNanos, long capacity, double targetRate) {
+        return Math.max(coldBurst(capacity), capacity * rate(warmNanos, targetRate) / targetRate);
+    }
+
+    /** Permits refilled between the start of the warm-up and {@code warmNanos} into it. */
+    double refilled(double warmNanos, double targetRate) {
+        double x = Math.max(0, Math.min(warmNanos, periodNanos)) / NANOS_PER_SECOND;
+        double ramp;
+        double growth = growth(targetRate);
+        if (!exponential) {
+            ramp = coldRatePerSecond * x + growth * x * x / 2;
+        } else if (growth == 0) {
+            ramp = coldRatePerSecond * x;
+        } else {
+            ramp = coldRatePerSecond / growth * Math.expm1(growth * x);
+        }
+        double beyond = Math.max(0, warmNanos - periodNanos) / NANOS_PER_SECOND;
+        return ramp + targetRate * beyond;
+    }
+
+    /** The inverse of {@link #refilled}: how far into the warm-up {@code permits} are reached. */
+    double warmNanosFor(double permits, double targetRate) {
+        double atPeriod = refilled(periodNanos, targetRate);
+        if (permits >= atPeriod) {
+            return periodNanos + (permits - atPeriod) / targetRate * NANOS_PER_SECOND;
+        }
+        double growth = growth(targetRate);
+        double seconds;
+        if (growth == 0) {
+            seconds = permits / coldRatePerSecond;
+        } else if (!exponential) {
+            // solve growth/2 x^2 + cold x - permits = 0 for the positive root
+            double cold = coldRatePerSecond;
+            seconds = 2 * permits / (cold + Math.sqrt(cold * cold + 2 * growth * permits));
+        } else {
+            seconds = Math.log1p(permits * growth / coldRatePerSecond) / growth;
+        }
+        return seconds * NANOS_PER_SECOND;
+    }
+
+    /**
+     * Permits per second gained per second when linear, or the rate's logarithmic growth per
+     * second when exponential.
+     */
+    private double growth(double targetRate) {
+        double periodSeconds = periodNanos / NANOS_PER_SECOND;
+        return exponential
+                ? Math.log(targetRate / coldRatePerSecond) / periodSeconds
+                : (targetRate - coldRatePerSecond) / periodSeconds;
+    }
+}
@@ -0,0 +1,161 @@
+package com.limitra.limiter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.time.FakeTimeProvider;
+import com.limitra.time.SystemTimeProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimiterTest {
+
+    private final FakeTimeProvider time = new FakeTimeProvider();
+
+    @Test
+    void weightedPermits_boundTheCostInFlight_untilClosed() {
+
+        // Given
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(time, 10);
+
+        // When
+        Permit scan = limiter.tryAcquire(8).orElseThrow();
+        Optional<Permit> secondScan = limiter.tryAcquire(8);
+        try (Permit read = limiter.tryAcquire(2).orElseThrow()) {
+            assertEquals(10, limiter.inFlight());
+            assertTrue(limiter.tryAcquire().isEmpty());
+        }
+        scan.close();
+        scan.close(); // only the first close releases
+
+        // Then
+        assertTrue(secondScan.isEmpty());
+        assertTrue(scan.isReleased());
+        assertEquals(0, limiter.inFlight());
+        ConcurrencyMetrics metrics = limiter.metricsSnapshot();
+        assertEquals(2, metrics.acquired());
+        assertEquals(2, metrics.rejected());
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire(11));
+    }
+
+    @Test
+    void queuedRequests_areServedInOrder_andTheirWaitIsMeasured() throws Exception {
+
+        // Given: room for one, and two waiters queued behind it
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(time, 1, 2);
+        Permit holder = limiter.tryAcquire().orElseThrow();
+        List<String> order = new ArrayList<>();
+        Thread first = Thread.startVirtualThread(() -> takeAndLog(limiter, "first", order));
+        awaitTrue(() -> limiter.metricsSnapshot().waiting() == 1);
+        Thread second = Thread.startVirtualThread(() -> takeAndLog(limiter, "second", order));
+        awaitTrue(() -> limiter.metricsSnapshot().waiting() == 2);
+
+        // When
+        Optional<Permit> overflow = limiter.acquire(1, 1_000); // the queue is full
+        assertTrue(limiter.tryAcquire().isEmpty()); // no overtaking the queue
+        time.advanceMillis(250);
+        holder.close();
+        first.join(TimeUnit.SECONDS.toMillis(5));
+        second.join(TimeUnit.SECONDS.toMillis(5));
+
+        // Then
+        assertTrue(overflow.isEmpty());
+        assertEquals(List.of("first", "second"), order);
+        ConcurrencyMetrics metrics = limiter.metricsSnapshot();
+        assertEquals(0, metrics.inFlight());
+        assertEquals(2, metrics.queuedAcquires());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(250), metrics.maxQueueWaitNanos());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(250), metrics.meanQueueWaitNanos(), 0);
+        assertEquals(2, metrics.rejected());
+    }
+
+    @Test
+    void queuedRequest_givesUpAtItsTimeout() throws Exception {
+
+        // Given
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(time, 1, 1);
+        limiter.tryAcquire().orElseThrow();
+        AtomicInteger outcome = new AtomicInteger(-1);
+        Thread waiter =
+                Thread.startVirtualThread(
+                        () -> {
+                            try {
+                                outcome.set(limiter.acquire(1, 100).isPresent() ? 1 : 0);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+        awaitTrue(() -> limiter.metricsSnapshot().waiting() == 1);
+
+        // When
+        time.advanceMillis(100);
+        waiter.join(TimeUnit.SECONDS.toMillis(5));
+
+        // Then
+        assertEquals(0, outcome.get());
+        assertEquals(1, limiter.metricsSnapshot().timedOut());
+        assertEquals(0, limiter.metricsSnapshot().waiting());
+    }
+
+    @Test
+    void concurrentCallers_neverExceedTheBound() throws Exception {
+
+        // Given
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new SystemTimeProvider(), 4, 1_000);
+        AtomicLong inside = new AtomicLong();
+        AtomicLong peak = new AtomicLong();
+
+        // When
+        List<Future<Boolean>> calls = new ArrayList<>();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 200; i++) {
+                long cost = 1 + i % 3;
+                calls.add(
+                        pool.submit(
+                                () -> {
+                                    try (Permit permit =
+                                            limiter.acquire(cost, 10_000).orElseThrow()) {
+                                        peak.accumulateAndGet(inside.addAndGet(cost), Math::max);
+                                        Thread.yield();
+                                        inside.addAndGet(-cost);
+                                    }
+                                    return true;
+                                }));
+            }
+        }
+
+        // Then
+        for (Future<Boolean> call : calls) {
+            assertTrue(call.get());
+        }
+        assertTrue(peak.get() <= 4, "peak cost in flight: " + peak.get());
+        assertEquals(200, limiter.metricsSnapshot().acquired());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    private static void takeAndLog(ConcurrencyLimiter limiter, String name, List<String> order) {
+        try (Permit permit = limiter.acquire(1, 10_000).orElseThrow()) {
+            synchronized (order) {
+                order.add(name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.limitra.limiter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.hotkeys.HeavyHitters;
+import com.limitra.hotkeys.HotKey;
+import com.limitra.time.FakeTimeProvider;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class KeyedRateLimiterTest {
+
+    private final FakeTimeProvider time = new FakeTimeProvider();
+
+    @Test
+    void hotKeys_reportTheBusiestAndMostDeniedKeys() {
+
+        // Given
+        KeyedRateLimiter<String> limiter =
+                new KeyedRateLimiter<>(
+                        time,
+                        5,
+                        1.0,
+                        100,
+                        new HeavyHitters<>(time, 8, 10_000, 2, 1),
+                        new HeavyHitters<>(time, 8, 10_000, 2, 1));
+
+        // When: "viral" asks 50 times and is denied 45 times
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire("viral");
+        }
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("quiet-" + i);
+        }
+
+        // Then
+        assertEquals("viral", limiter.hotKeys(1).get(0).key());
+        assertEquals(List.of(new HotKey<>("viral", 45, 0)), limiter.hotDeniedKeys(10));
+        assertEquals(45, limiter.deniedRequests());
+        assertEquals(8, limiter.grantedRequests());
+    }
+
+    @Test
+    void newKeys_sweepOnlyOnceTheMapHasDoubled_andFullBucketsAreDropped() {
+
+        // Given: one permit per minute, so every bucket that was used keeps draining
+        KeyedRateLimiter<Integer> limiter = new KeyedRateLimiter<>(time, 1, 1.0 / 60, 10);
+
+        // When: a scan over 1000 new keys
+        for (int key = 0; key < 1_000; key++) {
+            assertTrue(limiter.tryAcquire(key));
+        }
+
+        // Then: sweeps at 11, 23, 47, ... keys instead of on every key past 10
+        assertEquals(7, limiter.sweeps());
+        assertEquals(1_000, limiter.size());
+
+        // When: every bucket has refilled, and the map doubles again
+        time.advanceSeconds(60);
+        for (int key = 1_000; key < 1_535; key++) {
+            limiter.tryAcquire(key);
+        }
+
+        // Then: the refilled buckets are gone, the new ones are still draining
+        assertEquals(8, limiter.sweeps());
+        assertEquals(535, limiter.size());
+    }
+
+    @Test
+    void constructor_rejectsInvalidBuckets() {
+
+        // When Then
+        assertThrows(IllegalArgumentException.class, () -> new KeyedRateLimiter<>(time, 0, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new KeyedRateLimiter<>(time, 1, -1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new KeyedRateLimiter<>(time, 1, 1, 0));
+    }
+
+    @Test
+    void hotKeys_requireSketches() {
+
+        // Given
+        KeyedRateLimiter<String> limiter = new KeyedRateLimiter<>(time, 5, 1.0, 100);
+
+        // When Then
+        assertThrows(IllegalStateException.class, () -> limiter.hotKeys(1));
+        assertThrows(
+                IllegalArgumentException.class,
+                () ->
+                        new KeyedRateLimiter<String>(
+                                time, 5, 1.0, 100, new HeavyHitters<>(time, 8, 1_000, 1, 1), null));
+    }
+}
@@ -0,0 +1,193 @@
+package com.limitra.limiter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.time.FakeTimeProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class LeasedRateLimiterTest {
+
+    @Test
+    void nodesSharingACoordinator_neverGrantMoreThanTheGlobalBudget() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        InMemoryTokenCoordinator coordinator = new InMemoryTokenCoordinator(time, 100, 0, 10);
+        LeasedRateLimiter a = new LeasedRateLimiter(coordinator, "api", time, 8, 64, 100);
+        LeasedRateLimiter b = new LeasedRateLimiter(coordinator, "api", time, 8, 64, 100);
+
+        // When
+        int granted = 0;
+        boolean aDenied = false;
+        boolean bDenied = false;
+        while (!aDenied || !bDenied) {
+            time.advanceMillis(1);
+            if (a.tryAcquire()) {
+                granted++;
+            } else {
+                aDenied = true;
+            }
+            if (b.tryAcquire()) {
+                granted++;
+            } else {
+                bDenied = true;
+            }
+        }
+
+        // Then
+        assertEquals(100, granted);
+        assertEquals(0, coordinator.availablePermits("api"));
+    }
+
+    @Test
+    void hotPath_isServedLocally_andBatchGrowsWithConsumption() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        InMemoryTokenCoordinator coordinator =
+                new InMemoryTokenCoordinator(time, 100_000, 10_000, 10);
+        LeasedRateLimiter limiter = new LeasedRateLimiter(coordinator, "api", time, 1, 1_000, 100);
+
+        // When: 1000 permits/s for two seconds
+        for (int i = 0; i < 2_000; i++) {
+            time.advanceMillis(1);
+            assertTrue(limiter.tryAcquire());
+        }
+
+        // Then: a 100 ms lease at 1000/s is ~100 permits
+        long batch = limiter.batchSize();
+        assertTrue(batch >= 50 && batch <= 200, "batch " + batch);
+        assertTrue(coordinator.leaseCalls() < 100, "lease calls " + coordinator.leaseCalls());
+    }
+
+    @Test
+    void denialFromCoordinator_shrinksTheBatch() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        InMemoryTokenCoordinator coordinator = new InMemoryTokenCoordinator(time, 64, 0, 10);
+        LeasedRateLimiter limiter = new LeasedRateLimiter(coordinator, "api", time, 1, 64, 1_000);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(limiter.tryAcquire(8));
+        }
+        long grown = limiter.batchSize();
+        time.advanceMillis(200); // past the backoff started by the last, short lease
+
+        // When
+        assertFalse(limiter.tryAcquire());
+
+        // Then
+        assertEquals(Math.max(1, grown / 2), limiter.batchSize());
+    }
+
+    @Test
+    void afterADenial_requestsAreDeniedLocally_untilTheBackoffExpires() {
+
+        // Given: the global budget is spent; 100 ms target, so the first backoff is 12.5 ms
+        FakeTimeProvider time = new FakeTimeProvider();
+        InMemoryTokenCoordinator coordinator = new InMemoryTokenCoordinator(time, 4, 1_000, 10);
+        LeasedRateLimiter limiter = new LeasedRateLimiter(coordinator, "api", time, 4, 4, 100);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        long calls = limiter.coordinatorCalls();
+
+        // When
+        for (int i = 0; i < 1_000; i++) {
+            assertFalse(limiter.tryAcquire());
+        }
+        time.advanceMillis(12);
+        assertFalse(limiter.tryAcquire());
+        long callsDuringBackoff = limiter.coordinatorCalls() - calls;
+        time.advanceMillis(1);
+
+        // Then
+        assertEquals(0, callsDuringBackoff);
+        assertEquals(1_001, limiter.backoffDenials());
+        assertTrue(limiter.tryAcquire()); // refilled meanwhile
+        assertEquals(calls + 1, limiter.coordinatorCalls());
+    }
+
+    @Test
+    void multiPermitRequest_largerThanTheBatch_isLeasedInOneCall() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        InMemoryTokenCoordinator coordinator = new InMemoryTokenCoordinator(time, 100, 0, 10);
+        LeasedRateLimiter limiter = new LeasedRateLimiter(coordinator, "api", time, 4, 4, 100);
+
+        // When Then
+        assertTrue(limiter.tryAcquire(30));
+        assertEquals(1, coordinator.leaseCalls());
+        assertFalse(limiter.tryAcquire(71));
+        assertEquals(70, coordinator.availablePermits("api"));
+    }
+
+    @Test
+    void releaseUnused_returnsLocalPermitsToTheCoordinator() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        InMemoryTokenCoordinator coordinator = new InMemoryTokenCoordinator(time, 100, 0, 10);
+        LeasedRateLimiter limiter = new LeasedRateLimiter(coordinator, "api", time, 10, 10, 100);
+        assertTrue(limiter.tryAcquire(3));
+        assertEquals(7, limiter.localPermits());
+        assertEquals(90, coordinator.availablePermits("api"));
+
+        // When
+        limiter.close();
+
+        // Then
+        assertEquals(0, limiter.localPermits());
+        assertEquals(97, coordinator.availablePermits("api"));
+        assertEquals(1, coordinator.releaseCalls());
+    }
+
+    @Test
+    void concurrentAcquires_neverOverGrant() throws Exception {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        InMemoryTokenCoordinator coordinator = new InMemoryTokenCoordinator(time, 10_000, 0, 10);
+        List<LeasedRateLimiter> nodes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            nodes.add(new LeasedRateLimiter(coordinator, "api", time, 1, 256, 100));
+        }
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        // When
+        for (int t = 0; t < 8; t++) {
+            LeasedRateLimiter node = nodes.get(t % nodes.size());
+            threads.add(
+                    Thread.ofPlatform()
+                            .start(
+                                    () -> {
+                                        try {
+                                            start.await();
+                                        } catch (InterruptedException e) {
+                                            return;
+                                        }
+                                        for (int i = 0; i < 5_000; i++) {
+                                            if (node.tryAcquire()) {
+                                                granted.incrementAndGet();
+                                            }
+                                        }
+                                    }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Then
+        long held = nodes.stream().mapToLong(LeasedRateLimiter::localPermits).sum();
+        assertEquals(10_000, granted.get() + held + coordinator.availablePermits("api"));
+    }
+}
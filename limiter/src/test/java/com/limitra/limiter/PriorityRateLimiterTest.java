@@ -0,0 +1,177 @@
+package com.limitra.limiter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.time.FakeTimeProvider;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+
+class PriorityRateLimiterTest {
+
+    private final FakeTimeProvider time = new FakeTimeProvider();
+
+    @Test
+    void lowerPriorities_leaveTheirReserve_forTheHigherOnes() {
+
+        // Given: critical may drain the bucket, paid must leave 3, batch must leave 6
+        PriorityRateLimiter limiter = new PriorityRateLimiter(time, 10, 1.0, new long[] {0, 3, 6});
+
+        // When
+        int batch = 0;
+        while (limiter.tryAcquire(1, 2)) {
+            batch++;
+        }
+        int paid = 0;
+        while (limiter.tryAcquire(1, 1)) {
+            paid++;
+        }
+        int critical = 0;
+        while (limiter.tryAcquire(1, 0)) {
+            critical++;
+        }
+
+        // Then
+        assertEquals(4, batch);
+        assertEquals(3, paid);
+        assertEquals(3, critical);
+        assertEquals(1, limiter.denials(2));
+        assertEquals(0, limiter.availablePermits());
+        time.advanceSeconds(7);
+        assertTrue(limiter.tryAcquire(1, 1)); // 7 refilled, 6 left for paid and critical
+        assertFalse(limiter.tryAcquire()); // the plain call is the lowest class
+        assertEquals(2, limiter.denials(2));
+    }
+
+    @Test
+    void weightedFairQueueing_servesBlockedWaiters_inProportionToTheirWeights() throws Exception {
+
+        // Given: one permit per 100 ms, and four waiters in each of two classes weighted 3 to 1
+        PriorityRateLimiter limiter =
+                new PriorityRateLimiter(time, 1, 10.0, new long[] {0, 0}, new double[] {3, 1});
+        assertTrue(limiter.tryAcquire(1, 0));
+        List<Integer> served = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> waiters = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int priority = i % 2;
+            waiters.add(
+                    Thread.startVirtualThread(
+                            () -> {
+                                try {
+                                    limiter.acquire(1, priority);
+                                    served.add(priority);
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                            }));
+        }
+        awaitTrue(() -> limiter.queued() == 8);
+
+        // When: refill one permit at a time
+        for (int i = 1; i <= 8; i++) {
+            time.advanceMillis(100);
+            int expected = i;
+            awaitTrue(() -> served.size() == expected);
+        }
+
+        // Then: finish tags 1/3, 2/3, 1 and 4/3 against 1, 2, 3 and 4, ties to class 0
+        assertEquals(List.of(0, 0, 0, 1, 0, 1, 1, 1), served);
+        for (Thread waiter : waiters) {
+            waiter.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    @Test
+    void acquire_waitsForTheRefill_andLeavesTheQueueWhenInterrupted() throws Exception {
+
+        // Given
+        PriorityRateLimiter limiter =
+                new PriorityRateLimiter(time, 2, 1.0, new long[] {0, 1}, new double[] {1, 1});
+        assertTrue(limiter.tryAcquire(2, 0));
+        AtomicBoolean threw = new AtomicBoolean();
+        Thread interrupted =
+                Thread.startVirtualThread(
+                        () -> {
+                            try {
+                                limiter.acquire(1, 1);
+                            } catch (InterruptedException e) {
+                                threw.set(true);
+                            }
+                        });
+        awaitTrue(() -> limiter.queued() == 1);
+
+        // When
+        interrupted.interrupt();
+        interrupted.join(TimeUnit.SECONDS.toMillis(5));
+        Thread waiter =
+                Thread.startVirtualThread(
+                        () -> {
+                            try {
+                                limiter.acquire(1, 0);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+        awaitTrue(() -> limiter.queued() == 1);
+        time.advanceSeconds(1);
+        waiter.join(TimeUnit.SECONDS.toMillis(5));
+
+        // Then
+        assertTrue(threw.get());
+        assertFalse(waiter.isAlive());
+        assertEquals(0, limiter.queued());
+        assertEquals(0, limiter.availablePermits());
+    }
+
+    @Test
+    void rejectsUnknownClasses_andRequestsTheReserveMakesImpossible() {
+
+        // Given
+        PriorityRateLimiter limiter = new PriorityRateLimiter(time, 4, 1.0, new long[] {0, 2});
+
+        // When Then
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire(1, 2));
+        assertThrows(IllegalArgumentException.class, () -> limiter.acquire(3, 1));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new PriorityRateLimiter(time, 4, 1.0, new long[] {4}));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new PriorityRateLimiter(time, 4, 1.0, new long[] {0}, new double[] {1, 1}));
+    }
+
+    @Test
+    void veryLowRates_areAccepted_andHugeRequestsAreDenied_notOverflowed() {
+
+        // Given: one permit per ~11.6 days; 10_000 of them cost more nanoseconds than a long holds
+        PriorityRateLimiter limiter = new PriorityRateLimiter(time, 1_000, 1e-6, new long[] {0});
+
+        // When Then
+        assertFalse(limiter.tryAcquire(10_000, 0)); // would wrap to a negative cost
+        assertFalse(limiter.tryAcquire(Integer.MAX_VALUE, 0));
+        assertFalse(limiter.tryAcquire(1_001, 0));
+        assertEquals(1_000, limiter.availablePermits());
+        assertThrows(IllegalArgumentException.class, () -> limiter.acquire(Integer.MAX_VALUE, 0));
+        assertTrue(limiter.tryAcquire(1_000, 0));
+        assertEquals(0, limiter.availablePermits());
+        new PriorityRateLimiter(time, 1, 1e-9, new long[] {0});
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new PriorityRateLimiter(time, 1, 1e-12, new long[] {0}));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new PriorityRateLimiter(time, Long.MAX_VALUE, 1.0, new long[] {0}));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(1);
+        }
+    }
+}
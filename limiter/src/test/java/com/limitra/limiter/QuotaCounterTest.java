@@ -0,0 +1,192 @@
+package com.limitra.limiter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.time.FakeTimeProvider;
+import com.limitra.time.TimeProvider;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class QuotaCounterTest {
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    @Test
+    void quota_allowsUpToLimit_perKey() {
+
+        // Given
+        QuotaCounter quota = new QuotaCounter(new FakeTimeProvider(), 3, DAY_MILLIS, 16);
+
+        // When Then
+        for (int i = 0; i < 3; i++) {
+            assertTrue(quota.tryAcquire(42L));
+        }
+        assertFalse(quota.tryAcquire(42L));
+        assertTrue(quota.tryAcquire(7L));
+
+        assertEquals(3, quota.used(42L));
+        assertEquals(0, quota.remaining(42L));
+        assertEquals(2, quota.remaining(7L));
+        assertEquals(0, quota.used(1234L));
+    }
+
+    @Test
+    void quota_resetsAtWindowBoundary_alignedToConstruction() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider(TimeUnit.HOURS.toNanos(5));
+        QuotaCounter quota = new QuotaCounter(time, 2, DAY_MILLIS, 16);
+        assertTrue(quota.tryAcquire(1L, 2));
+
+        // When
+        time.advanceMillis(DAY_MILLIS - 1);
+
+        // Then
+        assertFalse(quota.tryAcquire(1L));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), quota.nanosUntilReset());
+
+        time.advanceMillis(1);
+        assertEquals(0, quota.used(1L));
+        assertTrue(quota.tryAcquire(1L, 2));
+        assertFalse(quota.tryAcquire(1L));
+    }
+
+    @Test
+    void acquireThatReadTheClockBeforeABoundary_doesNotEraseTheNewWindow() {
+
+        // Given: the next clock read is followed by another caller using up the next window
+        FakeTimeProvider clock = new FakeTimeProvider();
+        AtomicReference<Runnable> afterNextRead = new AtomicReference<>();
+        TimeProvider time =
+                () -> {
+                    long now = clock.nowNanos();
+                    Runnable hook = afterNextRead.getAndSet(null);
+                    if (hook != null) {
+                        hook.run();
+                    }
+                    return now;
+                };
+        QuotaCounter quota = new QuotaCounter(time, 2, DAY_MILLIS, 16);
+        assertTrue(quota.tryAcquire(1L));
+        afterNextRead.set(
+                () -> {
+                    clock.advanceMillis(DAY_MILLIS);
+                    assertTrue(quota.tryAcquire(1L, 2));
+                });
+
+        // When: this call still holds the old window
+        boolean granted = quota.tryAcquire(1L);
+
+        // Then
+        assertFalse(granted);
+        assertEquals(2, quota.used(1L));
+    }
+
+    @Test
+    void concurrentInserts_growTheTables_withoutLosingKeys() throws InterruptedException {
+
+        // Given
+        int perThread = 20_000;
+        QuotaCounter quota = new QuotaCounter(new FakeTimeProvider(), 1, DAY_MILLIS, 0);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long base = (long) t * perThread;
+            threads[t] =
+                    new Thread(
+                            () -> {
+                                for (long key = base; key < base + perThread; key++) {
+                                    quota.tryAcquire(key);
+                                }
+                            });
+        }
+
+        // When
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        // Then
+        assertEquals(threads.length * perThread, quota.trackedKeys());
+        for (long key = 0; key < threads.length * perThread; key++) {
+            assertEquals(1, quota.used(key));
+        }
+    }
+
+    @Test
+    void quota_perCallLimit_overridesDefault() {
+
+        // Given
+        QuotaCounter quota = new QuotaCounter(new FakeTimeProvider(), 1, DAY_MILLIS, 16);
+
+        // When Then
+        assertTrue(quota.tryAcquire(5L, 4, 10));
+        assertTrue(quota.tryAcquire(5L, 6, 10));
+        assertFalse(quota.tryAcquire(5L, 1, 10));
+        assertFalse(quota.tryAcquire(9L, 11, 10));
+    }
+
+    @Test
+    void quota_growsBeyondExpectedKeys_withoutLosingCounts() {
+
+        // Given
+        QuotaCounter quota = new QuotaCounter(new FakeTimeProvider(), 5, DAY_MILLIS, 0);
+
+        // When
+        for (long key = 0; key < 50_000; key++) {
+            assertTrue(quota.tryAcquire(key, 2));
+        }
+
+        // Then
+        assertEquals(50_000, quota.trackedKeys());
+        for (long key = 0; key < 50_000; key += 997) {
+            assertEquals(2, quota.used(key));
+        }
+    }
+
+    @Test
+    void invalidArgs_throw() {
+
+        FakeTimeProvider time = new FakeTimeProvider();
+        QuotaCounter quota = new QuotaCounter(time, 5, DAY_MILLIS, 16);
+
+        assertThrows(IllegalArgumentException.class, () -> new QuotaCounter(time, 0, 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new QuotaCounter(time, 1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> quota.tryAcquire(1L, 0));
+        assertThrows(IllegalArgumentException.class, () -> quota.tryAcquire(Long.MIN_VALUE));
+    }
+
+    @Test
+    void concurrent_tryAcquire_neverOverGrants() throws InterruptedException {
+
+        // Given
+        long limit = 1_000;
+        int keys = 64;
+        QuotaCounter quota = new QuotaCounter(new FakeTimeProvider(), limit, DAY_MILLIS, 0);
+        AtomicInteger granted = new AtomicInteger();
+
+        Runnable task =
+                () -> {
+                    for (int i = 0; i < 50_000; i++) {
+                        if (quota.tryAcquire(i % keys)) {
+                            granted.incrementAndGet();
+                        }
+                    }
+                };
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(task);
+        }
+
+        // When
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        // Then
+        assertEquals(limit * keys, granted.get());
+        for (long key = 0; key < keys; key++) {
+            assertEquals(limit, quota.used(key));
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.limitra.limiter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.limitra.limiter.RateLimiterStore.BucketLimit;
+import com.limitra.limiter.RateLimiterStore.Request;
+import com.limitra.time.FakeTimeProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class StoreBackedRateLimiterTest {
+
+    @Test
+    void behavesLikeATokenBucket() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        StoreBackedRateLimiter limiter =
+                new StoreBackedRateLimiter(new InMemoryRateLimiterStore(time), 2, 1.0);
+
+        // When Then
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a"));
+        assertFalse(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("b", 2));
+        assertFalse(limiter.tryAcquire("c", 3));
+
+        time.advanceMillis(999);
+        assertFalse(limiter.tryAcquire("a"));
+        time.advanceMillis(1);
+        assertTrue(limiter.tryAcquire("a"));
+    }
+
+    @Test
+    void limitersSharingAStore_shareOneBudget() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        InMemoryRateLimiterStore store = new InMemoryRateLimiterStore(time);
+        StoreBackedRateLimiter nodeA = new StoreBackedRateLimiter(store, 3, 1.0);
+        StoreBackedRateLimiter nodeB = new StoreBackedRateLimiter(store, 3, 1.0);
+
+        // When Then
+        assertTrue(nodeA.tryAcquire("tenant", 2));
+        assertTrue(nodeB.tryAcquire("tenant"));
+        assertFalse(nodeA.tryAcquire("tenant"));
+        assertFalse(nodeB.tryAcquire("tenant"));
+    }
+
+    @Test
+    void store_grantsAsManyOfACombinedRequestAsFit() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        InMemoryRateLimiterStore store = new InMemoryRateLimiterStore(time);
+        BucketLimit limit = new BucketLimit(10, 2.0);
+
+        // When
+        int[] granted =
+                store.tryAcquire(
+                        List.of(
+                                new Request("a", limit, 3, 5),
+                                new Request("b", limit, 1, 4),
+                                new Request("a", limit, 1, 5)));
+
+        // Then
+        assertArrayEquals(new int[] {3, 4, 1}, granted);
+        assertEquals(1, store.roundTrips());
+
+        time.advanceSeconds(5);
+        store.removeExpired();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void tryAcquireAll_usesOneRoundTripForManyKeys() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        InMemoryRateLimiterStore store = new InMemoryRateLimiterStore(time);
+        StoreBackedRateLimiter limiter = new StoreBackedRateLimiter(store, 1, 1.0);
+        assertTrue(limiter.tryAcquire("used"));
+
+        // When
+        boolean[] granted = limiter.tryAcquireAll(List.of("x", "used", "y"), 1);
+
+        // Then
+        assertTrue(granted[0]);
+        assertFalse(granted[1]);
+        assertTrue(granted[2]);
+        assertEquals(2, store.roundTrips());
+    }
+
+    @Test
+    void concurrentCallsForOneKey_areCombinedIntoFewStoreCalls() throws Exception {
+
+        // Given: a store whose first call blocks until released
+        FakeTimeProvider time = new FakeTimeProvider();
+        InMemoryRateLimiterStore delegate = new InMemoryRateLimiterStore(time);
+        CountDownLatch firstCallEntered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RateLimiterStore store =
+                requests -> {
+                    if (firstCallEntered.getCount() > 0) {
+                        firstCallEntered.countDown();
+                        await(release);
+                    }
+                    return delegate.tryAcquire(requests);
+                };
+        StoreBackedRateLimiter limiter = new StoreBackedRateLimiter(store, 10, 1.0);
+        AtomicInteger granted = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        Runnable caller =
+                () -> {
+                    if (limiter.tryAcquire("hot")) {
+                        granted.incrementAndGet();
+                    }
+                };
+
+        // When
+        threads.add(Thread.ofPlatform().start(caller));
+        firstCallEntered.await();
+        for (int i = 0; i < 50; i++) {
+            threads.add(Thread.ofPlatform().start(caller));
+        }
+        while (limiter.calls() < 51) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(50);
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Then
+        assertEquals(10, granted.get());
+        assertTrue(limiter.storeCalls() <= 3, "store calls " + limiter.storeCalls());
+    }
+
+    @Test
+    void storeFailure_reachesTheCaller() {
+
+        // Given
+        StoreBackedRateLimiter limiter =
+                new StoreBackedRateLimiter(
+                        requests -> {
+                            throw new IllegalStateException("store down");
+                        },
+                        1,
+                        1.0);
+
+        // When Then
+        IllegalStateException e =
+                assertThrows(IllegalStateException.class, () -> limiter.tryAcquire("k"));
+        assertEquals("store down", e.getMessage());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -342,4 +342,156 @@ class TokenBucketRateLimiterTest {
         }
         assertFalse(rateLimiter.tryAcquire());
     }
+
+    @Test
+    void reserve_borrowsAgainstRefill_withExactDelay() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(time, 5L, 2.0);
+
+        // When
+        Reservation now = rateLimiter.reserve(5);
+        Reservation later = rateLimiter.reserve(3);
+        Reservation latest = rateLimiter.reserve(1);
+
+        // Then: 3 permits of debt take 1.5 s at 2 per second, one more 0.5 s
+        assertEquals(0, now.delayNanos());
+        assertEquals(1_500_000_000L, later.delayNanos());
+        assertEquals(2_000_000_000L, latest.delayNanos());
+        assertFalse(rateLimiter.tryAcquire());
+        assertEquals(0, rateLimiter.availablePermits());
+        time.advanceMillis(2_000);
+        assertEquals(0, latest.delayNanos());
+        assertFalse(rateLimiter.tryAcquire()); // debt paid off, nothing left over
+        time.advanceMillis(500);
+        assertTrue(rateLimiter.tryAcquire());
+    }
+
+    @Test
+    void cancel_refundsTheReservedPermits_once() {
+
+        // Given
+        FakeTimeProvider time = new FakeTimeProvider();
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(time, 4L, 1.0);
+        rateLimiter.reserve(4);
+        Reservation batch = rateLimiter.reserve(2);
+
+        // When
+        assertTrue(batch.cancel());
+        assertFalse(batch.cancel());
+
+        // Then: the debt is gone, but nothing beyond it was refunded
+        assertTrue(batch.isCancelled());
+        assertEquals(0, rateLimiter.availablePermits());
+        time.advanceSeconds(1);
+        assertTrue(rateLimiter.tryAcquire());
+    }
+
+    @Test
+    void cancel_afterTheReadyTime_refundsNothing() {
+
+        // Given: a reservation used once it became ready
+        FakeTimeProvider time = new FakeTimeProvider();
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(time, 4L, 1.0);
+        rateLimiter.reserve(4);
+        Reservation used = rateLimiter.reserve(2);
+        time.advanceNanos(used.delayNanos());
+
+        // When: e.g. from a finally block
+        boolean cancelled = used.cancel();
+
+        // Then
+        assertFalse(cancelled);
+        assertFalse(used.isCancelled());
+        assertEquals(0, rateLimiter.availablePermits());
+    }
+
+    @Test
+    void reserve_rejectsBadPermits_andNeverReadyReservations() {
+
+        // Given
+        TokenBucketRateLimiter frozen = new TokenBucketRateLimiter(new FakeTimeProvider(), 2L, 0);
+
+        // When Then
+        assertThrows(IllegalArgumentException.class, () -> frozen.reserve(0));
+        assertEquals(0, frozen.reserve(2).delayNanos());
+        assertThrows(IllegalStateException.class, () -> frozen.reserve(1));
+    }
+
+    @Test
+    void linearWarmUp_startsCold_rampsToTheFullBurst_andCoolsAfterIdling() {
+
+        // Given: 1 to 10 permits per second over 10 s, cold again after a minute unused
+        FakeTimeProvider time = new FakeTimeProvider();
+        TokenBucketRateLimiter rateLimiter =
+                new TokenBucketRateLimiter(time, 10L, 10.0, WarmUp.linear(1.0, 10_000, 60_000));
+
+        // When Then: cold, the bucket holds one second at the cold rate
+        assertTrue(rateLimiter.tryAcquire());
+        assertFalse(rateLimiter.tryAcquire());
+        time.advanceSeconds(1);
+        assertEquals(1, rateLimiter.availablePermits()); // 1.45 refilled in the first second
+        time.advanceSeconds(9);
+        assertEquals(10, rateLimiter.availablePermits());
+        time.advanceSeconds(60);
+        assertEquals(1, rateLimiter.availablePermits());
+    }
+
+    @Test
+    void afterGoingCold_requestsAboveTheColdBurst_areGrantedOnceWarmAgain() {
+
+        // Given: one limiter that went cold after idling, and one that starts cold
+        FakeTimeProvider time = new FakeTimeProvider();
+        WarmUp warmUp = WarmUp.linear(1.0, 10_000, 60_000);
+        TokenBucketRateLimiter idled = new TokenBucketRateLimiter(time, 10L, 10.0, warmUp);
+        time.advanceSeconds(60);
+        TokenBucketRateLimiter fresh = new TokenBucketRateLimiter(time, 10L, 10.0, warmUp);
+
+        // When: 5 permits at a time, every 100 ms for a minute
+        int idledGrants = 0;
+        int freshGrants = 0;
+        for (int i = 0; i < 600; i++) {
+            time.advanceMillis(100);
+            idledGrants += idled.tryAcquire(5) ? 1 : 0;
+            freshGrants += fresh.tryAcquire(5) ? 1 : 0;
+        }
+
+        // Then: the ramp runs once instead of restarting on every denied call
+        assertTrue(idledGrants > 0);
+        assertEquals(freshGrants, idledGrants);
+    }
+
+    @Test
+    void exponentialWarmUp_doublesEverySecond_andDelaysReservationsAlongTheRamp() {
+
+        // Given: 1 to 16 permits per second over 4 s, so the rate doubles each second
+        FakeTimeProvider time = new FakeTimeProvider();
+        TokenBucketRateLimiter rateLimiter =
+                new TokenBucketRateLimiter(time, 16L, 16.0, WarmUp.exponential(1.0, 4_000, 60_000));
+        assertTrue(rateLimiter.tryAcquire());
+
+        // When
+        Reservation reservation = rateLimiter.reserve(3);
+
+        // Then: 3 permits of the ramp 2^t take log2(1 + 3 ln 2) s
+        double expectedNanos = Math.log1p(3 * Math.log(2)) / Math.log(2) * 1e9;
+        assertEquals(expectedNanos, reservation.delayNanos(), 1_000);
+        time.advanceNanos(reservation.delayNanos());
+        assertEquals(0, rateLimiter.availablePermits());
+        time.advanceSeconds(1); // 2.6 s in: (2^2.6 - 2^1.6) / ln 2 = 4.4 refilled
+        assertEquals(4, rateLimiter.availablePermits());
+    }
+
+    @Test
+    void warmUp_rejectsAColdRateAboveTheRefillRate() {
+
+        // When Then
+        WarmUp tooCold = WarmUp.linear(6.0, 1_000, 1_000);
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new TokenBucketRateLimiter(new FakeTimeProvider(), 10L, 5.0, tooCold));
+        assertThrows(IllegalArgumentException.class, () -> WarmUp.linear(0, 1_000, 1_000));
+        assertThrows(IllegalArgumentException.class, () -> WarmUp.exponential(1.0, 0, 1_000));
+    }
 }
@@ -5,4 +5,5 @@ include("benchmark")
 include("examples")
 include("common")
 include("limiter")
-include("cache")
\ No newline at end of file
+include("cache")
+include("stress")
\ No newline at end of file
@@ -0,0 +1,23 @@
+plugins { }
+
+dependencies {
+    implementation(project(":common"))
+    implementation(project(":cache"))
+    implementation(project(":limiter"))
+
+    implementation("org.openjdk.jcstress:jcstress-core:0.16")
+    annotationProcessor("org.openjdk.jcstress:jcstress-core:0.16")
+}
+
+// ./gradlew :stress:jcstress -Pjcstress.args="-t LruStress -m quick"
+tasks.register<JavaExec>("jcstress") {
+    group = "verification"
+    description = "Runs jcstress concurrency tests (pass jcstress options with -Pjcstress.args=...)"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.openjdk.jcstress.Main")
+    args(
+        (project.findProperty("jcstress.args")?.toString() ?: "")
+            .split(" ")
+            .filter { it.isNotBlank() }
+    )
+}
@@ -0,0 +1,87 @@
+package com.limitra.cache;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+import com.limitra.time.FakeTimeProvider;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.ZZ_Result;
+
+/** Races between removing an entry found expired and writing a fresh value for the same key. */
+public final class ExpiryStress {
+
+    private ExpiryStress() {}
+
+    @JCStressTest
+    @Outcome(id = "true, true", expect = ACCEPTABLE, desc = "The fresh value survives.")
+    @Outcome(id = "false, true", expect = FORBIDDEN, desc = "Expiry removed the fresh value.")
+    @Outcome(id = {"true, false", "false, false"}, expect = FORBIDDEN, desc = "Out of step.")
+    @State
+    public static class ReadExpiredVsPut {
+
+        final FakeTimeProvider time = new FakeTimeProvider();
+        final SimpleTTLCache<String, String> cache = new SimpleTTLCache<>(time, 8);
+
+        public ReadExpiredVsPut() {
+            cache.put("k", "old", 1);
+            time.advanceMillis(1);
+        }
+
+        @Actor
+        public void read() {
+            cache.get("k");
+        }
+
+        @Actor
+        public void put() {
+            cache.put("k", "new");
+        }
+
+        @Arbiter
+        public void arbiter(ZZ_Result r) {
+            Entry<String> entry = cache.map.get("k");
+            r.r1 = entry != null && "new".equals(entry.value);
+            r.r2 = LruStress.inStep(cache);
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = "true, true", expect = ACCEPTABLE, desc = "The fresh value survives.")
+    @Outcome(id = "false, true", expect = FORBIDDEN, desc = "The wheel removed the fresh value.")
+    @Outcome(id = {"true, false", "false, false"}, expect = FORBIDDEN, desc = "Out of step.")
+    @State
+    public static class WheelExpiryVsPut {
+
+        final FakeTimeProvider time = new FakeTimeProvider();
+        final SimpleTTLCache<String, String> cache =
+                SimpleTTLCache.<String, String>builder(time)
+                        .expiry(Expiry.afterWrite((key, value) -> 1))
+                        .build();
+
+        public WheelExpiryVsPut() {
+            cache.put("k", "old");
+            time.advanceSeconds(2); // past the wheel's first tick
+        }
+
+        @Actor
+        public void cleanUp() {
+            cache.cleanUp();
+        }
+
+        @Actor
+        public void put() {
+            cache.put("k", "new");
+        }
+
+        @Arbiter
+        public void arbiter(ZZ_Result r) {
+            Entry<String> entry = cache.map.get("k");
+            r.r1 = entry != null && "new".equals(entry.value);
+            r.r2 = LruStress.inStep(cache);
+        }
+    }
+}
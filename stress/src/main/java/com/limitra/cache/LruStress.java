@@ -0,0 +1,199 @@
+package com.limitra.cache;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE_INTERESTING;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+import com.limitra.time.FakeTimeProvider;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.IZ_Result;
+import org.openjdk.jcstress.infra.results.ZZ_Result;
+
+/**
+ * Races between writes, reads, removals and capacity eviction of {@link SimpleTTLCache}, checked
+ * once all actors are done: the map and the {@link LruList} must agree on the cached keys, and
+ * the cache must be within {@code maxEntries} plus its pinned entries.
+ */
+public final class LruStress {
+
+    private LruStress() {}
+
+    /**
+     * Every cached key has an LRU node unless it is pinned, pinned keys have none, and every LRU
+     * node has a cached key.
+     */
+    static boolean inStep(SimpleTTLCache<?, ?> cache) {
+        return cache.lruList.orderSize() == cache.map.size() - cache.pinnedCount()
+                && cache.map.entrySet().stream()
+                        .allMatch(e -> e.getValue().pinned != containsKey(cache, e.getKey()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> boolean containsKey(SimpleTTLCache<K, ?> cache, Object key) {
+        return cache.lruList.contains((K) key);
+    }
+
+    @JCStressTest
+    @Outcome(id = {"true, true", "false, true"}, expect = ACCEPTABLE, desc = "In step.")
+    @Outcome(id = {"true, false", "false, false"}, expect = FORBIDDEN, desc = "Orphaned node.")
+    @State
+    public static class PutVsRemove {
+
+        final SimpleTTLCache<String, String> cache =
+                new SimpleTTLCache<>(new FakeTimeProvider(), 8);
+
+        @Actor
+        public void put() {
+            cache.put("k", "v");
+        }
+
+        @Actor
+        public void remove() {
+            cache.remove("k");
+        }
+
+        @Arbiter
+        public void arbiter(ZZ_Result r) {
+            r.r1 = cache.map.containsKey("k");
+            r.r2 = inStep(cache);
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = "1, true", expect = ACCEPTABLE, desc = "One key left, in step.")
+    @Outcome(
+            id = "0, true",
+            expect = ACCEPTABLE_INTERESTING,
+            desc = "Both evictions counted the other's key as excess: over-eviction, still safe.")
+    @Outcome(id = "2, true", expect = FORBIDDEN, desc = "Over capacity at quiescence.")
+    @Outcome(id = {"0, false", "1, false", "2, false"}, expect = FORBIDDEN, desc = "Out of step.")
+    @State
+    public static class PutVsPutAtCapacity {
+
+        final SimpleTTLCache<String, String> cache =
+                new SimpleTTLCache<>(new FakeTimeProvider(), 1);
+
+        @Actor
+        public void putA() {
+            cache.put("a", "A");
+        }
+
+        @Actor
+        public void putB() {
+            cache.put("b", "B");
+        }
+
+        @Arbiter
+        public void arbiter(IZ_Result r) {
+            r.r1 = cache.map.size();
+            r.r2 = inStep(cache);
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = "1, true", expect = ACCEPTABLE, desc = "In step.")
+    @Outcome(id = "0, true", expect = ACCEPTABLE_INTERESTING, desc = "Over-eviction.")
+    @Outcome(
+            id = {"0, false", "1, false", "2, false"},
+            expect = FORBIDDEN,
+            desc = "A read revived an evicted key's node.")
+    @Outcome(id = "2, true", expect = FORBIDDEN, desc = "Over capacity at quiescence.")
+    @State
+    public static class GetVsEviction {
+
+        final SimpleTTLCache<String, String> cache =
+                new SimpleTTLCache<>(new FakeTimeProvider(), 1);
+
+        public GetVsEviction() {
+            cache.put("a", "A");
+        }
+
+        @Actor
+        public void get() {
+            cache.get("a");
+        }
+
+        @Actor
+        public void putEvictingA() {
+            cache.put("b", "B");
+        }
+
+        @Arbiter
+        public void arbiter(IZ_Result r) {
+            r.r1 = cache.map.size();
+            r.r2 = inStep(cache);
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = {"true, true", "false, true"}, expect = ACCEPTABLE, desc = "In step.")
+    @Outcome(id = {"true, false", "false, false"}, expect = FORBIDDEN, desc = "Out of step.")
+    @State
+    public static class PutVsClear {
+
+        final SimpleTTLCache<String, String> cache =
+                new SimpleTTLCache<>(new FakeTimeProvider(), 8);
+
+        public PutVsClear() {
+            cache.put("a", "A");
+        }
+
+        @Actor
+        public void put() {
+            cache.put("b", "B");
+        }
+
+        @Actor
+        public void clear() {
+            cache.clear();
+        }
+
+        @Arbiter
+        public void arbiter(ZZ_Result r) {
+            r.r1 = cache.map.containsKey("b");
+            r.r2 = inStep(cache);
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = "2, true", expect = ACCEPTABLE, desc = "Pinned key and newest key left.")
+    @Outcome(id = "1, true", expect = ACCEPTABLE_INTERESTING, desc = "Over-eviction.")
+    @Outcome(
+            id = {"0, true", "0, false", "1, false", "2, false", "3, false"},
+            expect = FORBIDDEN,
+            desc = "Pinned key evicted, or out of step.")
+    @Outcome(id = "3, true", expect = FORBIDDEN, desc = "Over capacity at quiescence.")
+    @State
+    public static class PinVsPutAtCapacity {
+
+        final SimpleTTLCache<String, String> cache =
+                SimpleTTLCache.<String, String>builder(new FakeTimeProvider())
+                        .maxEntries(1)
+                        .maxPinned(1)
+                        .build();
+
+        public PinVsPutAtCapacity() {
+            cache.put("a", "A");
+        }
+
+        @Actor
+        public void pin() {
+            cache.putPinned("p", "P");
+        }
+
+        @Actor
+        public void put() {
+            cache.put("b", "B");
+        }
+
+        @Arbiter
+        public void arbiter(IZ_Result r) {
+            r.r1 = cache.map.containsKey("p") ? cache.map.size() : 0;
+            r.r2 = inStep(cache);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.limitra.limiter;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+import com.limitra.time.FakeTimeProvider;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.ZZZ_Result;
+import org.openjdk.jcstress.infra.results.ZZ_Result;
+
+/**
+ * Concurrent acquires on a frozen clock, so nothing refills: exactly the bucket's capacity may be
+ * granted, no more (over-grant) and no fewer (a lost update).
+ */
+public final class RateLimiterStress {
+
+    private RateLimiterStress() {}
+
+    @JCStressTest
+    @Outcome(
+            id = {"true, true, false", "true, false, true", "false, true, true"},
+            expect = ACCEPTABLE,
+            desc = "Exactly the two permits granted.")
+    @Outcome(id = "true, true, true", expect = FORBIDDEN, desc = "Over-grant.")
+    @Outcome(
+            id = {"true, false, false", "false, true, false", "false, false, true"},
+            expect = FORBIDDEN,
+            desc = "A permit was lost.")
+    @State
+    public static class TokenBucketNoOverGrant {
+
+        final TokenBucketRateLimiter limiter =
+                new TokenBucketRateLimiter(new FakeTimeProvider(), 2, 0);
+
+        @Actor
+        public void actor1(ZZZ_Result r) {
+            r.r1 = limiter.tryAcquire();
+        }
+
+        @Actor
+        public void actor2(ZZZ_Result r) {
+            r.r2 = limiter.tryAcquire();
+        }
+
+        @Actor
+        public void actor3(ZZZ_Result r) {
+            r.r3 = limiter.tryAcquire();
+        }
+    }
+
+    @JCStressTest
+    @Outcome(id = {"true, false", "false, true"}, expect = ACCEPTABLE, desc = "One bucket.")
+    @Outcome(id = "true, true", expect = FORBIDDEN, desc = "Two buckets made for one new key.")
+    @Outcome(id = "false, false", expect = FORBIDDEN, desc = "The permit was lost.")
+    @State
+    public static class KeyedFirstAcquireNoOverGrant {
+
+        final KeyedRateLimiter<String> limiter =
+                new KeyedRateLimiter<>(new FakeTimeProvider(), 1, 0, 16);
+
+        @Actor
+        public void actor1(ZZ_Result r) {
+            r.r1 = limiter.tryAcquire("k");
+        }
+
+        @Actor
+        public void actor2(ZZ_Result r) {
+            r.r2 = limiter.tryAcquire("k");
+        }
+    }
+}